@@ -0,0 +1,21 @@
+@echo off
+echo Smart Home Control System Benchmarks
+echo Compiling benchmarks...
+
+cd bench
+javac -encoding UTF-8 -cp ../src -d . ../src/*.java *.java
+
+if %errorlevel% equ 0 (
+    echo Compilation successful!
+    java -Djava.awt.headless=true -cp . HotPathBenchmark %1
+    java -cp . SnapshotBenchmark
+    java -cp . ThermalBenchmark
+    java -cp . TimeSeriesBenchmark
+    java -cp . RuleBenchmark
+    java -cp . ShardBenchmark
+) else (
+    echo Compilation failed! Please check for errors.
+)
+
+cd ..
+pause
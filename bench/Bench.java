@@ -0,0 +1,118 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Bench - minimal benchmark harness: warmup, timed iterations, throughput plus allocation and GC per benchmark
+//allocation comes from the per-thread allocation counter, the same source the JMH gc profiler uses
+//set -Dbench.warmup=ms, -Dbench.iterations=n and -Dbench.millis=ms to trade precision for time
+
+public class Bench {
+    private static final long WARMUP_MILLIS = Long.getLong("bench.warmup", 1000);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long ITERATION_MILLIS = Long.getLong("bench.millis", 1000);
+
+    //one invocation of the code under test, returns how many operations it performed
+    public interface Body {
+        int run();
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    //results are consumed here so the JIT cannot drop the work
+    public static volatile long sink;
+
+    //print the column headers
+    public static void printHeader() {
+        System.out.printf("%-34s %10s %14s %12s %12s %8s %8s%n", "benchmark", "devices", "ops/s", "ns/op", "B/op", "gc", "gc ms");
+    }
+
+    //measure a body that needs no setup between invocations
+    public static void run(String name, int devices, Body body) {
+        run(name, devices, null, body);
+    }
+
+    //measure a body, the setup runs before every invocation and is excluded from time and allocation
+    public static void run(String name, int devices, Runnable setup, Body body) {
+        measure(body, setup, WARMUP_MILLIS);
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long gcCount = -gcCount();
+        long gcMillis = -gcMillis();
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            long[] result = measure(body, setup, ITERATION_MILLIS);
+            ops += result[0];
+            nanos += result[1];
+            bytes += result[2];
+        }
+        gcCount += gcCount();
+        gcMillis += gcMillis();
+        double opsPerSecond = ops * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+        String bytesPerOp = bytes < 0 ? "n/a" : String.format("%.1f", bytes / (double) ops);
+        System.out.printf("%-34s %10d %14.0f %12.1f %12s %8d %8d%n", name, devices, opsPerSecond, nanos / (double) ops, bytesPerOp, gcCount, gcMillis);
+    }
+
+    //invoke the body until the time is up, returns {operations, nanoseconds, bytes allocated (-1 if unknown)}
+    private static long[] measure(Body body, Runnable setup, long millis) {
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (setup == null) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            long now;
+            do {
+                ops += body.run();
+                now = System.nanoTime();
+            } while (now < end);
+            nanos = now - start;
+            bytes = allocated < 0 ? -1 : allocatedBytes() - allocated;
+        }
+        else {
+            do {
+                setup.run();
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                ops += body.run();
+                nanos += System.nanoTime() - start;
+                bytes = allocated < 0 ? -1 : bytes + allocatedBytes() - allocated;
+            } while (System.nanoTime() < end);
+        }
+        return new long[] {ops, nanos, bytes};
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : COLLECTORS) {
+            total += Math.max(collector.getCollectionCount(), 0);
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : COLLECTORS) {
+            total += Math.max(collector.getCollectionTime(), 0);
+        }
+        return total;
+    }
+
+    //the HotSpot thread bean with allocation counters, null on JVMs without it
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        }
+        return null;
+    }
+}
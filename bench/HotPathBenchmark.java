@@ -0,0 +1,166 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+//Hot Path Benchmark - throughput and allocation of the appliance hot paths at 1, 1k and 1M devices of each type
+//runs headless against the registry and render pipeline the panels delegate to, no window is opened
+//offline fallback for the JMH benchmarks in /bench/src (jmh.bat), the workloads match HotPathFleet
+//compile and run from /bench: javac -encoding UTF-8 -cp ../src -d . ../src/*.java *.java && java -Djava.awt.headless=true -cp . HotPathBenchmark [name filter]
+
+public class HotPathBenchmark {
+    private static final int[] DEVICE_COUNTS = {1, 1_000, 1_000_000};
+
+    //main method
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        Bench.printHeader();
+        for (int count : DEVICE_COUNTS) {
+            runAll(count, filter);
+        }
+    }
+
+    //every benchmark for one fleet size, the fleet has count lights, fans and ACs laid out like the dashboard
+    private static void runAll(int count, String filter) {
+        DeviceRegistry registry = createRegistry(count);
+        RenderPipeline pipeline = new RenderPipeline(registry, null);
+        int size = registry.size();
+
+        if (matches("Light.toggle", filter)) {
+            Bench.run("Light.toggle", count, () -> {
+                for (int id = 0; id < size; id += 3) {
+                    registry.toggleLight(id);
+                }
+                return count;
+            });
+        }
+
+        if (matches("Fan.setSpeed", filter)) {
+            Bench.run("Fan.setSpeed", count, () -> {
+                for (int id = 1; id < size; id += 3) {
+                    registry.setFanSpeed(id, (registry.getSpeed(id) + 1) % (DeviceRegistry.MAX_SPEED + 1));
+                }
+                return count;
+            });
+        }
+
+        if (matches("AirConditioner.adjustTemperature", filter)) {
+            for (int id = 2; id < size; id += 3) {
+                if (!registry.isOn(id)) registry.toggleAirConditioner(id);
+            }
+            Bench.run("AirConditioner.adjustTemperature", count, () -> {
+                for (int id = 2; id < size; id += 3) {
+                    //bounce between the limits so the temperature keeps moving
+                    if (registry.getCurrentTemperature(id) == registry.getTargetTemperature(id)) {
+                        registry.setTargetTemperature(id, registry.getTargetTemperature(id) == DeviceRegistry.MAX_TEMP
+                            ? DeviceRegistry.MIN_TEMP : DeviceRegistry.MAX_TEMP);
+                    }
+                    registry.adjustTemperature(id);
+                }
+                return count;
+            });
+        }
+
+        if (matches("getStatus", filter)) {
+            Bench.run("getStatus", size, () -> {
+                long length = 0;
+                for (int id = 0; id < size; id++) {
+                    length += registry.getStatus(id).length();
+                }
+                Bench.sink += length;
+                return size;
+            });
+        }
+
+        if (matches("TelemetryEncoder.encodeText", filter)) {
+            byte[] text = new byte[TelemetryEncoder.MAX_TEXT_BYTES];
+            Bench.run("TelemetryEncoder.encodeText", size, () -> {
+                long length = 0;
+                for (int id = 0; id < size; id++) {
+                    length += TelemetryEncoder.encodeText(registry, id, text, 0);
+                }
+                Bench.sink += length;
+                return size;
+            });
+        }
+
+        if (matches("TelemetryEncoder.encodeBinary", filter)) {
+            ByteBuffer binary = ByteBuffer.allocateDirect(64 * 1024);
+            Bench.run("TelemetryEncoder.encodeBinary", size, () -> {
+                int id = 0;
+                while (id < size) {
+                    binary.clear();
+                    id = TelemetryEncoder.encodeBinary(registry, id, size, binary);
+                }
+                Bench.sink += binary.position();
+                return size;
+            });
+        }
+
+        if (matches("Diagnostics.record", filter) && count == 1) {
+            Diagnostics diagnostics = new Diagnostics();
+            Bench.run("Diagnostics.recordClockTick", count, () -> {
+                for (int i = 0; i < 1000; i++) {
+                    diagnostics.recordClockTick(i * 1_000L);
+                }
+                return 1000;
+            });
+        }
+
+        //the system update sweep, starting every invocation from a fleet with everything on
+        StateSnapshot allOn = allOn(registry);
+        if (matches("Dashboard.updateSweep", filter)) {
+            Bench.run("Dashboard.updateSweep", size, () -> registry.restoreSnapshot(allOn.copy()), () -> {
+                for (int id = 0; id < size; id++) {
+                    registry.turnOff(id);
+                }
+                return size;
+            });
+        }
+
+        if (matches("BulkOperations.turnOff", filter)) {
+            BulkOperations bulk = new BulkOperations(registry, Runnable::run, ForkJoinPool.commonPool());
+            Bench.run("BulkOperations.turnOff", size, () -> registry.restoreSnapshot(allOn.copy()), () -> {
+                BulkOperations.Result result = bulk.turnOff(DeviceRegistry.ANY_TYPE, DeviceRegistry.ALL_GROUPS, null).join();
+                Bench.sink += result.getChanged();
+                return size;
+            });
+        }
+
+        //the overview on a full HD canvas: every cell redrawn (resize, color mode) must fit in a 16 ms frame
+        if (matches("FleetHeatmap.renderAll", filter)) {
+            FleetHeatmap.CellImage cells = new FleetHeatmap.CellImage(registry);
+            cells.layout(1920, 1080);
+            Bench.run("FleetHeatmap.renderAll", size, cells::renderAll);
+        }
+
+        pipeline.shutdown();
+    }
+
+    private static boolean matches(String name, String filter) {
+        return name.contains(filter);
+    }
+
+    //registry with count devices of each type over ten floors
+    private static DeviceRegistry createRegistry(int count) {
+        DeviceRegistry registry = new DeviceRegistry(3 * count);
+        int[] floors = new int[10];
+        for (int floor = 0; floor < floors.length; floor++) {
+            floors[floor] = registry.defineGroup("Floor " + (floor + 1));
+        }
+        for (int i = 0; i < 3 * count; i++) {
+            registry.addDevice((byte) (i % 3), floors[(i / 3) % floors.length]);
+        }
+        return registry;
+    }
+
+    //snapshot of the registry with every light, fan and AC switched on
+    private static StateSnapshot allOn(DeviceRegistry registry) {
+        StateSnapshot snapshot = registry.captureSnapshot();
+        for (int id = 0; id < snapshot.size(); id++) {
+            snapshot.power[id] = true;
+            if (snapshot.types[id] == DeviceRegistry.TYPE_FAN) {
+                snapshot.speeds[id] = DeviceRegistry.MAX_SPEED;
+            }
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,100 @@
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Random;
+
+//Rule Benchmark - 10k automation rules over 100k devices, state changes re-test only the indexed conditions they affect
+//compared with re-testing every rule on a change, which is what polling each second amounts to
+//compile and run from /bench: javac -encoding UTF-8 -cp ../src -d . ../src/*.java *.java && java -cp . RuleBenchmark
+
+public class RuleBenchmark {
+    private static final int DEVICES = 100_000;
+    private static final int RULES = 10_000;
+    private static final int CHANGES = 1000;
+
+    //main method
+    public static void main(String[] args) {
+        DeviceRegistry registry = createRegistry();
+        VirtualScheduler scheduler = new VirtualScheduler(Instant.EPOCH, ZoneId.of("UTC"));
+        RuleEngine engine = new RuleEngine(registry, scheduler, Runnable::run);
+        addRules(engine, registry);
+        System.out.println(engine.getMetrics());
+
+        Bench.printHeader();
+        Random random = new Random(1);
+        int size = registry.size();
+        long[] before = new long[2];
+        Bench.run("RuleEngine incremental change", DEVICES, () -> {
+            for (int i = 0; i < CHANGES; i++) {
+                change(registry, random, random.nextInt(size));
+            }
+            return CHANGES;
+        });
+        before[0] = engine.getEvaluations();
+        before[1] = registry.getChangeCount();
+        for (int i = 0; i < 100_000; i++) {
+            change(registry, random, random.nextInt(size));
+        }
+        System.out.printf("%.2f condition tests per change, %d rules fired%n",
+            (engine.getEvaluations() - before[0]) / (double) (registry.getChangeCount() - before[1]), engine.getRulesFired());
+
+        //ops are condition tests here
+        Bench.run("RuleEngine.evaluateAll (polling)", DEVICES, engine::evaluateAll);
+        Bench.sink += engine.getRulesFired();
+    }
+
+    //a random change of the kind a user or the climate controller makes
+    private static void change(DeviceRegistry registry, Random random, int id) {
+        switch (registry.getType(id)) {
+            case DeviceRegistry.TYPE_LIGHT:
+                registry.toggleLight(id);
+                break;
+            case DeviceRegistry.TYPE_FAN:
+                registry.setFanSpeed(id, random.nextInt(DeviceRegistry.MAX_SPEED + 1));
+                break;
+            default:
+                if (random.nextInt(4) == 0) {
+                    registry.setTargetTemperature(id, DeviceRegistry.MIN_TEMP + random.nextInt(DeviceRegistry.MAX_TEMP - DeviceRegistry.MIN_TEMP + 1));
+                }
+                else {
+                    registry.adjustTemperature(id);
+                }
+                break;
+        }
+    }
+
+    //rooms of a light, a fan and an AC, every AC on
+    private static DeviceRegistry createRegistry() {
+        DeviceRegistry registry = new DeviceRegistry(DEVICES);
+        int group = registry.defineGroup("Building");
+        for (int i = 0; i < DEVICES; i++) {
+            int id = registry.addDevice((byte) (i % 3), group);
+            if (registry.getType(id) == DeviceRegistry.TYPE_AC) {
+                registry.toggleAirConditioner(id);
+            }
+        }
+        return registry;
+    }
+
+    //"if the AC is above t and the fan is off, set the fan to HIGH" and "if the AC is below t, turn the light off"
+    private static void addRules(RuleEngine engine, DeviceRegistry registry) {
+        Random random = new Random(42);
+        int rooms = DEVICES / 3;
+        for (int i = 0; i < RULES; i++) {
+            int room = random.nextInt(rooms) * 3;
+            int light = room;
+            int fan = room + 1;
+            int ac = room + 2;
+            int threshold = DeviceRegistry.MIN_TEMP + random.nextInt(DeviceRegistry.MAX_TEMP - DeviceRegistry.MIN_TEMP + 1);
+            if (i % 2 == 0) {
+                engine.addRule("cool room " + room, fan, RuleEngine.ACTION_SET_SPEED, 2,
+                    new RuleEngine.Condition(ac, RuleEngine.ATTR_CURRENT_TEMP, RuleEngine.GT, threshold),
+                    new RuleEngine.Condition(fan, RuleEngine.ATTR_SPEED, RuleEngine.EQ, 0));
+            }
+            else {
+                engine.addRule("dim room " + room, light, RuleEngine.ACTION_TURN_OFF, 0,
+                    new RuleEngine.Condition(ac, RuleEngine.ATTR_CURRENT_TEMP, RuleEngine.LT, threshold),
+                    new RuleEngine.Condition(light, RuleEngine.ATTR_ON, RuleEngine.EQ, 1));
+            }
+        }
+    }
+}
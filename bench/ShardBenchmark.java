@@ -0,0 +1,87 @@
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Shard Benchmark - command throughput of a ShardedFleet as shards are added, one producer thread per shard
+//posting random light, fan and AC commands for devices on any shard; one shard is the single-writer baseline
+//shards run on their own threads, so expect roughly linear scaling up to half the cores (the other half produce)
+//compile and run from /bench: javac -encoding UTF-8 -cp ../src -d . ../src/*.java *.java && java -cp . ShardBenchmark
+
+public class ShardBenchmark {
+    private static final int DEVICES = 300_000;
+    private static final int GROUPS = 64;
+    private static final long WARMUP_MILLIS = Long.getLong("bench.warmup", 1000);
+    private static final long MEASURE_MILLIS = Long.getLong("bench.millis", 1000) * Integer.getInteger("bench.iterations", 3);
+
+    private static volatile boolean producing;
+
+    //main method
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d cores%n%-34s %10s %14s %10s%n", cores, "benchmark", "devices", "commands/s", "speedup");
+        double baseline = 0;
+        for (int shards = 1; shards <= Math.max(2, cores / 2); shards *= 2) {
+            for (int partitioning : new int[] {ShardedFleet.PARTITION_BY_GROUP, ShardedFleet.PARTITION_BY_HASH}) {
+                double rate = measure(shards, partitioning);
+                if (baseline == 0) baseline = rate;
+                String name = "ShardedFleet " + shards + " shard(s) by " + (partitioning == ShardedFleet.PARTITION_BY_GROUP ? "group" : "hash");
+                System.out.printf("%-34s %10d %14.0f %9.2fx%n", name, DEVICES, rate, rate / baseline);
+            }
+        }
+    }
+
+    //applied commands per second with one producer per shard
+    private static double measure(int shardCount, int partitioning) throws InterruptedException {
+        ShardedFleet fleet = new ShardedFleet(shardCount, partitioning);
+        for (int g = 0; g < GROUPS; g++) {
+            fleet.defineGroup("Floor " + (g + 1));
+        }
+        for (int i = 0; i < DEVICES; i++) {
+            fleet.addDevice((byte) (i % 3), i / 3 * GROUPS / (DEVICES / 3));
+        }
+        fleet.start();
+        producing = true;
+        Thread[] producers = new Thread[shardCount];
+        for (int p = 0; p < shardCount; p++) {
+            Random random = new Random(p + 1);
+            producers[p] = new Thread(() -> {
+                while (producing) {
+                    int id = random.nextInt(DEVICES);
+                    int op;
+                    int argument;
+                    switch (id % 3) {
+                        case DeviceRegistry.TYPE_LIGHT:
+                            op = CommandServer.OP_TOGGLE_LIGHT;
+                            argument = 0;
+                            break;
+                        case DeviceRegistry.TYPE_FAN:
+                            op = CommandServer.OP_SET_SPEED;
+                            argument = random.nextInt(DeviceRegistry.MAX_SPEED + 1);
+                            break;
+                        default:
+                            op = CommandServer.OP_SET_TARGET;
+                            argument = DeviceRegistry.MIN_TEMP + random.nextInt(DeviceRegistry.MAX_TEMP - DeviceRegistry.MIN_TEMP + 1);
+                            break;
+                    }
+                    while (!fleet.tell(id, op, argument) && producing) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }, "producer-" + p);
+            producers[p].start();
+        }
+        Thread.sleep(WARMUP_MILLIS);
+        long before = fleet.getAppliedCount();
+        long start = System.nanoTime();
+        Thread.sleep(MEASURE_MILLIS);
+        long applied = fleet.getAppliedCount() - before;
+        long nanos = System.nanoTime() - start;
+        producing = false;
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        //a fleet-wide bulk operation merged over the shards, checked so the work cannot be skipped
+        Bench.sink += fleet.applyBulk(DeviceRegistry.BULK_TURN_OFF, DeviceRegistry.ANY_TYPE, DeviceRegistry.ALL_GROUPS, 0).join();
+        fleet.shutdown();
+        return applied * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+}
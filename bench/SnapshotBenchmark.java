@@ -0,0 +1,66 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Snapshot Benchmark - measures how long it takes to restore a snapshot for growing device counts
+//compile and run from /bench: javac -encoding UTF-8 -cp ../src -d . ../src/*.java *.java && java -cp . SnapshotBenchmark
+
+public class SnapshotBenchmark {
+    private static final int[] DEVICE_COUNTS = {1_000, 100_000, 1_000_000, 5_000_000};
+    private static final int RUNS = 5;
+
+    //main method
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createTempFile("snapshot-bench", ".snap");
+        System.out.printf("%12s %12s %14s %14s%n", "devices", "file KB", "write ms", "restore ms");
+        for (int count : DEVICE_COUNTS) {
+            DeviceRegistry source = createRegistry(count);
+            long bestWrite = Long.MAX_VALUE;
+            long bestRestore = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                source.captureSnapshot().writeTo(file);
+                bestWrite = Math.min(bestWrite, System.nanoTime() - start);
+
+                DeviceRegistry target = new DeviceRegistry(1);
+                start = System.nanoTime();
+                target.restoreSnapshot(StateSnapshot.readFrom(file));
+                bestRestore = Math.min(bestRestore, System.nanoTime() - start);
+                if (target.size() != count || target.getCurrentTemperature(count - 1) != source.getCurrentTemperature(count - 1)) {
+                    throw new IllegalStateException("Restored state does not match");
+                }
+            }
+            System.out.printf("%12d %12d %14.2f %14.2f%n", count, Files.size(file) / 1024,
+                bestWrite / (double) TimeUnit.MILLISECONDS.toNanos(1), bestRestore / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        Files.deleteIfExists(file);
+    }
+
+    //registry with random device types and states
+    private static DeviceRegistry createRegistry(int count) {
+        Random random = new Random(42);
+        DeviceRegistry registry = new DeviceRegistry(count);
+        int[] floors = new int[10];
+        for (int floor = 0; floor < floors.length; floor++) {
+            floors[floor] = registry.defineGroup("Floor " + (floor + 1));
+        }
+        for (int i = 0; i < count; i++) {
+            int id = registry.addDevice((byte) random.nextInt(3), floors[i % floors.length]);
+            switch (registry.getType(id)) {
+                case DeviceRegistry.TYPE_LIGHT:
+                    if (random.nextBoolean()) registry.toggleLight(id);
+                    break;
+                case DeviceRegistry.TYPE_FAN:
+                    registry.setFanSpeed(id, random.nextInt(3));
+                    break;
+                default:
+                    registry.setTargetTemperature(id, DeviceRegistry.MIN_TEMP + random.nextInt(15));
+                    if (random.nextBoolean()) registry.toggleAirConditioner(id);
+                    registry.adjustTemperature(id);
+                    break;
+            }
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.Random;
+
+//Thermal Benchmark - rooms stepped per second by the batch thermal engine, next to the per-device registry path
+//compile and run from /bench: javac -encoding UTF-8 -cp ../src -d . ../src/*.java *.java && java -cp . ThermalBenchmark
+
+public class ThermalBenchmark {
+    private static final int[] ROOM_COUNTS = {1_000, 100_000, 1_000_000};
+    private static final float TICK_SECONDS = 0.1f;
+
+    //main method
+    public static void main(String[] args) {
+        Bench.printHeader();
+        for (int count : ROOM_COUNTS) {
+            ThermalEngine engine = createEngine(count);
+            Bench.run("ThermalEngine.step", count, () -> {
+                engine.step(TICK_SECONDS);
+                //keep the rooms moving instead of settling on their targets
+                if (engine.getRoomsStepped() % (100L * count) == 0) {
+                    retarget(engine);
+                }
+                return count;
+            });
+            Bench.sink += (long) engine.getCurrentTemperature(count - 1);
+
+            DeviceRegistry registry = createRegistry(count);
+            int size = registry.size();
+            Bench.run("DeviceRegistry.adjustTemperature", count, () -> {
+                for (int id = 0; id < size; id++) {
+                    if (registry.getCurrentTemperature(id) == registry.getTargetTemperature(id)) {
+                        registry.setTargetTemperature(id, registry.getTargetTemperature(id) == DeviceRegistry.MAX_TEMP
+                            ? DeviceRegistry.MIN_TEMP : DeviceRegistry.MAX_TEMP);
+                    }
+                    registry.adjustTemperature(id);
+                }
+                return size;
+            });
+        }
+    }
+
+    //rooms with random temperatures and rates, every AC on
+    private static ThermalEngine createEngine(int count) {
+        Random random = new Random(42);
+        ThermalEngine engine = new ThermalEngine(count);
+        for (int i = 0; i < count; i++) {
+            int room = engine.addRoom(DeviceRegistry.MIN_TEMP + random.nextFloat() * 14, DeviceRegistry.MIN_TEMP, 0.2f + random.nextFloat());
+            engine.setOn(room, true);
+        }
+        retarget(engine);
+        return engine;
+    }
+
+    //send every room to the opposite end of the range
+    private static void retarget(ThermalEngine engine) {
+        for (int room = 0; room < engine.size(); room++) {
+            engine.setTargetTemperature(room, engine.getTargetTemperature(room) == DeviceRegistry.MIN_TEMP ? DeviceRegistry.MAX_TEMP : DeviceRegistry.MIN_TEMP);
+        }
+    }
+
+    //registry with count ACs, every one on
+    private static DeviceRegistry createRegistry(int count) {
+        DeviceRegistry registry = new DeviceRegistry(count);
+        int group = registry.defineGroup("Building");
+        for (int i = 0; i < count; i++) {
+            registry.toggleAirConditioner(registry.addDevice(DeviceRegistry.TYPE_AC, group));
+        }
+        return registry;
+    }
+}
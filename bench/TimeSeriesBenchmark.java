@@ -0,0 +1,75 @@
+import java.util.Random;
+
+//Time Series Benchmark - a month of per-second history in the time-series store: memory per sample, append rate and query speed
+//ACs drift one degree every few minutes and get a new target a few times a day, fans change speed a few times an hour
+//compile and run from /bench: javac -encoding UTF-8 -cp ../src -d . ../src/*.java *.java && java -cp . TimeSeriesBenchmark
+//set -Dbench.devices=n for the number of ACs and of fans (default 100 of each)
+
+public class TimeSeriesBenchmark {
+    private static final int DEVICES = Integer.getInteger("bench.devices", 100);
+    private static final long MONTH_SECONDS = 30L * 24 * 3600;
+    private static final long START = 1_700_000_000L;
+
+    //main method
+    public static void main(String[] args) {
+        TimeSeriesStore store = new TimeSeriesStore();
+        long start = System.nanoTime();
+        fillMonth(store);
+        long nanos = System.nanoTime() - start;
+        long samples = store.getSampleCount();
+        System.out.printf("%d series, %,d samples in %.1f s (%,.0f appends/s)%n", store.getSeriesCount(), samples,
+            nanos / 1e9, samples * 1e9 / nanos);
+        System.out.printf("memory %,d KB, %.3f bytes/sample (raw %d bytes/sample)%n", store.getMemoryBytes() / 1024,
+            store.getMemoryBytes() / (double) samples, Long.BYTES + Integer.BYTES);
+
+        Bench.printHeader();
+        int[] min = new int[120];
+        int[] max = new int[120];
+        float[] mean = new float[120];
+        long end = START + MONTH_SECONDS;
+        Random random = new Random(7);
+        Bench.run("downsample last 10 min", DEVICES, () -> {
+            store.downsample(random.nextInt(DEVICES) * 2, TimeSeriesStore.METRIC_CURRENT_TEMP, end - 600, end, min, max, mean);
+            return 1;
+        });
+        Bench.run("downsample whole month", DEVICES, () -> {
+            store.downsample(random.nextInt(DEVICES) * 2, TimeSeriesStore.METRIC_CURRENT_TEMP, START, end, min, max, mean);
+            return 1;
+        });
+        long[] times = new long[3600];
+        int[] values = new int[3600];
+        Bench.run("range 1 h (per sample)", DEVICES, () -> {
+            long from = START + (long) (random.nextDouble() * (MONTH_SECONDS - 3600));
+            return store.range(random.nextInt(DEVICES) * 2, TimeSeriesStore.METRIC_CURRENT_TEMP, from, from + 3600, times, values);
+        });
+        Bench.sink += (long) mean[0] + values[0];
+    }
+
+    //ids 0, 2, 4, ... are ACs and 1, 3, 5, ... are fans, like an interleaved registry
+    private static void fillMonth(TimeSeriesStore store) {
+        Random random = new Random(42);
+        int[] current = new int[DEVICES];
+        int[] target = new int[DEVICES];
+        int[] speed = new int[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            current[i] = DeviceRegistry.MIN_TEMP + random.nextInt(DeviceRegistry.MAX_TEMP - DeviceRegistry.MIN_TEMP + 1);
+            target[i] = current[i];
+        }
+        for (long second = START; second < START + MONTH_SECONDS; second++) {
+            for (int i = 0; i < DEVICES; i++) {
+                if (random.nextInt(8 * 3600) == 0) {
+                    target[i] = DeviceRegistry.MIN_TEMP + random.nextInt(DeviceRegistry.MAX_TEMP - DeviceRegistry.MIN_TEMP + 1);
+                }
+                if (current[i] != target[i] && random.nextInt(180) == 0) {
+                    current[i] += current[i] < target[i] ? 1 : -1;
+                }
+                if (random.nextInt(1200) == 0) {
+                    speed[i] = random.nextInt(3);
+                }
+                store.append(i * 2, TimeSeriesStore.METRIC_CURRENT_TEMP, second, current[i]);
+                store.append(i * 2, TimeSeriesStore.METRIC_TARGET_TEMP, second, target[i]);
+                store.append(i * 2 + 1, TimeSeriesStore.METRIC_SPEED, second, speed[i]);
+            }
+        }
+    }
+}
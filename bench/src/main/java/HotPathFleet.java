@@ -0,0 +1,103 @@
+import benchmarks.Fleet;
+
+//Hot Path Fleet - the registry and snapshot the JMH benchmarks drive, the same workloads as the fallback HotPathBenchmark
+//devices are laid out light, fan, AC per room over ten floors, so the devices of one type are every third id
+
+public class HotPathFleet implements Fleet {
+    private final DeviceRegistry registry;
+    private final int count;
+    private int light;
+    private int fan;
+    private int airConditioner;
+
+    //constructor, count devices of each type with the ACs switched on
+    public HotPathFleet(int count) {
+        this.count = count;
+        registry = new DeviceRegistry(3 * count);
+        int[] floors = new int[10];
+        for (int floor = 0; floor < floors.length; floor++) {
+            floors[floor] = registry.defineGroup("Floor " + (floor + 1));
+        }
+        for (int i = 0; i < 3 * count; i++) {
+            registry.addDevice((byte) (i % 3), floors[(i / 3) % floors.length]);
+        }
+        for (int id = 2; id < registry.size(); id += 3) {
+            registry.toggleAirConditioner(id);
+        }
+    }
+
+    @Override
+    public boolean toggleLight() {
+        int id = 3 * light;
+        light = next(light);
+        registry.toggleLight(id);
+        return registry.isOn(id);
+    }
+
+    @Override
+    public int setFanSpeed() {
+        int id = 3 * fan + 1;
+        fan = next(fan);
+        int speed = (registry.getSpeed(id) + 1) % (DeviceRegistry.MAX_SPEED + 1);
+        registry.setFanSpeed(id, speed);
+        return speed;
+    }
+
+    @Override
+    public int adjustTemperature() {
+        int id = 3 * airConditioner + 2;
+        airConditioner = next(airConditioner);
+        //bounce between the limits so the temperature keeps moving
+        if (registry.getCurrentTemperature(id) == registry.getTargetTemperature(id)) {
+            registry.setTargetTemperature(id, registry.getTargetTemperature(id) == DeviceRegistry.MAX_TEMP
+                ? DeviceRegistry.MIN_TEMP : DeviceRegistry.MAX_TEMP);
+        }
+        registry.adjustTemperature(id);
+        return registry.getCurrentTemperature(id);
+    }
+
+    @Override
+    public String lightStatus() {
+        int id = 3 * light;
+        light = next(light);
+        return registry.getStatus(id);
+    }
+
+    @Override
+    public String fanStatus() {
+        int id = 3 * fan + 1;
+        fan = next(fan);
+        return registry.getStatus(id);
+    }
+
+    @Override
+    public String airConditionerStatus() {
+        int id = 3 * airConditioner + 2;
+        airConditioner = next(airConditioner);
+        return registry.getStatus(id);
+    }
+
+    //through the setters rather than a snapshot restore, so the setup allocates nothing the gc profiler would count
+    @Override
+    public void switchAllOn() {
+        int size = registry.size();
+        for (int id = 0; id < size; id += 3) {
+            if (!registry.isOn(id)) registry.toggleLight(id);
+            registry.setFanSpeed(id + 1, DeviceRegistry.MAX_SPEED);
+            if (!registry.isOn(id + 2)) registry.toggleAirConditioner(id + 2);
+        }
+    }
+
+    @Override
+    public int updateSweep() {
+        int size = registry.size();
+        for (int id = 0; id < size; id++) {
+            registry.turnOff(id);
+        }
+        return size;
+    }
+
+    private int next(int index) {
+        return index + 1 == count ? 0 : index + 1;
+    }
+}
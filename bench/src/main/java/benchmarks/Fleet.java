@@ -0,0 +1,34 @@
+package benchmarks;
+
+//Fleet - the hot paths of one fleet, each call works on the next device of its type so a run walks the whole fleet
+//JMH only accepts benchmarks in a named package and a named package cannot import the app's default package,
+//so the implementation (HotPathFleet, next to the app classes) is loaded by name
+
+public interface Fleet {
+    //Light.toggle, returns the new power state
+    boolean toggleLight();
+
+    //Fan.setSpeed to the next speed, returns it
+    int setFanSpeed();
+
+    //AirConditioner.adjustTemperature one step, returns the new current temperature
+    int adjustTemperature();
+
+    //getStatus of the next light, fan and AC
+    String lightStatus();
+
+    String fanStatus();
+
+    String airConditionerStatus();
+
+    //switch every device on, the state the update sweep starts from
+    void switchAllOn();
+
+    //the Dashboard system update sweep over the whole fleet, returns the number of devices
+    int updateSweep();
+
+    //fleet with count lights, fans and ACs laid out like the dashboard
+    static Fleet create(int count) throws ReflectiveOperationException {
+        return (Fleet) Class.forName("HotPathFleet").getConstructor(int.class).newInstance(count);
+    }
+}
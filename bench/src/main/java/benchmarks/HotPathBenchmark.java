@@ -0,0 +1,97 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Hot Path Benchmark - JMH throughput of the appliance hot paths at 1, 1k and 1M devices of each type, headless
+//run with the gc profiler for the allocation rate next to the throughput:
+//mvn -Pbench package && java -jar bench/target/benchmarks.jar -prof gc
+//the device operations and status formatters are per device, the update sweep is per sweep over the whole fleet
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class HotPathBenchmark {
+
+    //one fleet per fork and size
+    @State(Scope.Thread)
+    public static class Devices {
+        @Param({"1", "1000", "1000000"})
+        public int devices;
+
+        public Fleet fleet;
+
+        @Setup(Level.Trial)
+        public void createFleet() throws ReflectiveOperationException {
+            fleet = Fleet.create(devices);
+        }
+    }
+
+    //a fleet switched back on before every sweep, the restore is not measured
+    @State(Scope.Thread)
+    public static class SwitchedOn {
+        @Param({"1", "1000", "1000000"})
+        public int devices;
+
+        public Fleet fleet;
+
+        @Setup(Level.Trial)
+        public void createFleet() throws ReflectiveOperationException {
+            fleet = Fleet.create(devices);
+        }
+
+        @Setup(Level.Invocation)
+        public void switchOn() {
+            fleet.switchAllOn();
+        }
+    }
+
+    @Benchmark
+    public boolean lightToggle(Devices state) {
+        return state.fleet.toggleLight();
+    }
+
+    @Benchmark
+    public int fanSetSpeed(Devices state) {
+        return state.fleet.setFanSpeed();
+    }
+
+    @Benchmark
+    public int airConditionerAdjustTemperature(Devices state) {
+        return state.fleet.adjustTemperature();
+    }
+
+    @Benchmark
+    public String lightGetStatus(Devices state) {
+        return state.fleet.lightStatus();
+    }
+
+    @Benchmark
+    public String fanGetStatus(Devices state) {
+        return state.fleet.fanStatus();
+    }
+
+    @Benchmark
+    public String airConditionerGetStatus(Devices state) {
+        return state.fleet.airConditionerStatus();
+    }
+
+    @Benchmark
+    public int dashboardUpdateSweep(SwitchedOn state) {
+        return state.fleet.updateSweep();
+    }
+}
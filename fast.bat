@@ -0,0 +1,24 @@
+@echo off
+echo Smart Home Control System (fast start)
+
+cd src
+rem build the jar and its class-data archive once, delete dashboard.jar after changing the code to rebuild both
+if not exist dashboard.jar (
+    echo Compiling Java files...
+    javac -encoding UTF-8 *.java
+    if errorlevel 1 (
+        echo Compilation failed! Please check for errors.
+        cd ..
+        pause
+        exit /b 1
+    )
+    jar cfe dashboard.jar Dashboard *.class
+    echo Recording the class-data archive...
+    java -XX:ArchiveClassesAtExit=dashboard.jsa -Dfast.start=true -Dstartup.exit=true -jar dashboard.jar > nul
+)
+
+echo Starting Smart Home Dashboard...
+java -XX:SharedArchiveFile=dashboard.jsa -Dfast.start=true -jar dashboard.jar
+
+cd ..
+pause
@@ -0,0 +1,14 @@
+@echo off
+echo Smart Home Control System JMH Benchmarks
+echo Building benchmarks.jar...
+
+call mvn -B -q -Pbench package
+
+if %errorlevel% equ 0 (
+    echo Build successful!
+    java -jar bench/target/benchmarks.jar -prof gc %*
+) else (
+    echo Build failed! Use bench.bat when Maven Central cannot be reached.
+)
+
+pause
@@ -0,0 +1,19 @@
+@echo off
+echo Smart Home Control System - load test (headless, fails if a gate is missed)
+echo Compiling Java files...
+
+cd src
+javac -encoding UTF-8 *.java
+
+if %errorlevel% equ 0 (
+    java -Dharness.maxP99Millis=50 -Dharness.minThroughput=95000 LoadHarness storm 30000 100000 10 4
+    if exist journal (
+        java LoadHarness record journal trace.txt
+        java -Dharness.maxP99Millis=50 LoadHarness replay trace.txt 10
+    )
+) else (
+    echo Compilation failed! Please check for errors.
+)
+
+cd ..
+pause
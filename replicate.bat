@@ -0,0 +1,20 @@
+@echo off
+echo Smart Home Control System - replicated controllers (three nodes on this machine, then a command storm on the leader)
+echo Compiling Java files...
+
+cd src
+javac -encoding UTF-8 *.java
+
+if %errorlevel% equ 0 (
+    start "Node 0" java -Dreplication.commandPort=7070 ReplicatedLog 0 7080,7081,7082 30000
+    start "Node 1" java -Dreplication.commandPort=7070 ReplicatedLog 1 7080,7081,7082 30000
+    start "Node 2" java -Dreplication.commandPort=7070 ReplicatedLog 2 7080,7081,7082 30000
+    timeout /t 3 > nul
+    java -Dharness.port=7070 LoadHarness storm 30000 50000 20 2
+    echo Each node prints entries/s and the leader its replication lag every 5 s; close the Node 0 window to watch Node 1 take over
+) else (
+    echo Compilation failed! Please check for errors.
+)
+
+cd ..
+pause
@@ -4,15 +4,16 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.time.Clock;
 
 //Air Conditioner component - controls an AC unit with on/off and automatic temperature control
+//the automatic adjustment itself is done headless by the ClimateController
 
 public class AirConditioner extends JPanel {
-    private boolean isOn;
-    private int targetTemperature;
-    private int currentTemperature;
+    //state lives in the registry, the panel only observes it
+    private final DeviceRegistry registry;
+    private final RenderPipeline pipeline;
+    private final int deviceId;
 
     //ui components
     private JSpinner temperatureSpinner;
@@ -20,21 +21,29 @@ public class AirConditioner extends JPanel {
     private JLabel currentTempLabel;
     private JLabel targetTempLabel;
     private JButton powerButton;
+    private JPanel centerPanel;
+    private HistoryChart historyChart;
 
-    //temperature adjustment timer
-    private Timer temperatureTimer;
+    private static final int MIN_TEMP = DeviceRegistry.MIN_TEMP;
+    private static final int MAX_TEMP = DeviceRegistry.MAX_TEMP;
 
-    private static final int MIN_TEMP = 16;
-    private static final int MAX_TEMP = 30;
-    private static final int DEFAULT_TEMP = 21;
-
-    //constructor
+    //constructor for a standalone AC
     public AirConditioner() {
-        this.isOn = false;
-        this.targetTemperature = DEFAULT_TEMP;
-        this.currentTemperature = DEFAULT_TEMP;
+        this(DeviceRegistry.standalone(DeviceRegistry.TYPE_AC));
+    }
+
+    private AirConditioner(DeviceRegistry registry) {
+        this(registry, new RenderPipeline(registry, null), 0);
+    }
+
+    //constructor for an AC stored in a shared registry
+    public AirConditioner(DeviceRegistry registry, RenderPipeline pipeline, int deviceId) {
+        this.registry = registry;
+        this.pipeline = pipeline;
+        this.deviceId = deviceId;
         initializeUI();
         updateDisplay();
+        pipeline.register(deviceId, this::updateDisplay);
     }
 
     private void initializeUI() {
@@ -44,7 +53,7 @@ public class AirConditioner extends JPanel {
             "Air Conditioner Control",
             0,
             0,
-            new Font("Arial", Font.BOLD, 14)
+            Theme.PANEL_TITLE_FONT
         ));
         setBackground(Color.WHITE);
 
@@ -54,12 +63,12 @@ public class AirConditioner extends JPanel {
 
         //status label
         statusLabel = new JLabel("OFF", SwingConstants.CENTER);
-        statusLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        statusLabel.setFont(Theme.STATUS_FONT);
 
         topPanel.add(statusLabel);
 
         //center panel
-        JPanel centerPanel = new JPanel(new GridBagLayout());
+        centerPanel = new JPanel(new GridBagLayout());
         centerPanel.setBackground(Color.WHITE);
 
         //layout setup
@@ -73,12 +82,14 @@ public class AirConditioner extends JPanel {
 
         //target panel
         gbc.gridx = 1; gbc.gridy = 0;
-        temperatureSpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_TEMP, MIN_TEMP, MAX_TEMP, 1));
+        temperatureSpinner = new JSpinner(new SpinnerNumberModel(registry.getTargetTemperature(deviceId), MIN_TEMP, MAX_TEMP, 1));
         temperatureSpinner.addChangeListener(new ChangeListener() {
             @Override
             public void stateChanged(ChangeEvent e) {
                 int newTemp = (Integer) temperatureSpinner.getValue();
-                setTargetTemperature(newTemp);
+                if (newTemp != registry.getTargetTemperature(deviceId)) {
+                    setTargetTemperature(newTemp);
+                }
             }
         });
         JPanel tempPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
@@ -92,8 +103,8 @@ public class AirConditioner extends JPanel {
         gbc.gridx = 0; gbc.gridy = 1;
         centerPanel.add(new JLabel("Current:"), gbc);
         gbc.gridx = 1; gbc.gridy = 1;
-        currentTempLabel = new JLabel(currentTemperature + "°C");
-        currentTempLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        currentTempLabel = new JLabel(Theme.temperatureText(registry.getCurrentTemperature(deviceId)));
+        currentTempLabel.setFont(Theme.STATUS_FONT);
 
         centerPanel.add(currentTempLabel, gbc);
 
@@ -101,8 +112,8 @@ public class AirConditioner extends JPanel {
         gbc.gridx = 0; gbc.gridy = 2;
         centerPanel.add(new JLabel("Set to:"), gbc);
         gbc.gridx = 1; gbc.gridy = 2;
-        targetTempLabel = new JLabel(targetTemperature + "°C");
-        targetTempLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        targetTempLabel = new JLabel(Theme.temperatureText(registry.getTargetTemperature(deviceId)));
+        targetTempLabel.setFont(Theme.VALUE_FONT);
 
         centerPanel.add(targetTempLabel, gbc);
 
@@ -112,7 +123,7 @@ public class AirConditioner extends JPanel {
 
         //power button
         powerButton = new JButton("Turn On");
-        powerButton.setFont(new Font("Arial", Font.PLAIN, 12));
+        powerButton.setFont(Theme.BUTTON_FONT);
         powerButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -130,117 +141,88 @@ public class AirConditioner extends JPanel {
 
     //set target temperature
     public void setTargetTemperature(int temperature) {
-        if (temperature >= MIN_TEMP && temperature <= MAX_TEMP) {
-            this.targetTemperature = temperature;
-            temperatureSpinner.setValue(temperature);
-            updateDisplay();
-            System.out.println("AC target temperature set to: " + temperature + "°C");
-        }
+        registry.setTargetTemperature(deviceId, temperature);
     }
 
     //toggle power state
     public void togglePower() {
-        isOn = !isOn;
-        if (isOn) {
-            startTemperatureAdjustment();
-            System.out.println("AC turned ON");
-        }
-        else {
-            stopTemperatureAdjustment();
-            System.out.println("AC turned OFF");
-        }
-        updateDisplay();
+        registry.toggleAirConditioner(deviceId);
     }
 
     //turn off AC for system updates
     public void turnOff() {
-        if (isOn) {
-            isOn = false;
-            stopTemperatureAdjustment();
-            updateDisplay();
-            System.out.println("AC turned OFF (system update)");
-        }
-    }
-
-    //start the automatic temperature adjustment timer
-    private void startTemperatureAdjustment() {
-        if (temperatureTimer != null) {
-            temperatureTimer.cancel();
-        }
-        temperatureTimer = new Timer(true);
-        temperatureTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    adjustTemperature();
-                });
-            }
-        }, 2000, 2000); //adjust every 2 seconds
-    }
-
-    //stop the automatic temperature adjustment timer
-    private void stopTemperatureAdjustment() {
-        if (temperatureTimer != null) {
-            temperatureTimer.cancel();
-            temperatureTimer = null;
-        }
-    }
-
-    //adjust current temperature toward target by 1°C
-    private void adjustTemperature() {
-        if (!isOn) return;
-        if (currentTemperature < targetTemperature) {
-            currentTemperature++;
-            System.out.println("AC heating: " + currentTemperature + "°C");
-        }
-        else if (currentTemperature > targetTemperature) {
-            currentTemperature--;
-            System.out.println("AC cooling: " + currentTemperature + "°C");
-        }
-        updateDisplay();
+        registry.turnOff(deviceId);
     }
 
     //check if AC is currently on
     public boolean isOn() {
-        return isOn;
+        return registry.isOn(deviceId);
     }
 
     //getter for target temperature
     public int getTargetTemperature() {
-        return targetTemperature;
+        return registry.getTargetTemperature(deviceId);
     }
 
     //getter for current temperature
     public int getCurrentTemperature() {
-        return currentTemperature;
+        return registry.getCurrentTemperature(deviceId);
+    }
+
+    //getter for the id of the AC in the registry
+    public int getDeviceId() {
+        return deviceId;
     }
 
     //update display based on current state
     private void updateDisplay() {
+        boolean isOn = registry.isOn(deviceId);
+        int currentTemperature = registry.getCurrentTemperature(deviceId);
+        int targetTemperature = registry.getTargetTemperature(deviceId);
+
         //update status label
         statusLabel.setText(isOn ? "ON" : "OFF");
-        statusLabel.setForeground(isOn ? Color.decode("#00A63E") : Color.decode("#E7000B"));
+        statusLabel.setForeground(isOn ? Theme.ON_TEXT : Theme.OFF_TEXT);
         
         //update temperature labels
-        currentTempLabel.setText(currentTemperature + "°C");
-        targetTempLabel.setText(targetTemperature + "°C");
+        currentTempLabel.setText(Theme.temperatureText(currentTemperature));
+        targetTempLabel.setText(Theme.temperatureText(targetTemperature));
+
+        //keep the spinner in sync with changes made outside the panel
+        if ((Integer) temperatureSpinner.getValue() != targetTemperature) {
+            temperatureSpinner.setValue(targetTemperature);
+        }
 
         //update power button
         powerButton.setText(isOn ? "Turn Off" : "Turn On");
 
         //enable/disable temperature control based on power state
         temperatureSpinner.setEnabled(isOn);
+    }
 
-        repaint();
+    //show the recorded temperature history below the temperature labels, returns the chart so it can be repainted
+    public HistoryChart showHistory(TimeSeriesStore store, Clock clock) {
+        if (historyChart == null) {
+            historyChart = new HistoryChart(store, clock, deviceId, HistoryChart.DEFAULT_WINDOW_SECONDS);
+            GridBagConstraints gbc = new GridBagConstraints();
+            gbc.insets = new Insets(5, 5, 5, 5);
+            gbc.gridx = 0; gbc.gridy = 3;
+            gbc.gridwidth = 2;
+            gbc.fill = GridBagConstraints.BOTH;
+            gbc.weightx = 1; gbc.weighty = 1;
+            centerPanel.add(historyChart, gbc);
+            centerPanel.revalidate();
+        }
+        return historyChart;
     }
 
     //getter status as a string for logging/debugging
     public String getStatus() {
-        return String.format("AC: %s | Current: %d°C | Target: %d°C", isOn ? "AUTO" : "OFF", currentTemperature, targetTemperature);
+        return registry.getStatus(deviceId);
     }
 
     //clean up resources when component is destroyed
     public void cleanup() {
-        stopTemperatureAdjustment();
+        pipeline.unregister(deviceId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,284 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Bulk Operations - fleet-wide changes such as "turn off all fans on floor 3" or "set all ACs in zone B to 23°C"
+//the device range is split into chunks on a fork-join pool that only scan, each marking the devices it would change,
+//so the search scales with the cores while the registry keeps its single writer: the writer thread then applies the
+//marked devices (checking each again) and tells listeners and the journal about the whole operation once
+//devices that change while the chunks scan are noted and checked again by the writer too, so once it is done no
+//matching device in the range is left unchanged and listeners (and replicas replaying the operation) see exactly that
+
+public class BulkOperations {
+    public static final int CHUNK_SIZE = 16384; //devices per fork-join leaf
+    public static final int PROGRESS_STEPS = 10; //progress is reported at most this many times per operation
+    private static final int MAX_TRACKED_CHANGES = 65536; //changes during a scan noted one by one, past this the writer re-checks the range
+
+    //told how many of the selected range's devices have been processed, called on the writer thread
+    public interface ProgressListener {
+        void progress(int done, int total);
+    }
+
+    private final DeviceRegistry registry;
+    private final Executor writer;
+    private final ForkJoinPool pool;
+
+    //metrics
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong devicesChanged = new AtomicLong();
+
+    //constructor using the common fork-join pool, the writer executor runs on the registry's writer thread
+    public BulkOperations(DeviceRegistry registry, Executor writer) {
+        this(registry, writer, ForkJoinPool.commonPool());
+    }
+
+    //constructor with an explicit pool
+    public BulkOperations(DeviceRegistry registry, Executor writer, ForkJoinPool pool) {
+        this.registry = registry;
+        this.writer = writer;
+        this.pool = pool;
+    }
+
+    //turn off every device of a type (ANY_TYPE for all) in a group (ALL_GROUPS for all)
+    public CompletableFuture<Result> turnOff(int type, int group, ProgressListener listener) {
+        return submit(DeviceRegistry.BULK_TURN_OFF, type, group, 0, listener);
+    }
+
+    //set the speed of every fan in a group
+    public CompletableFuture<Result> setFanSpeed(int group, int speed, ProgressListener listener) {
+        if (speed < 0 || speed > DeviceRegistry.MAX_SPEED) {
+            throw new IllegalArgumentException("Fan speed out of range: " + speed);
+        }
+        return submit(DeviceRegistry.BULK_SET_SPEED, DeviceRegistry.TYPE_FAN, group, speed, listener);
+    }
+
+    //set the target temperature of every AC in a group
+    public CompletableFuture<Result> setTargetTemperature(int group, int temperature, ProgressListener listener) {
+        if (temperature < DeviceRegistry.MIN_TEMP || temperature > DeviceRegistry.MAX_TEMP) {
+            throw new IllegalArgumentException("Target temperature out of range: " + temperature);
+        }
+        return submit(DeviceRegistry.BULK_SET_TARGET, DeviceRegistry.TYPE_AC, group, temperature, listener);
+    }
+
+    //start an operation over every device, the future completes on the writer thread after listeners were told
+    //call on the writer thread, so every change after this call is either seen by the scan or noted for the writer
+    private CompletableFuture<Result> submit(int operation, int type, int group, int value, ProgressListener listener) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        Operation root = new Operation(operation, type, group, value, registry.size(), listener, future);
+        registry.addListener(root);
+        pool.execute(root);
+        return future;
+    }
+
+    //getter for the number of finished operations
+    public long getOperationCount() {
+        return operations.get();
+    }
+
+    //getter for the number of devices changed by all operations
+    public long getDevicesChanged() {
+        return devicesChanged.get();
+    }
+
+    //getter for the parallelism of the pool
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    //root task: splits the range, waits for the chunks and posts the single completion event
+    //as a listener it notes the devices the writer changes while the chunks scan, it is only called on the writer
+    private class Operation extends RecursiveAction implements DeviceListener {
+        private final int operation;
+        private final int type;
+        private final int group;
+        private final int value;
+        private final int size;
+        private final ProgressListener listener;
+        private final CompletableFuture<Result> future;
+        private final ConcurrentLinkedQueue<Selection> selections = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger reportedStep = new AtomicInteger();
+        private final long startNanos = System.nanoTime();
+
+        //changes since the operation started, touched on the writer thread only
+        private int[] changedIds = new int[16];
+        private int changedCount;
+        private boolean recheckAll;
+
+        Operation(int operation, int type, int group, int value, int size, ProgressListener listener, CompletableFuture<Result> future) {
+            this.operation = operation;
+            this.type = type;
+            this.group = group;
+            this.value = value;
+            this.size = size;
+            this.listener = listener;
+            this.future = future;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                new Chunk(this, 0, size).invoke();
+            } catch (RuntimeException e) {
+                writer.execute(() -> {
+                    registry.removeListener(this);
+                    future.completeExceptionally(e);
+                });
+                return;
+            }
+            writer.execute(() -> {
+                registry.removeListener(this);
+                int changed = 0;
+                if (recheckAll) {
+                    changed = registry.applyBulk(operation, type, group, value, 0, size);
+                }
+                else {
+                    for (Selection selection : selections) {
+                        changed += registry.applySelected(operation, value, selection.fromId, selection.bits);
+                    }
+                    //devices changed after the scan may have been missed by it
+                    for (int i = 0; i < changedCount; i++) {
+                        int id = changedIds[i];
+                        changed += registry.applyBulk(operation, type, group, value, id, id + 1);
+                    }
+                }
+                Result result = new Result(operation, type, group, value, size, changed, System.nanoTime() - startNanos);
+                registry.bulkApplied(operation, type, group, value, 0, size, changed);
+                operations.incrementAndGet();
+                devicesChanged.addAndGet(result.getChanged());
+                future.complete(result);
+            });
+        }
+
+        //note a device changed by the writer while the operation runs
+        @Override
+        public void deviceChanged(int deviceId, int field) {
+            if (recheckAll || deviceId >= size) return;
+            if (changedCount == MAX_TRACKED_CHANGES) {
+                recheckAll = true;
+                return;
+            }
+            if (changedCount == changedIds.length) {
+                changedIds = Arrays.copyOf(changedIds, changedCount * 2);
+            }
+            changedIds[changedCount++] = deviceId;
+        }
+
+        //a whole range changed (another bulk operation or a restore), the writer checks every device again
+        @Override
+        public void devicesChanged(int fromId, int toId) {
+            recheckAll = true;
+        }
+
+        //keep a scanned chunk's selection for the writer and post progress when it crosses the next step
+        void chunkDone(int devices, Selection selection) {
+            if (selection != null) {
+                selections.add(selection);
+            }
+            int done = processed.addAndGet(devices);
+            if (listener == null || done == size) return;
+            int step = (int) ((long) done * PROGRESS_STEPS / size);
+            int reported = reportedStep.get();
+            if (step > reported && reportedStep.compareAndSet(reported, step)) {
+                writer.execute(() -> listener.progress(done, size));
+            }
+        }
+    }
+
+    //leaf work: halves the range until it fits a chunk, then applies the operation to it
+    private class Chunk extends RecursiveAction {
+        private final Operation root;
+        private final int fromId;
+        private final int toId;
+
+        Chunk(Operation root, int fromId, int toId) {
+            this.root = root;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected void compute() {
+            if (toId - fromId <= CHUNK_SIZE) {
+                long[] bits = new long[(toId - fromId + 63) >>> 6];
+                int selected = registry.selectBulk(root.operation, root.type, root.group, root.value, fromId, toId, bits);
+                root.chunkDone(toId - fromId, selected > 0 ? new Selection(fromId, bits) : null);
+                return;
+            }
+            int middle = (fromId + toId) >>> 1;
+            invokeAll(new Chunk(root, fromId, middle), new Chunk(root, middle, toId));
+        }
+    }
+
+    //the devices of one chunk that the operation would change, bit i is device fromId + i
+    private static final class Selection {
+        private final int fromId;
+        private final long[] bits;
+
+        private Selection(int fromId, long[] bits) {
+            this.fromId = fromId;
+            this.bits = bits;
+        }
+    }
+
+    //outcome of one bulk operation
+    public static class Result {
+        private final int operation;
+        private final int type;
+        private final int group;
+        private final int value;
+        private final int scanned;
+        private final int changed;
+        private final long elapsedNanos;
+
+        Result(int operation, int type, int group, int value, int scanned, int changed, long elapsedNanos) {
+            this.operation = operation;
+            this.type = type;
+            this.group = group;
+            this.value = value;
+            this.scanned = scanned;
+            this.changed = changed;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        //getter for the operation (DeviceRegistry.BULK_*)
+        public int getOperation() {
+            return operation;
+        }
+
+        //getter for the selected type, ANY_TYPE for all
+        public int getType() {
+            return type;
+        }
+
+        //getter for the selected group, ALL_GROUPS for all
+        public int getGroup() {
+            return group;
+        }
+
+        //getter for the speed or temperature that was set
+        public int getValue() {
+            return value;
+        }
+
+        //getter for the number of devices looked at
+        public int getScanned() {
+            return scanned;
+        }
+
+        //getter for the number of devices that actually changed
+        public int getChanged() {
+            return changed;
+        }
+
+        //getter for the time spent in the pool, in nanoseconds
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.Arrays;
+
+//Climate Controller - headless regulation loop that moves every powered-on AC toward its target temperature
+//each AC gets a 2 second fixed-rate entry on the shared scheduler instead of its own timer thread, only while it is
+//on and away from its target, so a settled fleet costs no timer work (this is what lets a simulated year run in seconds)
+
+public class ClimateController implements DeviceListener {
+    public static final long ADJUST_PERIOD_MILLIS = 2000;
+
+    private final DeviceRegistry registry;
+    private final Scheduler scheduler;
+
+    //active regulation timer per device id, null when the AC is off
+    private Scheduler.Timeout[] regulators;
+
+    //constructor, starts regulating ACs that are already on
+    public ClimateController(DeviceRegistry registry, Scheduler scheduler) {
+        this.registry = registry;
+        this.scheduler = scheduler;
+        this.regulators = new Scheduler.Timeout[Math.max(registry.size(), 1)];
+        registry.addListener(this);
+        for (int id = 0; id < registry.size(); id++) {
+            if (registry.getType(id) == DeviceRegistry.TYPE_AC) {
+                reconcile(id);
+            }
+        }
+    }
+
+    //start or stop regulation when an AC is switched on or off, gets a new target or reaches it
+    @Override
+    public void deviceChanged(int deviceId, int field) {
+        if (field == DeviceRegistry.FIELD_SPEED || registry.getType(deviceId) != DeviceRegistry.TYPE_AC) return;
+        reconcile(deviceId);
+    }
+
+    //reconcile regulation with the state of every AC touched by a bulk operation
+    @Override
+    public void devicesChanged(int fromId, int toId) {
+        for (int id = fromId; id < toId; id++) {
+            if (registry.getType(id) == DeviceRegistry.TYPE_AC) {
+                reconcile(id);
+            }
+        }
+    }
+
+    //regulate an AC while it is on and not at its target
+    private void reconcile(int id) {
+        if (registry.isOn(id) && registry.getCurrentTemperature(id) != registry.getTargetTemperature(id)) {
+            startRegulation(id);
+        }
+        else {
+            stopRegulation(id);
+        }
+    }
+
+    //schedule the periodic adjustment for an AC
+    private void startRegulation(int id) {
+        if (id >= regulators.length) {
+            regulators = Arrays.copyOf(regulators, Math.max(id + 1, regulators.length * 2));
+        }
+        if (regulators[id] != null) return;
+        regulators[id] = scheduler.scheduleAtFixedRate(() -> registry.adjustTemperature(id), ADJUST_PERIOD_MILLIS, ADJUST_PERIOD_MILLIS);
+    }
+
+    //cancel the periodic adjustment for an AC
+    private void stopRegulation(int id) {
+        if (id < regulators.length && regulators[id] != null) {
+            regulators[id].cancel();
+            regulators[id] = null;
+        }
+    }
+
+    //check if an AC is currently being regulated
+    public boolean isRegulating(int id) {
+        return id < regulators.length && regulators[id] != null;
+    }
+
+    //stop regulating every AC and detach from the registry
+    public void shutdown() {
+        registry.removeListener(this);
+        for (int id = 0; id < regulators.length; id++) {
+            stopRegulation(id);
+        }
+    }
+}
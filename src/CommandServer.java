@@ -0,0 +1,579 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Command Server - non-blocking localhost endpoint for controlling appliances from scripts and automation
+//one selector thread parses pipelined text commands into a ring buffer, the registry's single writer applies them in batches
+//protocol, one command per line:
+//  L <id>          toggle a light          F <id> <speed>  set a fan speed (0-2)
+//  P <id>          toggle an AC            T <id> <temp>   set an AC target temperature
+//  O <id>          turn a device off       Q               reply "OK <applied>" once everything sent before it is applied
+//with a ShardedFleet behind it, the writer only routes each command to the shard that owns the device (ids are fleet-wide)
+//and a Q is answered once every shard has applied what came before it
+//malformed lines and arguments outside the range of their op are answered with "ERR <line number>"
+
+public class CommandServer {
+    public static final int DEFAULT_PORT = 7070;
+
+    //command codes, also used by the load harness
+    public static final int OP_TOGGLE_LIGHT = 'L';
+    public static final int OP_SET_SPEED = 'F';
+    public static final int OP_TOGGLE_AC = 'P';
+    public static final int OP_SET_TARGET = 'T';
+    public static final int OP_TURN_OFF = 'O';
+    public static final int OP_SYNC = 'Q';
+    public static final int OP_ADJUST = 'A'; //one regulation step of an AC, forwarded by the registry, not part of the text protocol
+
+    private static final int RING_SIZE = 1 << 16;
+    private static final int MAX_BATCH = 8192;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_LINE_BYTES = 64;
+    private static final int MAX_PENDING_OUTPUT_BYTES = 64 * 1024; //stop reading a client that does not take its replies
+
+    private final DeviceRegistry registry;
+    private final ShardedFleet fleet;
+    private final Executor writer;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    //single-producer (selector) single-consumer (writer) ring of encoded commands and their receipt times
+    private final long[] commands = new long[RING_SIZE];
+    private final long[] receivedAt = new long[RING_SIZE];
+    private final Connection[] syncTargets = new Connection[RING_SIZE];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<Connection> pendingReplies = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+    private boolean backlogPending;
+
+    //metrics
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile long batches;
+    private volatile long connectionsAccepted;
+
+    //constructor, commands are applied on the writer (SwingUtilities::invokeLater in the desktop app)
+    public CommandServer(DeviceRegistry registry, Executor writer) {
+        this.registry = registry;
+        this.fleet = null;
+        this.writer = writer;
+    }
+
+    //constructor for a sharded fleet, the router is a single thread that hands commands to the shards
+    //latency then runs from receipt to hand-off
+    public CommandServer(ShardedFleet fleet, Executor router) {
+        this.registry = null;
+        this.fleet = fleet;
+        this.writer = router;
+    }
+
+    //bind to the loopback interface and start the selector thread, port 0 picks a free port
+    public void start(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::runSelector, "command-server");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    //getter for the port the server listens on
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    //stop accepting and close every connection
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        try {
+            if (selectorThread != null) {
+                selectorThread.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //wait until the server has stopped
+    public void join() throws InterruptedException {
+        selectorThread.join();
+    }
+
+    //selector loop: accept, read, parse, send replies
+    private void runSelector() {
+        try {
+            while (running) {
+                //while commands wait for ring space, poll instead of blocking (backlogged connections are not read,
+                //so nothing else would wake the selector once the writer frees the ring)
+                selector.select(backlogPending ? 1 : 0);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    }
+                }
+                retryBacklog();
+                sendReplies();
+            }
+        } catch (IOException e) {
+            System.err.println("Command server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                //already stopping
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connectionsAccepted++;
+    }
+
+    //read what is available and parse complete lines
+    private void read(Connection connection) {
+        int count;
+        try {
+            count = connection.channel.read(connection.input);
+        } catch (IOException e) {
+            count = -1;
+        }
+        if (count < 0) {
+            closeQuietly(connection.key);
+            return;
+        }
+        parse(connection);
+    }
+
+    //parse complete lines into the ring, stops early when the ring is full and keeps the rest for later
+    private void parse(Connection connection) {
+        ByteBuffer input = connection.input;
+        input.flip();
+        while (input.hasRemaining()) {
+            int lineStart = input.position();
+            int lineEnd = -1;
+            for (int i = lineStart; i < input.limit(); i++) {
+                if (input.get(i) == '\n') {
+                    lineEnd = i;
+                    break;
+                }
+            }
+            if (lineEnd < 0) {
+                if (input.remaining() > MAX_LINE_BYTES) {
+                    //garbage without newlines, drop it
+                    input.position(input.limit());
+                    reject(connection);
+                }
+                break;
+            }
+            if (!parseLine(connection, input, lineStart, lineEnd)) {
+                connection.backlog = true;
+                backlogPending = true;
+                break;
+            }
+            input.position(lineEnd + 1);
+        }
+        connection.backlog = connection.backlog && input.hasRemaining();
+        input.compact();
+        updateInterest(connection);
+    }
+
+    //parse one line without allocating, returns false if the ring is full
+    private boolean parseLine(Connection connection, ByteBuffer input, int start, int end) {
+        connection.lineNumber++;
+        int position = start;
+        while (position < end && input.get(position) == ' ') position++;
+        if (position >= end || (end - position == 1 && input.get(position) == '\r')) {
+            return true; //blank line
+        }
+        int op = input.get(position++);
+        int id = 0;
+        int argument = 0;
+        int fields = 0;
+        boolean valid = true;
+        while (position < end && valid) {
+            byte c = input.get(position);
+            if (c == ' ' || c == '\r') {
+                position++;
+                continue;
+            }
+            if (c < '0' || c > '9' || fields == 2) {
+                valid = false;
+                break;
+            }
+            int value = 0;
+            while (position < end && input.get(position) >= '0' && input.get(position) <= '9' && value < 100_000_000) {
+                value = value * 10 + (input.get(position++) - '0');
+            }
+            if (position < end && input.get(position) >= '0' && input.get(position) <= '9') {
+                valid = false; //number too long
+                break;
+            }
+            if (fields == 0) id = value; else argument = value;
+            fields++;
+        }
+        int expected = op == OP_SET_SPEED || op == OP_SET_TARGET ? 2 : op == OP_SYNC ? 0 : 1;
+        boolean knownOp = op == OP_TOGGLE_LIGHT || op == OP_SET_SPEED || op == OP_TOGGLE_AC
+            || op == OP_SET_TARGET || op == OP_TURN_OFF || op == OP_SYNC;
+        if (!valid || !knownOp || fields != expected || !inDomain(op, argument)) {
+            reject(connection);
+            return true;
+        }
+        if (!offer(op, id, argument, op == OP_SYNC ? connection : null)) {
+            connection.lineNumber--; //parsed again once the ring has room
+            return false;
+        }
+        return true;
+    }
+
+    //check an argument against its op's range, anything outside would be truncated by encode or refused by the registry
+    private static boolean inDomain(int op, int argument) {
+        switch (op) {
+            case OP_SET_SPEED:
+                return argument >= 0 && argument <= DeviceRegistry.MAX_SPEED;
+            case OP_SET_TARGET:
+                return argument >= DeviceRegistry.MIN_TEMP && argument <= DeviceRegistry.MAX_TEMP;
+            default:
+                return argument == 0;
+        }
+    }
+
+    //put a command in the ring, returns false if it is full
+    private boolean offer(int op, int id, int argument, Connection syncTarget) {
+        long sequence = head.get();
+        if (sequence - tail.get() >= RING_SIZE) return false;
+        int slot = (int) (sequence & (RING_SIZE - 1));
+        commands[slot] = encode(op, id, argument);
+        receivedAt[slot] = System.nanoTime();
+        syncTargets[slot] = syncTarget;
+        head.lazySet(sequence + 1);
+        scheduleDrain();
+        return true;
+    }
+
+    //pack a command into a long: op in the top byte, argument in the next two, device id in the low four
+    public static long encode(int op, int id, int argument) {
+        if (argument < 0 || argument > 0xFFFF) {
+            throw new IllegalArgumentException("Argument out of range: " + argument);
+        }
+        return ((long) op << 56) | ((long) (argument & 0xFFFF) << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    //make sure one drain task is queued on the writer
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    //apply a batch of commands, runs on the writer
+    private void drain() {
+        drainScheduled.set(false);
+        long sequence = tail.get();
+        long end = Math.min(head.get(), sequence + MAX_BATCH);
+        while (sequence < end) {
+            int slot = (int) (sequence & (RING_SIZE - 1));
+            long command = commands[slot];
+            Connection syncTarget = syncTargets[slot];
+            syncTargets[slot] = null;
+            if (syncTarget != null) {
+                if (fleet != null) {
+                    fleet.sync(() -> writer.execute(() -> completeSync(syncTarget)));
+                }
+                else {
+                    completeSync(syncTarget);
+                }
+            }
+            else if (fleet != null) {
+                route(command);
+            }
+            else if (apply(command)) {
+                applied.incrementAndGet();
+            }
+            else {
+                rejected.incrementAndGet();
+            }
+            latency.record(System.nanoTime() - receivedAt[slot]);
+            sequence++;
+        }
+        tail.lazySet(sequence);
+        batches++;
+        if (sequence < head.get()) {
+            scheduleDrain();
+        }
+        if (hasBacklog()) {
+            selector.wakeup();
+        }
+    }
+
+    //count a sync as done and have the selector reply, on the writer so a connection's syncs complete in order
+    private void completeSync(Connection syncTarget) {
+        syncTarget.syncsCompleted++;
+        pendingReplies.add(syncTarget);
+        selector.wakeup();
+    }
+
+    //hand a command to the shard that owns its device, waiting for room in that shard's ring
+    //the shard counts it as applied or rejected, only unknown devices are rejected here
+    private void route(long command) {
+        int id = (int) command;
+        if (id < 0 || id >= fleet.size()) {
+            rejected.incrementAndGet();
+            return;
+        }
+        int op = (int) (command >>> 56);
+        int argument = (int) ((command >>> 32) & 0xFFFF);
+        while (!fleet.tell(id, op, argument)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    //apply one decoded command to the registry, returns false for unknown devices or wrong device types
+    public boolean apply(long command) {
+        return apply(registry, command);
+    }
+
+    //apply one encoded command to a registry, on its writer thread (also used by the shards of a ShardedFleet)
+    public static boolean apply(DeviceRegistry registry, long command) {
+        int op = (int) (command >>> 56);
+        int argument = (int) ((command >>> 32) & 0xFFFF);
+        int id = (int) command;
+        if (id < 0 || id >= registry.size()) return false;
+        try {
+            switch (op) {
+                case OP_TOGGLE_LIGHT:
+                    registry.toggleLight(id);
+                    return true;
+                case OP_SET_SPEED:
+                    registry.setFanSpeed(id, argument);
+                    return true;
+                case OP_TOGGLE_AC:
+                    registry.toggleAirConditioner(id);
+                    return true;
+                case OP_SET_TARGET:
+                    registry.setTargetTemperature(id, argument);
+                    return true;
+                case OP_TURN_OFF:
+                    registry.turnOff(id);
+                    return true;
+                case OP_ADJUST:
+                    registry.adjustTemperature(id);
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean hasBacklog() {
+        return head.get() - tail.get() >= RING_SIZE;
+    }
+
+    //parse connections that stopped because the ring was full
+    private void retryBacklog() {
+        if (!backlogPending || hasBacklog()) return;
+        backlogPending = false;
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection && ((Connection) attachment).backlog && key.isValid()) {
+                Connection connection = (Connection) attachment;
+                connection.backlog = false;
+                parse(connection);
+            }
+        }
+    }
+
+    //write "OK <applied>" for completed syncs
+    private void sendReplies() {
+        Connection connection;
+        while ((connection = pendingReplies.poll()) != null) {
+            if (!connection.key.isValid()) continue;
+            while (connection.syncsReplied < connection.syncsCompleted) {
+                connection.syncsReplied++;
+                queueReply(connection, "OK " + getAppliedCount() + "\n");
+            }
+            flush(connection);
+        }
+    }
+
+    private void reject(Connection connection) {
+        rejected.incrementAndGet();
+        queueReply(connection, "ERR " + connection.lineNumber + "\n");
+    }
+
+    //buffer a reply, never dropped: the buffer grows, and the connection is not read while too much is pending
+    private void queueReply(Connection connection, String reply) {
+        byte[] bytes = reply.getBytes(StandardCharsets.US_ASCII);
+        if (connection.output.remaining() < bytes.length) {
+            flush(connection);
+        }
+        ByteBuffer output = connection.output;
+        if (output.remaining() < bytes.length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + bytes.length));
+            output.flip();
+            grown.put(output);
+            connection.output = grown;
+        }
+        connection.output.put(bytes);
+    }
+
+    //write buffered replies, waits for OP_WRITE if the socket is full
+    private void flush(Connection connection) {
+        ByteBuffer output = connection.output;
+        output.flip();
+        try {
+            connection.channel.write(output);
+        } catch (IOException e) {
+            closeQuietly(connection.key);
+            return;
+        }
+        output.compact();
+        updateInterest(connection);
+    }
+
+    //read while the connection is neither waiting for ring space (its input would only fill up and wake the selector
+    //again and again) nor holding too many unsent replies, and wait for OP_WRITE while replies are pending
+    private void updateInterest(Connection connection) {
+        if (!connection.key.isValid()) return;
+        int pendingOutput = connection.output.position();
+        int ops = 0;
+        if (!connection.backlog && pendingOutput < MAX_PENDING_OUTPUT_BYTES) ops |= SelectionKey.OP_READ;
+        if (pendingOutput > 0) ops |= SelectionKey.OP_WRITE;
+        connection.key.interestOps(ops);
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            //closing anyway
+        }
+    }
+
+    //getter for receipt-to-applied latency
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    //getter for the number of commands applied
+    public long getAppliedCount() {
+        return fleet != null ? fleet.getAppliedCount() : applied.get();
+    }
+
+    //getter for the number of malformed or inapplicable commands
+    public long getRejectedCount() {
+        return fleet != null ? rejected.get() + fleet.getRejectedCount() : rejected.get();
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        return "Commands: " + getAppliedCount() + " applied | " + getRejectedCount() + " rejected | " + batches + " batches | "
+            + connectionsAccepted + " connections | latency " + latency.getSummary();
+    }
+
+    //state of one client connection, touched by the selector thread only (sync counters also by the writer)
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        private ByteBuffer output = ByteBuffer.allocate(4096); //replies not yet written, grows when a client falls behind
+        private SelectionKey key;
+        private long lineNumber;
+        private boolean backlog;
+        private volatile long syncsCompleted;
+        private long syncsReplied;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    //run a headless controller with a command endpoint: java CommandServer [port] [devices] [shards]
+    //with shards the devices are spread over a ShardedFleet by id hash, one worker per shard
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int devices = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int shards = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        if (shards > 0) {
+            runSharded(port, devices, shards);
+            return;
+        }
+        DeviceRegistry registry = new DeviceRegistry(devices);
+        int group = registry.defineGroup("Default");
+        for (int i = 0; i < devices; i++) {
+            registry.addDevice((byte) (i % 3), group);
+        }
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "registry-writer"));
+        TimingWheel scheduler = new TimingWheel(10, writerThread);
+        scheduler.start();
+        new ClimateController(registry, scheduler);
+        CommandServer server = new CommandServer(registry, writerThread);
+        server.start(port);
+        System.out.println("Command server listening on 127.0.0.1:" + server.getPort() + " with " + devices + " devices");
+        scheduler.scheduleAtFixedRate(() -> System.out.println(server.getMetrics()), 5000, 5000);
+        server.join();
+    }
+
+    //headless controller over a ShardedFleet, see main
+    private static void runSharded(int port, int devices, int shards) throws IOException, InterruptedException {
+        ShardedFleet fleet = new ShardedFleet(shards, ShardedFleet.PARTITION_BY_HASH);
+        int group = fleet.defineGroup("Default");
+        for (int i = 0; i < devices; i++) {
+            fleet.addDevice((byte) (i % 3), group);
+        }
+        fleet.start();
+        ExecutorService routerThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "command-router"));
+        CommandServer server = new CommandServer(fleet, routerThread);
+        server.start(port);
+        System.out.println("Command server listening on 127.0.0.1:" + server.getPort() + " with " + devices + " devices on " + shards + " shards");
+        TimingWheel metrics = new TimingWheel(1000, Runnable::run);
+        metrics.start();
+        metrics.scheduleAtFixedRate(() -> System.out.println(server.getMetrics()), 5000, 5000);
+        server.join();
+    }
+}
@@ -0,0 +1,146 @@
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+//Cron Schedule - parsed cron expression ("minute hour day-of-month month day-of-week") that computes the next matching minute
+//supports *, numbers, lists (1,15), ranges (1-5), steps (*/10 or 0-30/5) and the @yearly/@monthly/@weekly/@daily/@hourly shortcuts
+
+public class CronSchedule {
+    //give up after this many years without a match (e.g. "0 0 30 2 *")
+    private static final int MAX_YEARS_AHEAD = 8;
+
+    private final String expression;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    //constructor, throws IllegalArgumentException for malformed expressions
+    public CronSchedule(String expression) {
+        this.expression = expression;
+        String[] fields = expand(expression.trim()).split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression needs 5 fields: " + expression);
+        }
+        minutes = parseField(fields[0], 0, 59);
+        hours = parseField(fields[1], 0, 23);
+        daysOfMonth = parseField(fields[2], 1, 31);
+        months = parseField(fields[3], 1, 12);
+        //0 and 7 are both Sunday
+        long dow = parseField(fields[4], 0, 7);
+        daysOfWeek = (dow & 1L << 7) != 0 ? dow | 1L : dow;
+        anyDayOfMonth = fields[2].equals("*");
+        anyDayOfWeek = fields[4].equals("*");
+    }
+
+    //replace a shortcut with its expression
+    private static String expand(String expression) {
+        switch (expression) {
+            case "@yearly":
+            case "@annually":
+                return "0 0 1 1 *";
+            case "@monthly":
+                return "0 0 1 * *";
+            case "@weekly":
+                return "0 0 * * 0";
+            case "@daily":
+                return "0 0 * * *";
+            case "@hourly":
+                return "0 * * * *";
+            default:
+                return expression;
+        }
+    }
+
+    //parse one field into a bit mask of allowed values
+    private static long parseField(String field, int min, int max) {
+        long mask = 0;
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            }
+            else if (part.indexOf('-') > 0) {
+                int dash = part.indexOf('-');
+                from = parseNumber(part.substring(0, dash), min, max);
+                to = parseNumber(part.substring(dash + 1), min, max);
+            }
+            else {
+                from = parseNumber(part, min, max);
+                to = slash >= 0 ? max : from;
+            }
+            if (from > to) {
+                throw new IllegalArgumentException("Invalid cron range: " + part);
+            }
+            for (int value = from; value <= to; value += step) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    private static int parseNumber(String text, int min, int max) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Cron value " + value + " outside " + min + "-" + max);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron value: " + text);
+        }
+    }
+
+    //next matching minute strictly after the given time, or null if there is none
+    public LocalDateTime next(LocalDateTime after) {
+        LocalDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        int lastYear = after.getYear() + MAX_YEARS_AHEAD;
+        while (time.getYear() <= lastYear) {
+            if ((months & 1L << time.getMonthValue()) == 0) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            }
+            else if (!matchesDay(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            }
+            else if ((hours & 1L << time.getHour()) == 0) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            }
+            else if ((minutes & 1L << time.getMinute()) == 0) {
+                time = time.plusMinutes(1);
+            }
+            else {
+                return time;
+            }
+        }
+        return null;
+    }
+
+    //day matching follows cron: if both day fields are restricted either one may match
+    private boolean matchesDay(LocalDateTime time) {
+        boolean dom = (daysOfMonth & 1L << time.getDayOfMonth()) != 0;
+        boolean dow = (daysOfWeek & 1L << (time.getDayOfWeek().getValue() % 7)) != 0;
+        if (anyDayOfMonth) return dow;
+        if (anyDayOfWeek) return dom;
+        return dom || dow;
+    }
+
+    //getter for the original expression
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -1,40 +1,195 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Executor;
 
 //Appliance Control System Dashboard - main application that manages all home appliances and handles system updates
 
 public class Dashboard extends JFrame {
+    //headless device state shared by all panels
+    private DeviceRegistry registry;
+    private RenderPipeline renderPipeline;
+    private EventJournal journal;
+    private SnapshotWriter snapshotWriter;
+    private CommandServer commandServer;
+    private SubscriptionServer subscriptionServer;
+    private SharedSegment sharedSegment;
+    private boolean controllerAlive = true;
+    private BulkOperations bulkOperations;
+    private EnergyAccountant energyAccountant;
+    private HistoryRecorder historyRecorder;
+    private RuleEngine ruleEngine;
+
+    //runtime instrumentation, every task for the EDT goes through edtExecutor so its queue wait is measured
+    private Diagnostics diagnostics;
+    private Executor edtExecutor;
+    private DiagnosticsOverlay diagnosticsOverlay;
+
     //appliance components
     private Light light;
     private Fan fan;
     private AirConditioner airConditioner;
+    private FleetView fleetView;
+    private FleetHeatmap fleetHeatmap;
 
     //ui components
+    private JLabel loadingLabel;
     private JLabel statusBar;
     private JLabel timeLabel;
+    private JLabel energyLabel;
 
-    //system management
-    private Timer systemTimer;
-    private Timer clockTimer;
+    //system management, every timer runs on the shared timing wheel and is dispatched to the EDT
+    private TimingWheel scheduler;
+    private ClimateController climateController;
+    private DeviceActors deviceActors;
+    private MaintenanceCalendar maintenanceCalendar;
+    private TimingWheel.Timeout clockTimer;
+    private TimingWheel.Timeout overlayTimer;
     private boolean systemUpdateMode = false;
 
+    //startup times in milliseconds after the JVM started, 0 until reached
+    private long firstPaintMillis;
+    private long readyMillis;
+    private boolean startupReported;
+
+    private static final long SCHEDULER_TICK_MILLIS = 10;
+    private static final int LIGHT_ID = 0; //the home devices are added first
+    private static final int FAN_ID = 1;
+    private static final int AC_ID = 2;
+    private static final String JOURNAL_DIR = System.getProperty("journal.dir", "journal");
+    private static final String SNAPSHOT_FILE = System.getProperty("snapshot.file", "state.snap");
+    private static final int COMMAND_PORT = Integer.getInteger("command.port", 0); //e.g. -Dcommand.port=7070, 0 disables
+    private static final int SUBSCRIBE_PORT = Integer.getInteger("subscribe.port", 0); //live state stream, e.g. -Dsubscribe.port=7071, 0 disables
+    private static final String SHARED_SEGMENT = System.getProperty("shared.segment"); //UI of a controller process, e.g. -Dshared.segment=state.shm
+    private static final boolean DEVICE_ACTORS = !"false".equals(System.getProperty("device.actors")); //devices owned by actors, -Ddevice.actors=false writes the registry directly
+    private static final int FLEET_SIZE = Integer.getInteger("fleet.size", 0); //extra simulated devices, e.g. -Dfleet.size=10000
+    private static final int FLEET_FLOORS = 10;
+    private static final boolean DIAGNOSTICS_OVERLAY = Boolean.getBoolean("diagnostics.overlay"); //also toggled with F12
+    private static final String ANNUAL_UPDATE_CRON = "0 1 1 1 *"; //January 1st at 1:00am
+    private static final String RULES_FILE = System.getProperty("rules.file"); //automation rules, e.g. -Drules.file=rules.txt
+    private static final boolean FAST_START = Boolean.getBoolean("fast.start"); //show the window first and build the rest behind it, e.g. -Dfast.start=true
+    private static final boolean STARTUP_EXIT = Boolean.getBoolean("startup.exit"); //exit once started, for the class-data archive training run
+    private static final long JVM_START_MILLIS = jvmStartMillis();
+    private static final String CLOCK_START = System.getProperty("clock.start"); //start the clock at a local time, e.g. -Dclock.start=2026-01-01T00:59:30
+
     //constructor
     public Dashboard() {
+        if (FAST_START) {
+            setupShell();
+            Thread init = new Thread(this::initializeInBackground, "dashboard-init");
+            init.setDaemon(true);
+            init.start();
+            return;
+        }
         initializeComponents();
         setupUI();
         startSystemServices();
-        System.out.println("Appliance Control System intialized successfully");
+        started();
     }
 
     //initialize al appliance components
     private void initializeComponents() {
-        light = new Light();
-        fan = new Fan();
-        airConditioner = new AirConditioner();
+        initializeRegistry();
+        initializeScheduler();
+        initializePanels();
+    }
+
+    //fast start: load the fonts and the device state, open the journal and start the scheduler off the EDT,
+    //then build the panels and start the services on the EDT while the window shell is already showing
+    private void initializeInBackground() {
+        try {
+            Theme.preload();
+            initializeRegistry();
+            initializeScheduler();
+        } catch (RuntimeException e) {
+            System.err.println("Startup failed: " + e);
+            SwingUtilities.invokeLater(() -> statusBar.setText("System Status: OFFLINE | Startup failed: " + e.getMessage()));
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            initializePanels();
+            remove(loadingLabel);
+            loadingLabel = null;
+            setupAppliancePanel();
+            setupDiagnosticsOverlay();
+            statusBar.setText("System Status: ONLINE | All devices operational");
+            revalidate();
+            repaint();
+            startSystemServices();
+            started();
+        });
+    }
+
+    //devices, their saved state and the journal
+    private void initializeRegistry() {
+        //as the UI of a controller process the devices, their state and the journal live there
+        if (SHARED_SEGMENT != null) {
+            try {
+                sharedSegment = SharedSegment.attach(Paths.get(SHARED_SEGMENT));
+                registry = sharedSegment.createRegistry();
+                return;
+            } catch (IOException e) {
+                System.err.println("Failed to attach to controller segment " + SHARED_SEGMENT + ", running standalone: " + e.getMessage());
+            }
+        }
+        registry = new DeviceRegistry(3 + FLEET_SIZE);
+        int home = registry.defineGroup("Home");
+        registry.addDevice(DeviceRegistry.TYPE_LIGHT, home);
+        registry.addDevice(DeviceRegistry.TYPE_FAN, home);
+        registry.addDevice(DeviceRegistry.TYPE_AC, home);
+        addSimulatedFleet();
+
+        //bring back the state saved by the last run before anything is shown
+        SnapshotWriter.restore(registry, Paths.get(SNAPSHOT_FILE));
+
+        //state changes go to the binary event journal (read it with JournalReader)
+        try {
+            journal = new EventJournal(Paths.get(JOURNAL_DIR));
+            registry.setJournal(journal);
+        } catch (IOException e) {
+            System.err.println("Failed to open event journal, events will not be recorded: " + e.getMessage());
+        }
+    }
+
+    //diagnostics, the shared scheduler and the render pipeline
+    private void initializeScheduler() {
+        //the shared scheduler drives both the timers and the frame-capped display updates
+        diagnostics = new Diagnostics();
+        edtExecutor = diagnostics.edtExecutor();
+        scheduler = new TimingWheel(SCHEDULER_TICK_MILLIS, edtExecutor, createClock());
+        scheduler.start();
+        renderPipeline = new RenderPipeline(registry, scheduler);
+        diagnostics.monitor(registry, scheduler, renderPipeline);
+        diagnostics.register();
+    }
+
+    //appliance panels for the home devices, the fleet table is built on first use in fast start mode
+    private void initializePanels() {
+        light = new Light(registry, renderPipeline, LIGHT_ID);
+        fan = new Fan(registry, renderPipeline, FAN_ID);
+        airConditioner = new AirConditioner(registry, renderPipeline, AC_ID);
+        if (!FAST_START) {
+            fleetView = new FleetView(registry, renderPipeline);
+        }
+    }
+
+    //add simulated devices spread over floors, cycling light, fan and AC
+    private void addSimulatedFleet() {
+        int[] floors = new int[FLEET_FLOORS];
+        for (int floor = 0; floor < FLEET_FLOORS; floor++) {
+            floors[floor] = registry.defineGroup("Floor " + (floor + 1));
+        }
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            registry.addDevice((byte) (i % 3), floors[i % FLEET_FLOORS]);
+        }
     }
 
     //setup main ui
@@ -46,9 +201,10 @@ public class Dashboard extends JFrame {
         setupHeaderPanel();
         setupAppliancePanel();
         setupFooterPanel();
+        setupDiagnosticsOverlay();
 
         //window properties
-        setResizable(false);
+        setResizable(true);
         pack();
         setLocationRelativeTo(null); //center
 
@@ -56,24 +212,53 @@ public class Dashboard extends JFrame {
         setMinimumSize(new Dimension(800, 300));
     }
 
+    //window shell for fast start: header and status bar right away, the appliance panels follow once built
+    private void setupShell() {
+        setTitle("Appliance Control System");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+        setupHeaderPanel();
+        loadingLabel = new JLabel("Starting...", SwingConstants.CENTER);
+        loadingLabel.setFont(Theme.PANEL_TITLE_FONT);
+        loadingLabel.setPreferredSize(new Dimension(800, 300));
+        add(loadingLabel, BorderLayout.CENTER);
+        setupFooterPanel();
+        statusBar.setText("System Status: STARTING | Loading devices...");
+
+        setResizable(true);
+        pack();
+        setLocationRelativeTo(null); //center
+        setMinimumSize(new Dimension(800, 300));
+    }
+
     //setup header panel with title and time
     private void setupHeaderPanel() {
         JPanel headerPanel = new JPanel(new BorderLayout());
         headerPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 5, 10));
-        headerPanel.setBackground(Color.decode("#C6D2FF"));
+        headerPanel.setBackground(Theme.HEADER);
 
         //title
         JLabel titleLabel = new JLabel("Appliance Control System Dashboard", SwingConstants.LEFT);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        titleLabel.setFont(Theme.TITLE_FONT);
         titleLabel.setForeground(Color.WHITE);
 
         //current time
         timeLabel = new JLabel("", SwingConstants.RIGHT);
-        timeLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        timeLabel.setFont(Theme.VALUE_FONT);
         timeLabel.setForeground(Color.WHITE);
 
+        //fleet power draw and energy used today, below the time
+        energyLabel = new JLabel("", SwingConstants.RIGHT);
+        energyLabel.setFont(Theme.SMALL_FONT);
+        energyLabel.setForeground(Color.WHITE);
+
+        JPanel infoPanel = new JPanel(new GridLayout(2, 1));
+        infoPanel.setOpaque(false);
+        infoPanel.add(timeLabel);
+        infoPanel.add(energyLabel);
+
         headerPanel.add(titleLabel, BorderLayout.CENTER);
-        headerPanel.add(timeLabel, BorderLayout.EAST);
+        headerPanel.add(infoPanel, BorderLayout.EAST);
 
         add(headerPanel, BorderLayout.NORTH);
     }
@@ -89,7 +274,37 @@ public class Dashboard extends JFrame {
         appliancePanel.add(fan);
         appliancePanel.add(airConditioner);
 
-        add(appliancePanel, BorderLayout.CENTER);
+        //home panels in the first tab, the table of every device in the second
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Home", appliancePanel);
+        if (fleetView != null) {
+            tabs.addTab("All Devices (" + registry.size() + ")", fleetView);
+        }
+        else {
+            //a large fleet table is the most expensive part of the window, build it when the tab is first opened
+            JPanel fleetTab = new JPanel(new BorderLayout());
+            tabs.addTab("All Devices (" + registry.size() + ")", fleetTab);
+            tabs.addChangeListener(e -> {
+                if (fleetView == null && tabs.getSelectedComponent() == fleetTab) {
+                    fleetView = new FleetView(registry, renderPipeline);
+                    fleetTab.add(fleetView, BorderLayout.CENTER);
+                    fleetTab.revalidate();
+                }
+            });
+        }
+
+        //every device as one cell of a single canvas, its image is only worth allocating once the tab is opened
+        JPanel overviewTab = new JPanel(new BorderLayout());
+        tabs.addTab("Overview", overviewTab);
+        tabs.addChangeListener(e -> {
+            if (fleetHeatmap == null && tabs.getSelectedComponent() == overviewTab) {
+                fleetHeatmap = new FleetHeatmap(registry, renderPipeline, scheduler);
+                overviewTab.add(fleetHeatmap, BorderLayout.CENTER);
+                overviewTab.revalidate();
+            }
+        });
+
+        add(tabs, BorderLayout.CENTER);
     }
 
     //setup footer status bar
@@ -98,100 +313,230 @@ public class Dashboard extends JFrame {
         statusBar.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
         statusBar.setBackground(Color.LIGHT_GRAY);
         statusBar.setOpaque(true);
-        statusBar.setFont(new Font("Arial", Font.PLAIN, 11));
+        statusBar.setFont(Theme.STATUS_BAR_FONT);
         
         add(statusBar, BorderLayout.SOUTH);
     }
 
+    //setup the diagnostics overlay, shown on start with -Ddiagnostics.overlay=true and toggled with F12
+    private void setupDiagnosticsOverlay() {
+        diagnosticsOverlay = new DiagnosticsOverlay(diagnostics);
+        setGlassPane(diagnosticsOverlay);
+        diagnosticsOverlay.setVisible(DIAGNOSTICS_OVERLAY);
+
+        JRootPane root = getRootPane();
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F12, 0), "toggleDiagnostics");
+        root.getActionMap().put("toggleDiagnostics", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                diagnosticsOverlay.setVisible(!diagnosticsOverlay.isVisible());
+            }
+        });
+    }
+
+    //the first paint of the window is the time-to-first-paint reported at startup
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (firstPaintMillis == 0) {
+            firstPaintMillis = Math.max(System.currentTimeMillis() - JVM_START_MILLIS, 1);
+            reportStartup();
+        }
+    }
+
+    //every service is running
+    private void started() {
+        record(EventJournal.SYSTEM_STARTED);
+        readyMillis = Math.max(System.currentTimeMillis() - JVM_START_MILLIS, 1);
+        reportStartup();
+    }
+
+    //print the startup times once both are known, and exit after a class-data archive training run
+    private void reportStartup() {
+        if (startupReported || firstPaintMillis == 0 || readyMillis == 0) return;
+        startupReported = true;
+        System.out.println("Startup (" + (FAST_START ? "fast" : "standard") + "): first paint " + firstPaintMillis
+            + " ms, ready " + readyMillis + " ms after JVM start");
+        diagnostics.recordStartup(firstPaintMillis, readyMillis);
+        if (STARTUP_EXIT) {
+            SwingUtilities.invokeLater(() -> System.exit(0));
+        }
+    }
+
+    //when the JVM started, the time main ran if the OS does not say
+    private static long jvmStartMillis() {
+        long mainMillis = System.currentTimeMillis();
+        try {
+            return ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli).orElse(mainMillis);
+        } catch (RuntimeException e) {
+            return mainMillis;
+        }
+    }
+
     //start system services including timers and update scheduler
     private void startSystemServices() {
+        //start the AC regulation loop, or follow the controller process that runs it
+        if (sharedSegment != null) {
+            sharedSegment.mirrorInto(registry, edtExecutor);
+        }
+        else {
+            //every device runs as an actor that owns its state: panels, commands, rules, bulk operations and the
+            //regulation steps below post to its mailbox through the registry, which mirrors the result on the EDT
+            if (DEVICE_ACTORS) {
+                deviceActors = new DeviceActors(registry, edtExecutor);
+                registry.setRemote(deviceActors);
+            }
+            climateController = new ClimateController(registry, scheduler);
+        }
+
+        //integrate the power draw of every device as it changes
+        energyAccountant = new EnergyAccountant(registry, scheduler);
+
+        //record temperature and speed history every second and chart it in the AC panel
+        historyRecorder = new HistoryRecorder(registry, new TimeSeriesStore(), scheduler, HistoryRecorder.DEFAULT_INTERVAL_MILLIS);
+        historyRecorder.addSampleListener(airConditioner.showHistory(historyRecorder.getStore(), scheduler.getClock())::repaint);
+        historyRecorder.start();
+
+        //automation rules, re-tested only when a device they read changes
+        if (RULES_FILE != null && sharedSegment == null) {
+            ruleEngine = new RuleEngine(registry, scheduler, edtExecutor);
+            try {
+                System.out.println("Loaded " + ruleEngine.loadRules(Paths.get(RULES_FILE)) + " rules from " + RULES_FILE);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Failed to load rules, automation is off: " + e.getMessage());
+                ruleEngine.shutdown();
+                ruleEngine = null;
+            }
+        }
+
+        //fleet-wide changes run on the fork-join pool and report back on the EDT
+        bulkOperations = new BulkOperations(registry, edtExecutor);
+
+        //save the state of every device periodically so the next start can restore it
+        if (sharedSegment == null) {
+            snapshotWriter = new SnapshotWriter(registry, Paths.get(SNAPSHOT_FILE), scheduler, SnapshotWriter.DEFAULT_INTERVAL_MILLIS);
+            snapshotWriter.start();
+        }
+
+        //optional localhost endpoint for scripted control, commands are applied in batches on the EDT
+        if (COMMAND_PORT > 0) {
+            commandServer = new CommandServer(registry, edtExecutor);
+            try {
+                commandServer.start(COMMAND_PORT);
+            } catch (IOException e) {
+                System.err.println("Failed to start command server on port " + COMMAND_PORT + ": " + e.getMessage());
+                commandServer = null;
+            }
+        }
+
+        //optional localhost stream of device state for remote dashboards, a snapshot and then delta frames
+        if (SUBSCRIBE_PORT > 0) {
+            subscriptionServer = new SubscriptionServer(registry, scheduler, SubscriptionServer.DEFAULT_PUBLISH_MILLIS);
+            try {
+                subscriptionServer.start(SUBSCRIBE_PORT);
+            } catch (IOException e) {
+                System.err.println("Failed to start subscription server on port " + SUBSCRIBE_PORT + ": " + e.getMessage());
+                subscriptionServer = null;
+            }
+        }
+
         //start clock timer for time display
         startClockTimer();
+
+        //keep the diagnostics overlay current while it is shown
+        overlayTimer = scheduler.scheduleAtFixedRate(diagnosticsOverlay::refresh, DiagnosticsOverlay.REFRESH_MILLIS, DiagnosticsOverlay.REFRESH_MILLIS);
         
-        //start system update scheduler
-        startSystemUpdateScheduler();
-        
-        System.out.println("System services started successfully");
+        //start system update scheduler, the controller process runs its own
+        if (sharedSegment == null) {
+            startSystemUpdateScheduler();
+        }
     }
 
-    //start clock timer for local time display
-        private void startClockTimer() {
-        clockTimer = new Timer(true);
-        clockTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    LocalDateTime now = LocalDateTime.now();
-                    String timeString = now.format(DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm:ss"));
-                    timeLabel.setText(timeString);
-                });
+    //start clock timer for local time display, each tick records how late it fired
+    private void startClockTimer() {
+        long firstTick = System.nanoTime();
+        long[] ticks = new long[1];
+        clockTimer = scheduler.scheduleAtFixedRate(() -> {
+            diagnostics.recordClockTick(System.nanoTime() - (firstTick + ticks[0]++ * 1_000_000_000L));
+            LocalDateTime now = LocalDateTime.now(scheduler.getClock());
+            String timeString = now.format(DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm:ss"));
+            timeLabel.setText(timeString);
+            energyLabel.setText(String.format("Fleet: %.2f kW | %.2f kWh last 24h", energyAccountant.getFleetKilowatts(),
+                energyAccountant.getFleetWattHours(EnergyAccountant.WINDOW_DAY) / 1000));
+            if (sharedSegment != null) {
+                updateControllerStatus();
             }
         }, 0, 1000); //update every second
     }
 
-    //start system update scheduler for January 1st updates
+    //show in the status bar when the controller process stops or comes back
+    private void updateControllerStatus() {
+        boolean alive = sharedSegment.isControllerAlive();
+        if (alive == controllerAlive) return;
+        controllerAlive = alive;
+        statusBar.setText(alive ? "System Status: ONLINE | All devices operational" : "System Status: OFFLINE | Controller process not responding");
+        statusBar.setBackground(alive ? Color.LIGHT_GRAY : Theme.UPDATING);
+    }
+
+    //system clock, or one running from -Dclock.start so the annual update can be tried without changing the OS clock
+    private static Clock createClock() {
+        Clock system = Clock.systemDefaultZone();
+        if (CLOCK_START == null) return system;
+        try {
+            LocalDateTime start = LocalDateTime.parse(CLOCK_START);
+            return Clock.offset(system, Duration.between(LocalDateTime.now(system), start));
+        } catch (RuntimeException e) {
+            System.err.println("Invalid clock.start '" + CLOCK_START + "', using the system clock: " + e.getMessage());
+            return system;
+        }
+    }
+
+    //start system update scheduler for January 1st updates, the calendar sleeps until the window instead of polling
     private void startSystemUpdateScheduler() {
-        systemTimer = new Timer(true);
-        systemTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                checkForSystemUpdate();
-            }
-        }, 0, 1000); //check every second
+        maintenanceCalendar = new MaintenanceCalendar(scheduler);
+        maintenanceCalendar.addWindow("Annual system update", ANNUAL_UPDATE_CRON, MaintenanceCalendar.ALL_GROUPS, group -> {
+            checkForSystemUpdate();
+        });
+        maintenanceCalendar.start();
     }
 
-    //check for update on January 1st, at 1:00am
+    //run the update unless one is already in progress
     private void checkForSystemUpdate() {
-        LocalDateTime now = LocalDateTime.now();
-        if (now.getMonthValue() == 1 &&
-            now.getDayOfMonth() == 1 &&
-            now.getHour() == 1 && 
-            now.getMinute() == 0 &&
-            now.getSecond() == 0 &&
-            !systemUpdateMode) {
-            SwingUtilities.invokeLater(() -> {
-                performSystemUpdate();
-            });
+        if (!systemUpdateMode) {
+            performSystemUpdate();
         }
     }
 
     //perform the update
     private void performSystemUpdate() {
         systemUpdateMode = true;
-        System.out.println("--- ANNUAL SYSTEM UPDATE INITIATED ---");
-        
-        //turn off all devices
-        light.turnOff();
-        fan.turnOff();
-        airConditioner.turnOff();
-        
-        System.out.println("All devices turned OFF for system update");
+        record(EventJournal.SYSTEM_UPDATE_STARTED);
         
         //update status bar
-        statusBar.setText("System Status: UPDATING | Annual maintenance in progress...");
-        statusBar.setBackground(Color.decode("#FFDF20"));
-        
-        //simulate update process
-        Timer updateTimer = new Timer();
-        updateTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    completeSystemUpdate();
-                });
-            }
-        }, 2000); //simulate 2 second update process
+        statusBar.setText("System Status: UPDATING | Turning off devices...");
+        statusBar.setBackground(Theme.UPDATING);
+
+        //turn off every device in parallel, panels and the climate controller follow the single bulk event
+        bulkOperations.turnOff(DeviceRegistry.ANY_TYPE, DeviceRegistry.ALL_GROUPS, (done, total) -> {
+            statusBar.setText("System Status: UPDATING | Turning off devices " + (int) (100L * done / total) + "%");
+        }).thenAccept(result -> {
+            record(EventJournal.SYSTEM_DEVICES_OFF);
+            statusBar.setText("System Status: UPDATING | Annual maintenance in progress...");
+
+            //simulate update process
+            scheduler.schedule(() -> {
+                completeSystemUpdate();
+            }, 2000); //simulate 2 second update process
+        });
     }
 
     //complete system update
     private void completeSystemUpdate() {
-        System.out.println("System update completed successfully");
-        System.out.println("All devices remain OFF");
-        System.out.println("--- SYSTEM UPDATE COMPLETE ---");
+        record(EventJournal.SYSTEM_UPDATE_COMPLETE);
         
         // Set status bar to green for 10 seconds
         statusBar.setText("System Status: UPDATE COMPLETE | All devices turned OFF");
-        statusBar.setBackground(Color.decode("#00A63E"));
+        statusBar.setBackground(Theme.UPDATE_COMPLETE);
         
         systemUpdateMode = false;
         
@@ -203,36 +548,90 @@ public class Dashboard extends JFrame {
             JOptionPane.INFORMATION_MESSAGE);
         
         //set timer to return status bar to normal 
-        Timer resetTimer = new Timer();
-        resetTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    statusBar.setText("System Status: ONLINE | All devices operational");
-                    statusBar.setBackground(Color.LIGHT_GRAY);
-                });
-            }
+        scheduler.schedule(() -> {
+            statusBar.setText("System Status: ONLINE | All devices operational");
+            statusBar.setBackground(Color.LIGHT_GRAY);
         }, 5000);//5 second delay
     }
 
     //clean up resources when application closes
     private void cleanup() {
+        if (commandServer != null) {
+            commandServer.stop();
+            System.out.println(commandServer.getMetrics());
+        }
+        if (subscriptionServer != null) {
+            subscriptionServer.stop();
+            System.out.println(subscriptionServer.getMetrics());
+        }
+        if (sharedSegment != null) {
+            sharedSegment.close();
+            System.out.println(sharedSegment.getMetrics());
+        }
         if (clockTimer != null) {
             clockTimer.cancel();
         }
-        if (systemTimer != null) {
-            systemTimer.cancel();
+        if (overlayTimer != null) {
+            overlayTimer.cancel();
+        }
+        if (maintenanceCalendar != null) {
+            maintenanceCalendar.stop();
+        }
+        if (climateController != null) {
+            climateController.shutdown();
+        }
+        if (deviceActors != null) {
+            deviceActors.shutdown();
+            System.out.println(deviceActors.getMetrics());
+        }
+        if (energyAccountant != null) {
+            energyAccountant.shutdown();
+        }
+        if (historyRecorder != null) {
+            historyRecorder.stop();
+        }
+        if (ruleEngine != null) {
+            ruleEngine.shutdown();
+            System.out.println(ruleEngine.getMetrics());
+        }
+        if (snapshotWriter != null) {
+            snapshotWriter.stop();
+        }
+        if (renderPipeline != null) {
+            System.out.println(renderPipeline.getMetrics());
+        }
+        if (scheduler != null) {
+            System.out.println(scheduler.getMetrics());
+            scheduler.stop();
+        }
+        if (diagnostics != null) {
+            for (String line : diagnostics.getLines()) {
+                System.out.println(line);
+            }
+            diagnostics.unregister();
+        }
+        record(EventJournal.SYSTEM_SHUTDOWN);
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    //record a system event in the journal
+    private void record(int code) {
+        if (journal != null) {
+            journal.recordSystem(code);
         }
-        System.out.println("System shutdown complete");
     }
 
     //main method
     public static void main(String[] args) {
-        //set system look and feel
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e) {
-            System.err.println("Failed to set system look and feel: " + e.getMessage());
+        //set system look and feel, fast start keeps the default one because loading the native one delays the first paint
+        if (!FAST_START) {
+            try {
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            } catch (Exception e) {
+                System.err.println("Failed to set system look and feel: " + e.getMessage());
+            }
         }
         
         //create and show the dashboard
@@ -0,0 +1,343 @@
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+//Device Actors - every device runs as a lightweight actor that owns its state and handles its mailbox one message at a time
+//messages are encoded commands (CommandServer.encode), so no state is shared between threads; an actor only occupies
+//a carrier thread while its mailbox has messages
+//installed as the registry's remote (setRemote), the setters used by the panels, the command server, bulk operations
+//and rules post to the mailboxes, and ClimateController's regulation steps arrive as CommandServer.OP_ADJUST
+//carriers are virtual threads on JVMs that have them (Java 21+), otherwise a small work-stealing pool
+//after each batch the actor publishes an immutable DeviceSnapshot, and changed devices are mirrored into the
+//registry on its writer thread (setState), where the panels, journal and listeners see them
+
+public class DeviceActors implements LongConsumer {
+    public static final int THROUGHPUT = 64; //messages handled per turn before the actor yields its carrier
+
+    private final Actor[] actors;
+    private final ExecutorService carriers;
+    private final boolean virtualThreads;
+    private final AtomicReferenceArray<DeviceSnapshot> latest;
+
+    //mirror into the registry, one pending bit per device drained on the writer thread
+    private final DeviceRegistry registry;
+    private final Executor writer;
+    private final AtomicLongArray pending;
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+    //metrics
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder mirrored = new LongAdder();
+
+    //constructor, one actor per device starting from the registry's current state, call on the registry's writer thread
+    //a null writer disables the registry mirror
+    public DeviceActors(DeviceRegistry registry, Executor writer) {
+        this.registry = registry;
+        this.writer = writer;
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.carriers = virtual != null ? virtual
+            : new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        int size = registry.size();
+        this.actors = new Actor[size];
+        this.latest = new AtomicReferenceArray<>(size);
+        this.pending = new AtomicLongArray((size + 63) >>> 6);
+        for (int id = 0; id < size; id++) {
+            actors[id] = new Actor(id, registry.getType(id), registry.isOn(id), registry.getSpeed(id),
+                registry.getCurrentTemperature(id), registry.getTargetTemperature(id));
+        }
+    }
+
+    //virtual-thread-per-task executor when the JVM has virtual threads, null otherwise
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    //post a command (CommandServer.OP_* and its argument) to a device's mailbox, safe from any thread
+    public void tell(int deviceId, int op, int argument) {
+        accept(CommandServer.encode(op, deviceId, argument));
+    }
+
+    //post an encoded command to the mailbox of its device, this is what the registry's setters forward to
+    @Override
+    public void accept(long command) {
+        int deviceId = (int) command;
+        if (deviceId < 0 || deviceId >= actors.length) {
+            throw new IllegalArgumentException("Unknown device id: " + deviceId);
+        }
+        actors[deviceId].tell(command);
+    }
+
+    //getter for the latest published state of a device, null until it first changes
+    public DeviceSnapshot getSnapshot(int deviceId) {
+        return latest.get(deviceId);
+    }
+
+    //getter for the number of actors
+    public int size() {
+        return actors.length;
+    }
+
+    //check if the actors run on virtual threads
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    //getter for the number of messages handled
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    //getter for the number of messages a device could not handle (wrong type or value out of range)
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    //getter for the number of snapshots published
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    //getter for the number of snapshots applied to the registry
+    public long getMirroredCount() {
+        return mirrored.sum();
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        return "Actors: " + actors.length + " on " + (virtualThreads ? "virtual threads" : "a fork-join pool") + " | "
+            + messages.sum() + " messages | " + rejected.sum() + " rejected | " + published.sum() + " snapshots | "
+            + mirrored.sum() + " mirrored";
+    }
+
+    //stop the carriers, queued messages are dropped
+    public void shutdown() {
+        carriers.shutdownNow();
+    }
+
+    //remember that a device has a new snapshot and make sure a drain is coming on the writer thread
+    private void markPending(int id) {
+        if (writer == null) return;
+        int word = id >>> 6;
+        long mask = 1L << id;
+        if ((pending.getAndAccumulate(word, mask, (current, added) -> current | added) & mask) == 0
+                && drainRequested.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    //apply the latest snapshot of every pending device to the registry, runs on the writer thread
+    private void drain() {
+        drainRequested.set(false);
+        for (int word = 0; word < pending.length(); word++) {
+            long bits = pending.getAndSet(word, 0);
+            while (bits != 0) {
+                int id = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                DeviceSnapshot snapshot = latest.get(id);
+                registry.setState(id, snapshot.isOn(), snapshot.getSpeed(), snapshot.getCurrentTemperature(), snapshot.getTargetTemperature());
+                mirrored.increment();
+            }
+        }
+    }
+
+    //one device: its state is only touched by whichever carrier is running it, turns are serialized by the scheduled flag
+    private final class Actor implements Runnable {
+        private final int id;
+        private final byte type;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        //mailbox, a small ring of encoded commands guarded by the actor's lock
+        private long[] mailbox = new long[4];
+        private int head;
+        private int count;
+
+        //device state, confined to the actor
+        private boolean on;
+        private int speed;
+        private int current;
+        private int target;
+        private long version;
+
+        Actor(int id, byte type, boolean on, int speed, int current, int target) {
+            this.id = id;
+            this.type = type;
+            this.on = on;
+            this.speed = speed;
+            this.current = current;
+            this.target = target;
+        }
+
+        void tell(long message) {
+            synchronized (this) {
+                if (count == mailbox.length) {
+                    long[] grown = new long[mailbox.length * 2];
+                    for (int i = 0; i < count; i++) {
+                        grown[i] = mailbox[(head + i) & (mailbox.length - 1)];
+                    }
+                    mailbox = grown;
+                    head = 0;
+                }
+                mailbox[(head + count) & (mailbox.length - 1)] = message;
+                count++;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                carriers.execute(this);
+            }
+        }
+
+        //one turn: handle up to THROUGHPUT messages, publish once, then give the carrier back
+        @Override
+        public void run() {
+            boolean changed = false;
+            for (int handled = 0; handled < THROUGHPUT; handled++) {
+                long message;
+                synchronized (this) {
+                    if (count == 0) break;
+                    message = mailbox[head];
+                    head = (head + 1) & (mailbox.length - 1);
+                    count--;
+                }
+                changed |= handle((int) (message >>> 56), (int) ((message >>> 32) & 0xFFFF));
+            }
+            if (changed) {
+                version++;
+                latest.set(id, new DeviceSnapshot(id, type, type == DeviceRegistry.TYPE_FAN ? speed > 0 : on, speed, current, target, version));
+                published.increment();
+                markPending(id);
+            }
+            scheduled.set(false);
+            boolean more;
+            synchronized (this) {
+                more = count > 0;
+            }
+            if (more && scheduled.compareAndSet(false, true)) {
+                carriers.execute(this);
+            }
+        }
+
+        //apply one command, returns true if the state changed, the same rules as the registry's setters
+        private boolean handle(int op, int argument) {
+            messages.increment();
+            switch (op) {
+                case CommandServer.OP_TOGGLE_LIGHT:
+                    if (type != DeviceRegistry.TYPE_LIGHT) break;
+                    on = !on;
+                    return true;
+                case CommandServer.OP_TOGGLE_AC:
+                    if (type != DeviceRegistry.TYPE_AC) break;
+                    on = !on;
+                    return true;
+                case CommandServer.OP_SET_SPEED:
+                    if (type != DeviceRegistry.TYPE_FAN || argument < 0 || argument > DeviceRegistry.MAX_SPEED) break;
+                    if (speed == argument) return false;
+                    speed = argument;
+                    return true;
+                case CommandServer.OP_SET_TARGET:
+                    if (type != DeviceRegistry.TYPE_AC || argument < DeviceRegistry.MIN_TEMP || argument > DeviceRegistry.MAX_TEMP) break;
+                    if (target == argument) return false;
+                    target = argument;
+                    return true;
+                case CommandServer.OP_TURN_OFF:
+                    if (type == DeviceRegistry.TYPE_FAN) {
+                        if (speed == 0) return false;
+                        speed = 0;
+                        return true;
+                    }
+                    if (!on) return false;
+                    on = false;
+                    return true;
+                case CommandServer.OP_ADJUST:
+                    if (type != DeviceRegistry.TYPE_AC) break;
+                    if (!on || current == target) return false;
+                    current += current < target ? 1 : -1;
+                    return true;
+                default:
+                    break;
+            }
+            rejected.increment();
+            return false;
+        }
+    }
+
+    //run a headless load test: java DeviceActors [devices] [messages per device]
+    public static void main(String[] args) throws InterruptedException {
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int perDevice = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        DeviceRegistry registry = new DeviceRegistry(devices);
+        int group = registry.defineGroup("Default");
+        for (int i = 0; i < devices; i++) {
+            registry.addDevice((byte) (i % 3), group);
+        }
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "registry-writer"));
+        TimingWheel scheduler = new TimingWheel(10, writerThread);
+        scheduler.start();
+        DeviceActors system = new DeviceActors(registry, writerThread);
+        registry.setRemote(system);
+        writerThread.execute(() -> new ClimateController(registry, scheduler));
+        System.out.println("Started " + devices + " actors on " + (system.usesVirtualThreads() ? "virtual threads" : "a fork-join pool"));
+
+        //every AC on, then a burst of random commands from a few producer threads
+        for (int id = 2; id < devices; id += 3) {
+            system.tell(id, CommandServer.OP_TOGGLE_AC, 0);
+        }
+        int producers = 4;
+        long total = (long) devices * perDevice;
+        long start = System.nanoTime();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int seed = p;
+            threads[p] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (long n = 0; n < total / producers; n++) {
+                    int id = random.nextInt(devices);
+                    switch (id % 3) {
+                        case DeviceRegistry.TYPE_LIGHT:
+                            system.tell(id, CommandServer.OP_TOGGLE_LIGHT, 0);
+                            break;
+                        case DeviceRegistry.TYPE_FAN:
+                            system.tell(id, CommandServer.OP_SET_SPEED, random.nextInt(DeviceRegistry.MAX_SPEED + 1));
+                            break;
+                        default:
+                            system.tell(id, CommandServer.OP_SET_TARGET, DeviceRegistry.MIN_TEMP + random.nextInt(15));
+                            break;
+                    }
+                }
+            }, "producer-" + p);
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long sent = total / producers * producers + (devices + 1) / 3;
+        while (system.getMessageCount() < sent) {
+            Thread.sleep(1);
+        }
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%d commands in %.2fs, %.0f messages/s%n", sent, seconds, sent / seconds);
+
+        //let the climate controller run a few regulation steps through the mailboxes
+        Thread.sleep(3 * ClimateController.ADJUST_PERIOD_MILLIS);
+        System.out.println(system.getMetrics());
+        System.out.println("Threads alive: " + Thread.activeCount());
+        system.shutdown();
+        scheduler.stop();
+        writerThread.shutdown();
+    }
+}
@@ -0,0 +1,20 @@
+//Device Listener - notified by the DeviceRegistry whenever a field of a device changes
+
+public interface DeviceListener {
+    //called after the given field of the device has changed (see DeviceRegistry.FIELD_*)
+    void deviceChanged(int deviceId, int field);
+
+    //called once after a bulk operation, any field of the devices in [fromId, toId) may have changed
+    //by default each device is reported as a FIELD_ALL change
+    default void devicesChanged(int fromId, int toId) {
+        for (int id = fromId; id < toId; id++) {
+            deviceChanged(id, DeviceRegistry.FIELD_ALL);
+        }
+    }
+
+    //called once after a bulk operation (see DeviceRegistry.BULK_*) with what was applied to [fromId, toId)
+    //by default reported as devicesChanged, override to see the operation itself
+    default void bulkApplied(int operation, int type, int group, int value, int fromId, int toId) {
+        devicesChanged(fromId, toId);
+    }
+}
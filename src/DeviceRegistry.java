@@ -0,0 +1,550 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+//Device Registry - headless model that holds the state of every appliance in primitive arrays indexed by device id
+//the Light, Fan and AirConditioner panels only observe it, so the control logic runs with or without a display
+//state is mutated by a single writer thread (the EDT in the desktop app), listeners are called on that thread
+
+public class DeviceRegistry {
+    //device types
+    public static final byte TYPE_LIGHT = 0;
+    public static final byte TYPE_FAN = 1;
+    public static final byte TYPE_AC = 2;
+
+    //fields reported to listeners
+    public static final int FIELD_POWER = 0;
+    public static final int FIELD_SPEED = 1;
+    public static final int FIELD_CURRENT_TEMP = 2;
+    public static final int FIELD_TARGET_TEMP = 3;
+    public static final int FIELD_ALL = -1; //any field may have changed (bulk operations)
+
+    //selectors for bulk operations
+    public static final int ANY_TYPE = -1;
+    public static final int ALL_GROUPS = -1;
+
+    //bulk operations, see applyBulk
+    public static final int BULK_TURN_OFF = 0;
+    public static final int BULK_SET_SPEED = 1;
+    public static final int BULK_SET_TARGET = 2;
+
+    //limits for fans and air conditioners
+    public static final int MAX_SPEED = 2;
+    public static final int MIN_TEMP = 16;
+    public static final int MAX_TEMP = 30;
+    public static final int DEFAULT_TEMP = 21;
+
+    private static final String[] TYPE_NAMES = {"Light", "Fan", "AC"};
+
+    //device state, one slot per device (about 9 bytes per device)
+    private byte[] types;
+    private boolean[] power;
+    private byte[] speeds;
+    private byte[] currentTemps;
+    private byte[] targetTemps;
+    private int[] groups;
+    private int size;
+
+    //incremented on every change, lets periodic work skip when nothing changed
+    private volatile long changeCount;
+
+    //group names, the index is the group id
+    private final List<String> groupNames = new ArrayList<>();
+
+    //copy-on-write so listeners can be added from any thread
+    private volatile DeviceListener[] listeners = new DeviceListener[0];
+
+    //state changes are recorded here instead of printed, nothing is recorded while it is null
+    private volatile EventJournal journal;
+
+    //set when the devices are owned elsewhere, by a controller process (the UI side of a SharedSegment) or by
+    //DeviceActors: the setters, regulation steps and bulk operations send commands (CommandServer.encode) there
+    //instead of changing state, which comes back through setState
+    private volatile LongConsumer remote;
+
+    //constructor
+    public DeviceRegistry(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        types = new byte[capacity];
+        power = new boolean[capacity];
+        speeds = new byte[capacity];
+        currentTemps = new byte[capacity];
+        targetTemps = new byte[capacity];
+        groups = new int[capacity];
+    }
+
+    //create a registry holding a single device with id 0, used by panels created on their own
+    public static DeviceRegistry standalone(byte type) {
+        DeviceRegistry registry = new DeviceRegistry(1);
+        registry.addDevice(type, registry.defineGroup("Default"));
+        return registry;
+    }
+
+    //define a named group (home, floor, zone...) and return its id, existing names return the same id
+    public synchronized int defineGroup(String name) {
+        int existing = groupNames.indexOf(name);
+        if (existing >= 0) {
+            return existing;
+        }
+        groupNames.add(name);
+        return groupNames.size() - 1;
+    }
+
+    //getter for the name of a group
+    public synchronized String getGroupName(int group) {
+        return groupNames.get(group);
+    }
+
+    //getter for the number of defined groups
+    public synchronized int getGroupCount() {
+        return groupNames.size();
+    }
+
+    //add a device in its default state (off, speed 0, 21°C) and return its id
+    public int addDevice(byte type, int group) {
+        if (type < TYPE_LIGHT || type > TYPE_AC) {
+            throw new IllegalArgumentException("Unknown device type: " + type);
+        }
+        if (size == types.length) {
+            grow();
+        }
+        int id = size;
+        types[id] = type;
+        power[id] = false;
+        speeds[id] = 0;
+        currentTemps[id] = DEFAULT_TEMP;
+        targetTemps[id] = DEFAULT_TEMP;
+        groups[id] = group;
+        size++;
+        return id;
+    }
+
+    //double the capacity of every state array
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        power = Arrays.copyOf(power, capacity);
+        speeds = Arrays.copyOf(speeds, capacity);
+        currentTemps = Arrays.copyOf(currentTemps, capacity);
+        targetTemps = Arrays.copyOf(targetTemps, capacity);
+        groups = Arrays.copyOf(groups, capacity);
+    }
+
+    //getter for the number of devices
+    public int size() {
+        return size;
+    }
+
+    //getter for the type of a device
+    public byte getType(int id) {
+        return types[id];
+    }
+
+    //getter for the group of a device
+    public int getGroup(int id) {
+        return groups[id];
+    }
+
+    //check if a device is on (a fan is on when its speed is above 0)
+    public boolean isOn(int id) {
+        return types[id] == TYPE_FAN ? speeds[id] > 0 : power[id];
+    }
+
+    //getter for the speed of a fan
+    public int getSpeed(int id) {
+        return speeds[id];
+    }
+
+    //getter for the current temperature of an AC
+    public int getCurrentTemperature(int id) {
+        return currentTemps[id];
+    }
+
+    //getter for the target temperature of an AC
+    public int getTargetTemperature(int id) {
+        return targetTemps[id];
+    }
+
+    //toggle a light on/off
+    public void toggleLight(int id) {
+        checkType(id, TYPE_LIGHT);
+        if (forward(CommandServer.OP_TOGGLE_LIGHT, id, 0)) return;
+        power[id] = !power[id];
+        fireChanged(id, FIELD_POWER);
+        log(EventJournal.EVENT_POWER, id, power[id] ? 1 : 0);
+    }
+
+    //set the speed of a fan, values outside 0-2 are ignored
+    public void setFanSpeed(int id, int speed) {
+        checkType(id, TYPE_FAN);
+        if (forward(CommandServer.OP_SET_SPEED, id, speed)) return;
+        if (speed >= 0 && speed <= MAX_SPEED) {
+            speeds[id] = (byte) speed;
+            fireChanged(id, FIELD_SPEED);
+            log(EventJournal.EVENT_SPEED, id, speed);
+        }
+    }
+
+    //set the target temperature of an AC, values outside 16-30 are ignored
+    public void setTargetTemperature(int id, int temperature) {
+        checkType(id, TYPE_AC);
+        if (forward(CommandServer.OP_SET_TARGET, id, temperature)) return;
+        if (temperature >= MIN_TEMP && temperature <= MAX_TEMP) {
+            targetTemps[id] = (byte) temperature;
+            fireChanged(id, FIELD_TARGET_TEMP);
+            log(EventJournal.EVENT_TARGET, id, temperature);
+        }
+    }
+
+    //toggle the power of an AC
+    public void toggleAirConditioner(int id) {
+        checkType(id, TYPE_AC);
+        if (forward(CommandServer.OP_TOGGLE_AC, id, 0)) return;
+        power[id] = !power[id];
+        fireChanged(id, FIELD_POWER);
+        log(EventJournal.EVENT_POWER, id, power[id] ? 1 : 0);
+    }
+
+    //turn a device off for system updates, devices already off are left alone
+    public void turnOff(int id) {
+        if (forward(CommandServer.OP_TURN_OFF, id, 0)) return;
+        switch (types[id]) {
+            case TYPE_LIGHT:
+                if (power[id]) {
+                    power[id] = false;
+                    fireChanged(id, FIELD_POWER);
+                    log(EventJournal.EVENT_MAINTENANCE_OFF, id, 0);
+                }
+                break;
+            case TYPE_FAN:
+                if (speeds[id] != 0) {
+                    speeds[id] = 0;
+                    fireChanged(id, FIELD_SPEED);
+                    log(EventJournal.EVENT_MAINTENANCE_OFF, id, 0);
+                }
+                break;
+            default:
+                if (power[id]) {
+                    power[id] = false;
+                    fireChanged(id, FIELD_POWER);
+                    log(EventJournal.EVENT_MAINTENANCE_OFF, id, 0);
+                }
+                break;
+        }
+    }
+
+    //bring a device to a given state, only fields that differ are fired and journaled (used by followers replaying the replicated log)
+    public void setState(int id, boolean on, int speed, int currentTemperature, int targetTemperature) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown device id: " + id);
+        }
+        if (types[id] != TYPE_FAN && power[id] != on) {
+            power[id] = on;
+            fireChanged(id, FIELD_POWER);
+            log(EventJournal.EVENT_POWER, id, on ? 1 : 0);
+        }
+        if (speeds[id] != speed) {
+            speeds[id] = (byte) speed;
+            fireChanged(id, FIELD_SPEED);
+            log(EventJournal.EVENT_SPEED, id, speed);
+        }
+        if (targetTemps[id] != targetTemperature) {
+            targetTemps[id] = (byte) targetTemperature;
+            fireChanged(id, FIELD_TARGET_TEMP);
+            log(EventJournal.EVENT_TARGET, id, targetTemperature);
+        }
+        if (currentTemps[id] != currentTemperature) {
+            int event = currentTemperature > currentTemps[id] ? EventJournal.EVENT_HEATING : EventJournal.EVENT_COOLING;
+            currentTemps[id] = (byte) currentTemperature;
+            fireChanged(id, FIELD_CURRENT_TEMP);
+            log(event, id, currentTemperature);
+        }
+    }
+
+    //move the current temperature of an AC 1°C toward its target, returns false if the AC is off
+    //an AC already at its target is left alone, nothing is fired or journaled
+    public boolean adjustTemperature(int id) {
+        checkType(id, TYPE_AC);
+        if (!power[id]) return false;
+        if (forward(CommandServer.OP_ADJUST, id, 0)) return true;
+        if (currentTemps[id] < targetTemps[id]) {
+            currentTemps[id]++;
+            fireChanged(id, FIELD_CURRENT_TEMP);
+            log(EventJournal.EVENT_HEATING, id, currentTemps[id]);
+        }
+        else if (currentTemps[id] > targetTemps[id]) {
+            currentTemps[id]--;
+            fireChanged(id, FIELD_CURRENT_TEMP);
+            log(EventJournal.EVENT_COOLING, id, currentTemps[id]);
+        }
+        return true;
+    }
+
+    //apply a bulk operation to the devices in [fromId, toId) matching a type and group, returns how many changed
+    //nothing is fired or journaled here, call bulkApplied once the whole operation is done (applyBulkAndNotify does both); call on the writer thread,
+    //other threads scan with selectBulk and leave the writes to applySelected; with a remote, the changes are forwarded
+    public int applyBulk(int operation, int type, int group, int value, int fromId, int toId) {
+        byte[] types = this.types;
+        boolean[] power = this.power;
+        byte[] speeds = this.speeds;
+        byte[] targetTemps = this.targetTemps;
+        int[] groups = this.groups;
+        byte newValue = (byte) value;
+        int changed = 0;
+        for (int id = fromId; id < toId; id++) {
+            if (type != ANY_TYPE && types[id] != type) continue;
+            if (group != ALL_GROUPS && groups[id] != group) continue;
+            if (remote != null) {
+                if (differs(operation, id, newValue)) {
+                    forwardBulk(operation, id, value);
+                    changed++;
+                }
+                continue;
+            }
+            switch (operation) {
+                case BULK_TURN_OFF:
+                    if (types[id] == TYPE_FAN) {
+                        if (speeds[id] != 0) {
+                            speeds[id] = 0;
+                            changed++;
+                        }
+                    }
+                    else if (power[id]) {
+                        power[id] = false;
+                        changed++;
+                    }
+                    break;
+                case BULK_SET_SPEED:
+                    if (types[id] == TYPE_FAN && speeds[id] != newValue) {
+                        speeds[id] = newValue;
+                        changed++;
+                    }
+                    break;
+                case BULK_SET_TARGET:
+                    if (types[id] == TYPE_AC && targetTemps[id] != newValue) {
+                        targetTemps[id] = newValue;
+                        changed++;
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown bulk operation: " + operation);
+            }
+        }
+        return changed;
+    }
+
+    //mark the devices in [fromId, toId) a bulk operation would change, bit i of the selection is device fromId + i
+    //only reads, so any thread may scan while the writer keeps changing devices (type and group never change once a
+    //device is added); the state read may be stale, applySelected checks every selected device again
+    public int selectBulk(int operation, int type, int group, int value, int fromId, int toId, long[] selection) {
+        byte[] types = this.types;
+        int[] groups = this.groups;
+        byte newValue = (byte) value;
+        int selected = 0;
+        for (int id = fromId; id < toId; id++) {
+            if (type != ANY_TYPE && types[id] != type) continue;
+            if (group != ALL_GROUPS && groups[id] != group) continue;
+            if (differs(operation, id, newValue)) {
+                int bit = id - fromId;
+                selection[bit >>> 6] |= 1L << bit;
+                selected++;
+            }
+        }
+        return selected;
+    }
+
+    //apply a bulk operation to the devices picked by selectBulk, returns how many changed, call on the writer thread
+    //nothing is fired or journaled here, call bulkApplied once the whole operation is done
+    public int applySelected(int operation, int value, int fromId, long[] selection) {
+        byte newValue = (byte) value;
+        int changed = 0;
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word];
+            while (bits != 0) {
+                int id = fromId + (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (!differs(operation, id, newValue)) continue;
+                changed++;
+                if (remote != null) {
+                    forwardBulk(operation, id, value);
+                    continue;
+                }
+                switch (operation) {
+                    case BULK_TURN_OFF:
+                        if (types[id] == TYPE_FAN) speeds[id] = 0;
+                        else power[id] = false;
+                        break;
+                    case BULK_SET_SPEED:
+                        speeds[id] = newValue;
+                        break;
+                    default:
+                        targetTemps[id] = newValue;
+                        break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    //whether a bulk operation would change a device
+    private boolean differs(int operation, int id, byte value) {
+        switch (operation) {
+            case BULK_TURN_OFF:
+                return types[id] == TYPE_FAN ? speeds[id] != 0 : power[id];
+            case BULK_SET_SPEED:
+                return types[id] == TYPE_FAN && speeds[id] != value;
+            case BULK_SET_TARGET:
+                return types[id] == TYPE_AC && targetTemps[id] != value;
+            default:
+                throw new IllegalArgumentException("Unknown bulk operation: " + operation);
+        }
+    }
+
+    //tell listeners and the journal about a finished bulk operation in one event, call on the writer thread
+    //with a remote the devices change one by one as the owner reports them, so there is nothing to tell yet
+    public void bulkApplied(int operation, int type, int group, int value, int fromId, int toId, int changed) {
+        if (remote != null) return;
+        changeCount++;
+        DeviceListener[] current = listeners;
+        for (DeviceListener listener : current) {
+            listener.bulkApplied(operation, type, group, value, fromId, toId);
+        }
+        EventJournal currentJournal = journal;
+        if (currentJournal != null) {
+            int event = operation == BULK_TURN_OFF ? EventJournal.EVENT_BULK_OFF
+                : operation == BULK_SET_SPEED ? EventJournal.EVENT_BULK_SPEED : EventJournal.EVENT_BULK_TARGET;
+            currentJournal.record(event, group, type, operation == BULK_TURN_OFF ? changed : value);
+        }
+    }
+
+    //apply a bulk operation to [fromId, toId) and tell listeners and the journal in one event, returns how many changed
+    public int applyBulkAndNotify(int operation, int type, int group, int value, int fromId, int toId) {
+        int changed = applyBulk(operation, type, group, value, fromId, toId);
+        bulkApplied(operation, type, group, value, fromId, toId, changed);
+        return changed;
+    }
+
+    //getter for status as a string for logging/debugging, pollers should use TelemetryEncoder to avoid allocating
+    public String getStatus(int id) {
+        return TelemetryEncoder.toText(this, id);
+    }
+
+    //getter for the display name of a device type
+    public static String getTypeName(byte type) {
+        return TYPE_NAMES[type];
+    }
+
+    //getter for the number of changes made so far
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    //copy the state of every device into a snapshot, call on the writer thread
+    public synchronized StateSnapshot captureSnapshot() {
+        return new StateSnapshot(size, Arrays.copyOf(types, size), Arrays.copyOf(power, size), Arrays.copyOf(speeds, size),
+            Arrays.copyOf(currentTemps, size), Arrays.copyOf(targetTemps, size), Arrays.copyOf(groups, size),
+            new ArrayList<>(groupNames), System.currentTimeMillis());
+    }
+
+    //replace every device and group with the ones in a snapshot, call before anything observes the registry
+    //the registry takes over the snapshot's arrays instead of copying them, restore a copy() to keep the snapshot
+    public synchronized void restoreSnapshot(StateSnapshot snapshot) {
+        int capacity = Math.max(snapshot.size, 1);
+        types = fit(snapshot.types, capacity);
+        power = snapshot.power.length >= capacity ? snapshot.power : Arrays.copyOf(snapshot.power, capacity);
+        speeds = fit(snapshot.speeds, capacity);
+        currentTemps = fit(snapshot.currentTemps, capacity);
+        targetTemps = fit(snapshot.targetTemps, capacity);
+        groups = snapshot.groups.length >= capacity ? snapshot.groups : Arrays.copyOf(snapshot.groups, capacity);
+        groupNames.clear();
+        groupNames.addAll(snapshot.groupNames);
+        size = snapshot.size;
+        changeCount++;
+    }
+
+    //an array as is if it holds capacity entries, otherwise a copy that does
+    private static byte[] fit(byte[] array, int capacity) {
+        return array.length >= capacity ? array : Arrays.copyOf(array, capacity);
+    }
+
+    //send the setters' commands to a controller process instead of applying them, null to apply them here again
+    public void setRemote(LongConsumer remote) {
+        this.remote = remote;
+    }
+
+    //hand a command to the remote controller, returns false if there is none and it should be applied here
+    private boolean forward(int op, int id, int argument) {
+        LongConsumer current = remote;
+        if (current == null) return false;
+        current.accept(CommandServer.encode(op, id, argument));
+        return true;
+    }
+
+    //hand one device's part of a bulk operation to the remote controller
+    private void forwardBulk(int operation, int id, int value) {
+        switch (operation) {
+            case BULK_TURN_OFF:
+                forward(CommandServer.OP_TURN_OFF, id, 0);
+                break;
+            case BULK_SET_SPEED:
+                forward(CommandServer.OP_SET_SPEED, id, value);
+                break;
+            default:
+                forward(CommandServer.OP_SET_TARGET, id, value);
+                break;
+        }
+    }
+
+    //set the journal that records state changes, null to stop recording
+    public void setJournal(EventJournal journal) {
+        this.journal = journal;
+    }
+
+    //record a state change in the journal, if there is one
+    private void log(int event, int id, int value) {
+        EventJournal current = journal;
+        if (current != null) {
+            current.record(event, id, types[id], value);
+        }
+    }
+
+    //register a listener for state changes
+    public synchronized void addListener(DeviceListener listener) {
+        DeviceListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    //unregister a listener
+    public synchronized void removeListener(DeviceListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                DeviceListener[] updated = new DeviceListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    //notify every listener of a change
+    private void fireChanged(int id, int field) {
+        changeCount++;
+        DeviceListener[] current = listeners;
+        for (DeviceListener listener : current) {
+            listener.deviceChanged(id, field);
+        }
+    }
+
+    //make sure a device id exists and has the expected type
+    private void checkType(int id, byte type) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown device id: " + id);
+        }
+        if (types[id] != type) {
+            throw new IllegalArgumentException("Device " + id + " is a " + TYPE_NAMES[types[id]] + ", not a " + TYPE_NAMES[type]);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+//Device Snapshot - immutable state of one device at a point in time, published by its DeviceActor
+//safe to hand to any thread, a higher version is a newer state of the same device
+
+public final class DeviceSnapshot {
+    private final int deviceId;
+    private final byte type;
+    private final boolean on;
+    private final int speed;
+    private final int currentTemperature;
+    private final int targetTemperature;
+    private final long version;
+
+    //constructor
+    public DeviceSnapshot(int deviceId, byte type, boolean on, int speed, int currentTemperature, int targetTemperature, long version) {
+        this.deviceId = deviceId;
+        this.type = type;
+        this.on = on;
+        this.speed = speed;
+        this.currentTemperature = currentTemperature;
+        this.targetTemperature = targetTemperature;
+        this.version = version;
+    }
+
+    //getter for the device id
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    //getter for the device type
+    public byte getType() {
+        return type;
+    }
+
+    //check if the device is on (a fan is on when its speed is above 0)
+    public boolean isOn() {
+        return on;
+    }
+
+    //getter for the speed of a fan
+    public int getSpeed() {
+        return speed;
+    }
+
+    //getter for the current temperature of an AC
+    public int getCurrentTemperature() {
+        return currentTemperature;
+    }
+
+    //getter for the target temperature of an AC
+    public int getTargetTemperature() {
+        return targetTemperature;
+    }
+
+    //getter for the version, incremented by the actor on every published change
+    public long getVersion() {
+        return version;
+    }
+}
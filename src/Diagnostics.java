@@ -0,0 +1,234 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.swing.SwingUtilities;
+
+//Diagnostics - always-on runtime instrumentation: how long EDT tasks wait in the event queue, how late the clock
+//ticks fire and how long a device change takes to be redrawn
+//recording is one histogram increment (lock-free) plus a striped counter, tens of nanoseconds, so it stays on in production
+//published as an MBean and shown by the DiagnosticsOverlay
+
+public class Diagnostics implements DiagnosticsMBean {
+    public static final String OBJECT_NAME = "ApplianceControl:type=Diagnostics";
+
+    private final LatencyHistogram edtQueue = new LatencyHistogram();
+    private final LatencyHistogram clockLateness = new LatencyHistogram();
+    private final LatencyHistogram changeToRender = new LatencyHistogram();
+    private final LongAdder edtTasks = new LongAdder();
+    private final LongAdder clockTicks = new LongAdder();
+    private volatile long firstPaintMillis;
+    private volatile long startupReadyMillis;
+
+    //sources of the counters reported alongside the histograms, any may be null
+    private volatile DeviceRegistry registry;
+    private volatile TimingWheel scheduler;
+    private volatile RenderPipeline pipeline;
+
+    private ObjectName registeredName;
+
+    //start reporting on the given components and measure change-to-render time in the pipeline
+    public void monitor(DeviceRegistry registry, TimingWheel scheduler, RenderPipeline pipeline) {
+        this.registry = registry;
+        this.scheduler = scheduler;
+        this.pipeline = pipeline;
+        if (pipeline != null) {
+            pipeline.setRenderLatency(changeToRender);
+        }
+    }
+
+    //executor that runs tasks on the EDT like SwingUtilities.invokeLater and records how long each waited in the queue
+    public Executor edtExecutor() {
+        return task -> {
+            long queuedAt = System.nanoTime();
+            SwingUtilities.invokeLater(() -> {
+                edtQueue.record(System.nanoTime() - queuedAt);
+                edtTasks.increment();
+                task.run();
+            });
+        };
+    }
+
+    //record one clock tick that fired the given time after it was due
+    public void recordClockTick(long latenessNanos) {
+        clockLateness.record(latenessNanos);
+        clockTicks.increment();
+    }
+
+    //record the startup times, milliseconds after the JVM started
+    public void recordStartup(long firstPaintMillis, long readyMillis) {
+        this.firstPaintMillis = firstPaintMillis;
+        this.startupReadyMillis = readyMillis;
+    }
+
+    //register the MBean with the platform server, failures are reported and otherwise ignored
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            registeredName = name;
+        } catch (JMException e) {
+            System.err.println("Failed to register diagnostics MBean: " + e.getMessage());
+        }
+    }
+
+    //remove the MBean from the platform server
+    public void unregister() {
+        if (registeredName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            System.err.println("Failed to unregister diagnostics MBean: " + e.getMessage());
+        }
+        registeredName = null;
+    }
+
+    //getter for the EDT queue wait histogram
+    public LatencyHistogram getEdtQueueLatency() {
+        return edtQueue;
+    }
+
+    //getter for the clock tick lateness histogram
+    public LatencyHistogram getClockLateness() {
+        return clockLateness;
+    }
+
+    //getter for the change-to-render histogram
+    public LatencyHistogram getChangeToRenderLatency() {
+        return changeToRender;
+    }
+
+    @Override
+    public long getEdtQueueP50Micros() {
+        return micros(edtQueue.getPercentile(50));
+    }
+
+    @Override
+    public long getEdtQueueP99Micros() {
+        return micros(edtQueue.getPercentile(99));
+    }
+
+    @Override
+    public long getEdtQueueMaxMicros() {
+        return micros(edtQueue.getMax());
+    }
+
+    @Override
+    public long getEdtTaskCount() {
+        return edtTasks.sum();
+    }
+
+    @Override
+    public long getClockLatenessP50Micros() {
+        return micros(clockLateness.getPercentile(50));
+    }
+
+    @Override
+    public long getClockLatenessP99Micros() {
+        return micros(clockLateness.getPercentile(99));
+    }
+
+    @Override
+    public long getClockLatenessMaxMicros() {
+        return micros(clockLateness.getMax());
+    }
+
+    @Override
+    public long getClockTickCount() {
+        return clockTicks.sum();
+    }
+
+    @Override
+    public long getChangeToRenderP50Micros() {
+        return micros(changeToRender.getPercentile(50));
+    }
+
+    @Override
+    public long getChangeToRenderP99Micros() {
+        return micros(changeToRender.getPercentile(99));
+    }
+
+    @Override
+    public long getChangeToRenderMaxMicros() {
+        return micros(changeToRender.getMax());
+    }
+
+    @Override
+    public long getDeviceChangeCount() {
+        DeviceRegistry current = registry;
+        return current == null ? 0 : current.getChangeCount();
+    }
+
+    @Override
+    public long getRenderCount() {
+        RenderPipeline current = pipeline;
+        return current == null ? 0 : current.getRenderCount();
+    }
+
+    @Override
+    public long getFrameCount() {
+        RenderPipeline current = pipeline;
+        return current == null ? 0 : current.getFrameCount();
+    }
+
+    @Override
+    public long getFramesOverBudget() {
+        RenderPipeline current = pipeline;
+        return current == null ? 0 : current.getFramesOverBudget();
+    }
+
+    @Override
+    public long getSchedulerJitterMicros() {
+        TimingWheel current = scheduler;
+        return current == null ? 0 : micros(current.getJitterNanos());
+    }
+
+    @Override
+    public long getSchedulerMaxLagMicros() {
+        TimingWheel current = scheduler;
+        return current == null ? 0 : micros(current.getMaxTickLagNanos());
+    }
+
+    @Override
+    public long getFirstPaintMillis() {
+        return firstPaintMillis;
+    }
+
+    @Override
+    public long getStartupReadyMillis() {
+        return startupReadyMillis;
+    }
+
+    @Override
+    public void reset() {
+        edtQueue.reset();
+        clockLateness.reset();
+        changeToRender.reset();
+        edtTasks.reset();
+        clockTicks.reset();
+    }
+
+    //getter for the metrics as lines of text, used by the overlay
+    public String[] getLines() {
+        return new String[] {
+            "EDT queue     " + edtQueue.getSummary(),
+            "Clock late    " + clockLateness.getSummary(),
+            "Change->paint " + changeToRender.getSummary(),
+            "Frames " + getFrameCount() + " (" + getFramesOverBudget() + " over budget) | renders " + getRenderCount()
+                + " | changes " + getDeviceChangeCount(),
+            "Scheduler jitter " + getSchedulerJitterMicros() + "us | max lag " + getSchedulerMaxLagMicros() + "us",
+            "Startup first paint " + firstPaintMillis + "ms | ready " + startupReadyMillis + "ms"
+        };
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
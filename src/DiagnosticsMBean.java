@@ -0,0 +1,32 @@
+//Diagnostics MBean - management interface of Diagnostics, visible in JConsole/VisualVM under ApplianceControl
+//latencies are in microseconds, startup times in milliseconds
+
+public interface DiagnosticsMBean {
+    long getEdtQueueP50Micros();
+    long getEdtQueueP99Micros();
+    long getEdtQueueMaxMicros();
+    long getEdtTaskCount();
+
+    long getClockLatenessP50Micros();
+    long getClockLatenessP99Micros();
+    long getClockLatenessMaxMicros();
+    long getClockTickCount();
+
+    long getChangeToRenderP50Micros();
+    long getChangeToRenderP99Micros();
+    long getChangeToRenderMaxMicros();
+
+    long getDeviceChangeCount();
+    long getRenderCount();
+    long getFrameCount();
+    long getFramesOverBudget();
+    long getSchedulerJitterMicros();
+    long getSchedulerMaxLagMicros();
+
+    //milliseconds after the JVM started
+    long getFirstPaintMillis();
+    long getStartupReadyMillis();
+
+    //clear the histograms and counters
+    void reset();
+}
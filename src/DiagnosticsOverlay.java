@@ -0,0 +1,63 @@
+import javax.swing.*;
+import java.awt.*;
+
+//Diagnostics Overlay - translucent box in the top right corner of the window showing the live Diagnostics metrics
+//installed as the frame's glass pane; it has no mouse listeners so clicks go through to the panels below
+
+public class DiagnosticsOverlay extends JComponent {
+    public static final long REFRESH_MILLIS = 500;
+
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final int PADDING = 8;
+
+    private final Diagnostics diagnostics;
+    private String[] lines = new String[0];
+
+    //constructor
+    public DiagnosticsOverlay(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        setOpaque(false);
+        setFont(Theme.DIAGNOSTICS_FONT);
+    }
+
+    //read the metrics again and repaint, call on the EDT (does nothing while hidden)
+    public void refresh() {
+        if (!isVisible()) return;
+        lines = diagnostics.getLines();
+        repaint();
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (visible) {
+            refresh();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (lines.length == 0) return;
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        FontMetrics metrics = g2.getFontMetrics(getFont());
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        int boxWidth = width + 2 * PADDING;
+        int boxHeight = lines.length * metrics.getHeight() + 2 * PADDING;
+        int x = getWidth() - boxWidth - PADDING;
+        int y = PADDING;
+        g2.setColor(BACKGROUND);
+        g2.fillRoundRect(x, y, boxWidth, boxHeight, 8, 8);
+        g2.setColor(Color.WHITE);
+        g2.setFont(getFont());
+        int baseline = y + PADDING + metrics.getAscent();
+        for (String line : lines) {
+            g2.drawString(line, x + PADDING, baseline);
+            baseline += metrics.getHeight();
+        }
+        g2.dispose();
+    }
+}
@@ -0,0 +1,237 @@
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+//Energy Accountant - integrates the power draw of every device as its state changes
+//each change settles the energy used since the previous change into ring-bucket windows (last minute, hour and day)
+//kept per device, per group and for the whole fleet, so memory is constant and nothing rescans the devices;
+//the fleet's current draw is a running total, an O(1) read
+//windows roll with bucket granularity: the last minute in 10 s buckets, the hour in 5 min buckets, the day in hours
+//call everything on the registry's writer thread (the EDT in the desktop app)
+
+public class EnergyAccountant implements DeviceListener {
+    //power model in watts
+    public static final int LIGHT_WATTS = 60;
+    public static final int[] FAN_WATTS = {0, 40, 75};
+    public static final int AC_IDLE_WATTS = 100;    //on and at its target, fan only
+    public static final int AC_ACTIVE_WATTS = 1500; //heating or cooling toward its target
+
+    //windows
+    public static final int WINDOW_MINUTE = 0;
+    public static final int WINDOW_HOUR = 1;
+    public static final int WINDOW_DAY = 2;
+    private static final long[] BUCKET_MILLIS = {10_000, 300_000, 3_600_000};
+    private static final int[] BUCKETS = {6, 12, 24};
+
+    private final DeviceRegistry registry;
+    private final LongSupplier nanoTime;
+    private final Meters devices;
+    private final Meters groups;
+    private final Meters fleet;
+    private int[] deviceWatts;
+    private long[] groupWatts;
+    private long fleetWatts;
+
+    //constructor, starts accounting from the registry's current state
+    public EnergyAccountant(DeviceRegistry registry) {
+        this(registry, System::nanoTime);
+    }
+
+    //constructor that takes time from a scheduler, so energy follows simulated time too
+    public EnergyAccountant(DeviceRegistry registry, Scheduler scheduler) {
+        this(registry, scheduler::nanoTime);
+    }
+
+    private EnergyAccountant(DeviceRegistry registry, LongSupplier nanoTime) {
+        this.registry = registry;
+        this.nanoTime = nanoTime;
+        long now = now();
+        int size = Math.max(registry.size(), 1);
+        int groupCount = Math.max(registry.getGroupCount(), 1);
+        devices = new Meters(size, now);
+        groups = new Meters(groupCount, now);
+        fleet = new Meters(1, now);
+        deviceWatts = new int[size];
+        groupWatts = new long[groupCount];
+        for (int id = 0; id < registry.size(); id++) {
+            int watts = drawOf(id);
+            deviceWatts[id] = watts;
+            groupWatts[registry.getGroup(id)] += watts;
+            fleetWatts += watts;
+        }
+        registry.addListener(this);
+    }
+
+    //power draw of a device in its current state
+    private int drawOf(int id) {
+        switch (registry.getType(id)) {
+            case DeviceRegistry.TYPE_LIGHT:
+                return registry.isOn(id) ? LIGHT_WATTS : 0;
+            case DeviceRegistry.TYPE_FAN:
+                return FAN_WATTS[registry.getSpeed(id)];
+            default:
+                if (!registry.isOn(id)) return 0;
+                return registry.getCurrentTemperature(id) != registry.getTargetTemperature(id) ? AC_ACTIVE_WATTS : AC_IDLE_WATTS;
+        }
+    }
+
+    //settle the energy used so far at the old draw, then switch to the new draw
+    @Override
+    public void deviceChanged(int deviceId, int field) {
+        update(deviceId, now());
+    }
+
+    //recompute every device touched by a bulk operation
+    @Override
+    public void devicesChanged(int fromId, int toId) {
+        long now = now();
+        for (int id = fromId; id < toId; id++) {
+            update(id, now);
+        }
+    }
+
+    private void update(int id, long now) {
+        ensureCapacity(id);
+        int watts = drawOf(id);
+        int old = deviceWatts[id];
+        if (watts == old) return;
+        int group = registry.getGroup(id);
+        devices.settle(id, now, old);
+        groups.settle(group, now, groupWatts[group]);
+        fleet.settle(0, now, fleetWatts);
+        deviceWatts[id] = watts;
+        groupWatts[group] += watts - old;
+        fleetWatts += watts - old;
+    }
+
+    //grow the meters when devices or groups were added after construction
+    private void ensureCapacity(int id) {
+        if (id >= deviceWatts.length) {
+            int capacity = Math.max(id + 1, deviceWatts.length * 2);
+            deviceWatts = Arrays.copyOf(deviceWatts, capacity);
+            devices.grow(capacity, now());
+        }
+        int group = registry.getGroup(id);
+        if (group >= groupWatts.length) {
+            int capacity = Math.max(group + 1, groupWatts.length * 2);
+            groupWatts = Arrays.copyOf(groupWatts, capacity);
+            groups.grow(capacity, now());
+        }
+    }
+
+    //getter for the current draw of the whole fleet in kilowatts, O(1)
+    public double getFleetKilowatts() {
+        return fleetWatts / 1000.0;
+    }
+
+    //getter for the current draw of a device in watts
+    public int getDeviceWatts(int id) {
+        return id < deviceWatts.length ? deviceWatts[id] : 0;
+    }
+
+    //getter for the current draw of a group in watts
+    public long getGroupWatts(int group) {
+        return group < groupWatts.length ? groupWatts[group] : 0;
+    }
+
+    //getter for the energy a device used in a rolling window (WINDOW_*), in watt-hours
+    public double getDeviceWattHours(int id, int window) {
+        if (id >= deviceWatts.length) return 0;
+        long now = now();
+        devices.settle(id, now, deviceWatts[id]);
+        return toWattHours(devices.sum(id, window));
+    }
+
+    //getter for the energy a group used in a rolling window, in watt-hours
+    public double getGroupWattHours(int group, int window) {
+        if (group >= groupWatts.length) return 0;
+        long now = now();
+        groups.settle(group, now, groupWatts[group]);
+        return toWattHours(groups.sum(group, window));
+    }
+
+    //getter for the energy the fleet used in a rolling window, in watt-hours
+    public double getFleetWattHours(int window) {
+        fleet.settle(0, now(), fleetWatts);
+        return toWattHours(fleet.sum(0, window));
+    }
+
+    //stop observing the registry
+    public void shutdown() {
+        registry.removeListener(this);
+    }
+
+    private static double toWattHours(long wattMillis) {
+        return wattMillis / 3_600_000.0;
+    }
+
+    private long now() {
+        return nanoTime.getAsLong() / 1_000_000;
+    }
+
+    //ring-bucket windows for a set of meters, energy is kept in watt-milliseconds (42 longs per meter)
+    private static final class Meters {
+        private final long[][] buckets = new long[BUCKETS.length][];
+        private long[] settledAt;
+
+        Meters(int count, long now) {
+            for (int window = 0; window < BUCKETS.length; window++) {
+                buckets[window] = new long[count * BUCKETS[window]];
+            }
+            settledAt = new long[count];
+            Arrays.fill(settledAt, now);
+        }
+
+        void grow(int count, long now) {
+            int old = settledAt.length;
+            for (int window = 0; window < BUCKETS.length; window++) {
+                buckets[window] = Arrays.copyOf(buckets[window], count * BUCKETS[window]);
+            }
+            settledAt = Arrays.copyOf(settledAt, count);
+            Arrays.fill(settledAt, old, count, now);
+        }
+
+        //credit the energy used at a constant draw since the last settle up to now
+        void settle(int meter, long now, long watts) {
+            long from = settledAt[meter];
+            if (now <= from) return;
+            for (int window = 0; window < BUCKETS.length; window++) {
+                credit(window, meter, from, now, watts);
+            }
+            settledAt[meter] = now;
+        }
+
+        private void credit(int window, int meter, long from, long to, long watts) {
+            long size = BUCKET_MILLIS[window];
+            int count = BUCKETS[window];
+            long[] slots = buckets[window];
+            int base = meter * count;
+            long fromBucket = from / size;
+            long toBucket = to / size;
+            //buckets entered for the first time start empty, at most a full ring of them
+            for (long bucket = Math.max(fromBucket + 1, toBucket - count + 1); bucket <= toBucket; bucket++) {
+                slots[base + (int) (bucket % count)] = 0;
+            }
+            if (watts == 0) return;
+            //energy older than the ring would fall out anyway
+            if (toBucket - fromBucket >= count) {
+                fromBucket = toBucket - count + 1;
+                from = fromBucket * size;
+            }
+            for (long bucket = fromBucket; bucket <= toBucket; bucket++) {
+                long start = Math.max(from, bucket * size);
+                long end = Math.min(to, (bucket + 1) * size);
+                slots[base + (int) (bucket % count)] += watts * (end - start);
+            }
+        }
+
+        long sum(int meter, int window) {
+            int count = BUCKETS[window];
+            long[] slots = buckets[window];
+            long total = 0;
+            for (int i = meter * count; i < (meter + 1) * count; i++) {
+                total += slots[i];
+            }
+            return total;
+        }
+    }
+}
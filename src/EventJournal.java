@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+//Event Journal - structured replacement for System.out.println on every state change
+//producers copy fixed-size records into a lock-free ring buffer without allocating,
+//a background thread appends them in batches to memory-mapped segment files, decode them with JournalReader
+//only the newest segments are kept (-Djournal.maxSegments, 0 keeps all), older ones are deleted when a segment is opened
+
+public class EventJournal {
+    //event types
+    public static final int EVENT_POWER = 1;       //value: 1 on, 0 off
+    public static final int EVENT_SPEED = 2;       //value: fan speed
+    public static final int EVENT_TARGET = 3;      //value: target temperature
+    public static final int EVENT_HEATING = 4;     //value: new current temperature
+    public static final int EVENT_COOLING = 5;     //value: new current temperature
+    public static final int EVENT_MAINTENANCE_OFF = 6; //device turned off by a system update
+    public static final int EVENT_SYSTEM = 7;      //value: one of the SYSTEM_* codes, device is -1
+    public static final int EVENT_BULK_OFF = 8;    //value: devices turned off, device is the group and type the selected type (-1 for all)
+    public static final int EVENT_BULK_SPEED = 9;  //value: fan speed, device is the group (-1 for all)
+    public static final int EVENT_BULK_TARGET = 10; //value: target temperature, device is the group (-1 for all)
+
+    //system event codes
+    public static final int SYSTEM_STARTED = 0;
+    public static final int SYSTEM_UPDATE_STARTED = 1;
+    public static final int SYSTEM_DEVICES_OFF = 2;
+    public static final int SYSTEM_UPDATE_COMPLETE = 3;
+    public static final int SYSTEM_SHUTDOWN = 4;
+
+    //file layout: 16 byte segment header, then 32 byte records (time, event|device, type|value, sequence)
+    public static final int MAGIC = 0x4143534A; //"ACSJ"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 32;
+    private static final int RECORD_LONGS = RECORD_BYTES / Long.BYTES;
+
+    private static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final int DEFAULT_MAX_SEGMENTS = Integer.getInteger("journal.maxSegments", 8);
+    private static final int DEFAULT_RING_SIZE = 1 << 16;
+    private static final int MAX_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+
+    //ring buffer, slot i holds records with sequence i mod size
+    private final long[] ring;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    //clock, epoch nanoseconds derived from the monotonic clock so records are ordered
+    private final long baseEpochNanos;
+    private final long baseMonoNanos;
+
+    //segment files
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private int segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long written;
+
+    //constructor with default sizes, opens a new segment in the directory
+    public EventJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_RING_SIZE, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    //constructor, ring size must be a power of two, the directory keeps at most maxSegments segments (0 for no limit)
+    public EventJournal(Path directory, int ringSize, long segmentBytes, int maxSegments) throws IOException {
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+        }
+        if (segmentBytes < HEADER_BYTES + RECORD_BYTES) {
+            throw new IllegalArgumentException("Segment too small: " + segmentBytes);
+        }
+        if (maxSegments < 0) {
+            throw new IllegalArgumentException("Segment limit must not be negative: " + maxSegments);
+        }
+        this.ring = new long[ringSize * RECORD_LONGS];
+        this.published = new AtomicLongArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            published.set(i, -1);
+        }
+        this.mask = ringSize - 1;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes - (segmentBytes - HEADER_BYTES) % RECORD_BYTES;
+        this.maxSegments = maxSegments;
+        this.baseEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.baseMonoNanos = System.nanoTime();
+        Files.createDirectories(directory);
+        this.segmentIndex = lastSegmentIndex(directory);
+        openNextSegment();
+        writer = new Thread(this::runWriter, "event-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    //record an event, never blocks or allocates, the event is dropped and counted if the ring is full
+    public void record(int event, int deviceId, int deviceType, int value) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= published.length()) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) (sequence & mask);
+        int base = slot * RECORD_LONGS;
+        ring[base] = baseEpochNanos + (System.nanoTime() - baseMonoNanos);
+        ring[base + 1] = ((long) event << 32) | (deviceId & 0xFFFFFFFFL);
+        ring[base + 2] = ((long) deviceType << 32) | (value & 0xFFFFFFFFL);
+        ring[base + 3] = sequence;
+        //publishing the sequence releases the record to the writer
+        published.lazySet(slot, sequence);
+    }
+
+    //record a system event
+    public void recordSystem(int code) {
+        record(EVENT_SYSTEM, -1, -1, code);
+    }
+
+    //writer loop, copies published records into the mapped segment in batches
+    private void runWriter() {
+        while (true) {
+            int batch = drain();
+            if (batch == 0) {
+                if (!running) break;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            segment.force();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close event journal: " + e.getMessage());
+        }
+    }
+
+    //write every record published so far, up to one batch
+    private int drain() {
+        long next = consumed.get();
+        int count = 0;
+        while (count < MAX_BATCH) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next) break;
+            if (segment.remaining() < RECORD_BYTES) {
+                try {
+                    openNextSegment();
+                } catch (IOException e) {
+                    System.err.println("Event journal stopped, cannot roll segment: " + e.getMessage());
+                    running = false;
+                    return 0;
+                }
+            }
+            int base = slot * RECORD_LONGS;
+            segment.putLong(ring[base]);
+            segment.putLong(ring[base + 1]);
+            segment.putLong(ring[base + 2]);
+            segment.putLong(ring[base + 3]);
+            next++;
+            count++;
+            //free the slot for producers as soon as it is copied
+            consumed.lazySet(next);
+        }
+        written += count;
+        return count;
+    }
+
+    //close the current segment, map a new one and delete the segments past the limit
+    private void openNextSegment() throws IOException {
+        if (channel != null) {
+            segment.force();
+            channel.close();
+        }
+        segmentIndex++;
+        Path file = directory.resolve(segmentName(segmentIndex));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        segment.putLong(TimeUnit.NANOSECONDS.toMillis(baseEpochNanos));
+        pruneSegments();
+    }
+
+    //delete segments older than the newest maxSegments, a failure only costs disk space so it is reported and skipped
+    private void pruneSegments() {
+        if (maxSegments == 0) return;
+        int oldestKept = segmentIndex - maxSegments + 1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                int index = segmentIndex(file);
+                if (index >= 0 && index < oldestKept) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        System.err.println("Failed to delete old journal segment " + file + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to prune event journal: " + e.getMessage());
+        }
+    }
+
+    //file name of a segment
+    static String segmentName(int index) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    //check if a path is a journal segment
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    //index of a segment file, -1 if the path is not one
+    private static int segmentIndex(Path file) {
+        if (!isSegment(file)) return -1;
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1; //not one of ours
+        }
+    }
+
+    //highest segment index already in the directory, 0 if none
+    private static int lastSegmentIndex(Path directory) throws IOException {
+        int last = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                last = Math.max(last, segmentIndex(file));
+            }
+        }
+        return last;
+    }
+
+    //stop accepting events, flush what is queued and close the segment
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //getter for the number of records written to disk
+    public long getWrittenCount() {
+        return written;
+    }
+
+    //getter for the number of events dropped because the ring was full
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    //getter for the directory holding the segments
+    public Path getDirectory() {
+        return directory;
+    }
+}
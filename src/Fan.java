@@ -8,21 +8,32 @@ import javax.swing.event.ChangeListener;
 //Fan component - controls a fan with speed settings: 0(off), 1(low), 2(high)
 
 public class Fan extends JPanel {
-    private int speed;
+    //state lives in the registry, the panel only observes it
+    private final DeviceRegistry registry;
+    private final int deviceId;
+
     private JSlider speedSlider;
     private JLabel statusLabel;
     private JLabel speedLabel;
     private JPanel indicatorPanel;
     private JButton turnOffButton;
 
-    private static final String[] SPEED_NAMES = {"OFF", "LOW", "HIGH"};
-    private static final Color[] SPEED_COLORS = {Color.decode("#EEF2FF"), Color.decode("#BEDBFF"), Color.decode("#51A2FF")};
-
-    //constructor
+    //constructor for a standalone fan
     public Fan() {
-        this.speed = 0;
+        this(DeviceRegistry.standalone(DeviceRegistry.TYPE_FAN));
+    }
+
+    private Fan(DeviceRegistry registry) {
+        this(registry, new RenderPipeline(registry, null), 0);
+    }
+
+    //constructor for a fan stored in a shared registry and drawn by a shared render pipeline
+    public Fan(DeviceRegistry registry, RenderPipeline pipeline, int deviceId) {
+        this.registry = registry;
+        this.deviceId = deviceId;
         initializeUI();
         updateDisplay();
+        pipeline.register(deviceId, this::updateDisplay);
     }
 
     private void initializeUI() {
@@ -32,7 +43,7 @@ public class Fan extends JPanel {
             "Fan",
             0,
             0,
-            new Font("Arial", Font.BOLD, 14)
+            Theme.PANEL_TITLE_FONT
         ));
         setBackground(Color.WHITE);
 
@@ -48,11 +59,11 @@ public class Fan extends JPanel {
 
         //status label
         statusLabel = new JLabel("OFF", SwingConstants.CENTER);
-        statusLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        statusLabel.setFont(Theme.STATUS_FONT);
 
         //speed label
         speedLabel = new JLabel("Speed: 0", SwingConstants.CENTER);
-        speedLabel.setFont(new Font("Arial", Font.PLAIN, 10));
+        speedLabel.setFont(Theme.SMALL_FONT);
 
         //layout the labels
         JPanel labelPanel = new JPanel(new GridLayout(2, 1));
@@ -80,7 +91,7 @@ public class Fan extends JPanel {
         speedSlider.addChangeListener(new ChangeListener() {
             @Override
             public void stateChanged(ChangeEvent e){
-                if (!speedSlider.getValueIsAdjusting()) {
+                if (!speedSlider.getValueIsAdjusting() && speedSlider.getValue() != registry.getSpeed(deviceId)) {
                     setSpeed(speedSlider.getValue());
                 }
             }
@@ -95,7 +106,7 @@ public class Fan extends JPanel {
 
         //turn off button
         turnOffButton = new JButton("Turn Off");
-        turnOffButton.setFont(new Font("Arial", Font.PLAIN, 12));
+        turnOffButton.setFont(Theme.BUTTON_FONT);
         turnOffButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -113,46 +124,46 @@ public class Fan extends JPanel {
 
     //set the fan speed
     public void setSpeed(int newSpeed) {
-        if (newSpeed >= 0 && newSpeed <= 2) {
-            this.speed = newSpeed;
-            speedSlider.setValue(newSpeed);
-            updateDisplay();
-            System.out.println("Fan speed set to: " + SPEED_NAMES[speed] + " (" + speed + ")");
-        }
+        registry.setFanSpeed(deviceId, newSpeed);
     }
 
     //turn off fan for system updates
     public void turnOff() {
-        if (speed != 0) {
-            setSpeed(0);
-            System.out.println("Fan turned OFF (system update)");
-        }
+        registry.turnOff(deviceId);
     }
 
     //getter for current speed of the fan
     public int getSpeed() {
-        return speed;
+        return registry.getSpeed(deviceId);
+    }
+
+    //getter for the id of the fan in the registry
+    public int getDeviceId() {
+        return deviceId;
     }
 
     //getter status as a string for logging/debugging
     public String getStatus() {
-        return "Fan: " + SPEED_NAMES[speed] + " (Speed " + speed + ")";
+        return registry.getStatus(deviceId);
     }
 
     //check if fan is currently running
     public boolean isOn() {
-        return speed > 0;
+        return registry.isOn(deviceId);
     }
 
     //update display based on current speed
     private void updateDisplay() {
+        int speed = registry.getSpeed(deviceId);
+        //keep the slider in sync with changes made outside the panel
+        if (speedSlider.getValue() != speed) {
+            speedSlider.setValue(speed);
+        }
         //update labels
-        statusLabel.setText(SPEED_NAMES[speed]);
-        speedLabel.setText("Speed: " + speed);
+        statusLabel.setText(Theme.SPEED_NAMES[speed]);
+        speedLabel.setText(Theme.SPEED_TEXTS[speed]);
         //update colors
-        statusLabel.setForeground(speed == 0 ? Color.decode("#E7000B") : Color.decode("#00A63E"));
-        indicatorPanel.setBackground(SPEED_COLORS[speed]);
-
-        repaint();
+        statusLabel.setForeground(speed == 0 ? Theme.OFF_TEXT : Theme.ON_TEXT);
+        indicatorPanel.setBackground(Theme.SPEED_COLORS[speed]);
     }
 }
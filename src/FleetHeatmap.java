@@ -0,0 +1,442 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+//Fleet Heatmap - the whole fleet on one canvas, one colored cell per device, for fleets too large for panels or rows
+//cells are drawn from the registry's primitive state straight into the pixels of one reused image, a state change
+//redraws only its cell, and each render frame repaints just the region of the cells that changed
+//colored by state (light on, fan speed, AC power) or by how far each AC is from its target temperature
+//dragging over a region (or clicking a cell) zooms in to the regular Light, Fan and AC panels of those devices
+
+public class FleetHeatmap extends JPanel implements RenderPipeline.MultiView {
+    public static final int COLOR_BY_STATE = 0;
+    public static final int COLOR_BY_TEMPERATURE = 1;
+
+    private static final String[] COLOR_MODES = {"State", "Temperature vs target"};
+    private static final String MAP_CARD = "map";
+    private static final String DETAIL_CARD = "detail";
+    private static final int MAX_DETAIL_DEVICES = 60; //panels are heavy, a zoomed region shows at most this many
+
+    private final DeviceRegistry registry;
+    private final Scheduler scheduler;
+    private final CellImage cells;
+    private MapCanvas canvas;
+    private JScrollPane mapScroll;
+    private JPanel cardPanel;
+    private JPanel detailGrid;
+    private JLabel infoLabel;
+    private JButton backButton;
+
+    //the detail panels get their own pipeline: the shared one keeps one view per device and the home panels own theirs
+    private RenderPipeline detailPipeline;
+
+    //cells that changed during the current frame, in cell coordinates
+    private int firstDirtyColumn = Integer.MAX_VALUE;
+    private int lastDirtyColumn = -1;
+    private int firstDirtyRow = Integer.MAX_VALUE;
+    private int lastDirtyRow = -1;
+
+    //constructor, the scheduler must dispatch on the EDT (it drives the detail panels' render frames)
+    public FleetHeatmap(DeviceRegistry registry, RenderPipeline pipeline, Scheduler scheduler) {
+        this.registry = registry;
+        this.scheduler = scheduler;
+        this.cells = new CellImage(registry);
+        initializeUI();
+        pipeline.addMultiView(this);
+    }
+
+    private void initializeUI() {
+        setLayout(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        setBackground(Color.WHITE);
+
+        //tool bar
+        JPanel toolPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolPanel.setBackground(Color.WHITE);
+
+        JComboBox<String> colorMode = new JComboBox<>(COLOR_MODES);
+        colorMode.addActionListener(e -> {
+            cells.setColorMode(colorMode.getSelectedIndex());
+            renderAll();
+        });
+
+        backButton = new JButton("Back to overview");
+        backButton.setFont(Theme.BUTTON_FONT);
+        backButton.setVisible(false);
+        backButton.addActionListener(e -> closeDetail());
+
+        infoLabel = new JLabel();
+        infoLabel.setFont(Theme.SMALL_FONT);
+
+        toolPanel.add(new JLabel("Color by:"));
+        toolPanel.add(colorMode);
+        toolPanel.add(backButton);
+        toolPanel.add(infoLabel);
+
+        //the map, sized to its viewport so the whole fleet fits unless there are more devices than pixels
+        canvas = new MapCanvas();
+        mapScroll = new JScrollPane(canvas, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        mapScroll.setBorder(BorderFactory.createEmptyBorder());
+        mapScroll.getViewport().setBackground(Color.WHITE);
+        mapScroll.getViewport().addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                relayout();
+            }
+        });
+
+        //the panels of a zoomed region
+        detailGrid = new JPanel(new GridLayout(0, 3, 10, 10));
+        detailGrid.setBackground(Color.WHITE);
+        JScrollPane detailScroll = new JScrollPane(detailGrid);
+        detailScroll.getVerticalScrollBar().setUnitIncrement(16);
+
+        cardPanel = new JPanel(new CardLayout());
+        cardPanel.add(mapScroll, MAP_CARD);
+        cardPanel.add(detailScroll, DETAIL_CARD);
+
+        add(toolPanel, BorderLayout.NORTH);
+        add(cardPanel, BorderLayout.CENTER);
+    }
+
+    //fit the cells to the viewport, the image is only reallocated when its size changes
+    private void relayout() {
+        JViewport viewport = mapScroll.getViewport();
+        if (viewport.getWidth() <= 0 || viewport.getHeight() <= 0) return;
+        cells.layout(viewport.getWidth(), viewport.getHeight());
+        canvas.revalidate();
+        renderAll();
+    }
+
+    //redraw every cell and the whole canvas
+    private void renderAll() {
+        if (cells.getImage() == null) return;
+        long start = System.nanoTime();
+        cells.renderAll();
+        canvas.repaint();
+        infoLabel.setText(String.format("%,d devices | %d px cells | full render %.1f ms", cells.getCellCount(),
+            cells.getCellSize(), (System.nanoTime() - start) / 1e6));
+    }
+
+    //redraw the cell of a changed device, the canvas is repainted once in frameDone
+    @Override
+    public void deviceDirty(int deviceId) {
+        if (cells.getImage() == null) return;
+        if (deviceId >= cells.getCellCount()) {
+            relayout(); //devices were added
+            return;
+        }
+        cells.renderCell(deviceId);
+        int column = deviceId % cells.getColumns();
+        int row = deviceId / cells.getColumns();
+        firstDirtyColumn = Math.min(firstDirtyColumn, column);
+        lastDirtyColumn = Math.max(lastDirtyColumn, column);
+        firstDirtyRow = Math.min(firstDirtyRow, row);
+        lastDirtyRow = Math.max(lastDirtyRow, row);
+    }
+
+    //repaint the region of the changed cells in one go
+    @Override
+    public void frameDone() {
+        if (lastDirtyRow >= 0) {
+            int cellSize = cells.getCellSize();
+            canvas.repaint(firstDirtyColumn * cellSize, firstDirtyRow * cellSize,
+                (lastDirtyColumn - firstDirtyColumn + 1) * cellSize, (lastDirtyRow - firstDirtyRow + 1) * cellSize);
+        }
+        firstDirtyColumn = Integer.MAX_VALUE;
+        lastDirtyColumn = -1;
+        firstDirtyRow = Integer.MAX_VALUE;
+        lastDirtyRow = -1;
+    }
+
+    //zoom in: the panels of the devices in a block of cells, row by row
+    private void openDetail(int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        int columns = cells.getColumns();
+        int count = cells.getCellCount();
+        int total = 0;
+        if (detailPipeline == null) {
+            detailPipeline = new RenderPipeline(registry, scheduler);
+        }
+        detailGrid.removeAll();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int id = row * columns + column;
+                if (id >= count) break;
+                if (total++ < MAX_DETAIL_DEVICES) {
+                    detailGrid.add(createPanel(id));
+                }
+            }
+        }
+        if (total == 0) return;
+        infoLabel.setText("Showing " + Math.min(total, MAX_DETAIL_DEVICES) + " of " + total + " selected devices");
+        backButton.setVisible(true);
+        detailGrid.revalidate();
+        ((CardLayout) cardPanel.getLayout()).show(cardPanel, DETAIL_CARD);
+    }
+
+    //the regular control panel of a device, titled with its id and group
+    private JComponent createPanel(int id) {
+        JComponent panel;
+        switch (registry.getType(id)) {
+            case DeviceRegistry.TYPE_LIGHT:
+                panel = new Light(registry, detailPipeline, id);
+                break;
+            case DeviceRegistry.TYPE_FAN:
+                panel = new Fan(registry, detailPipeline, id);
+                break;
+            default:
+                panel = new AirConditioner(registry, detailPipeline, id);
+                break;
+        }
+        panel.setToolTipText("#" + id + " " + registry.getGroupName(registry.getGroup(id)));
+        return panel;
+    }
+
+    //zoom out: drop the panels and their pipeline, the map kept drawing changes meanwhile
+    private void closeDetail() {
+        for (Component panel : detailGrid.getComponents()) {
+            if (panel instanceof AirConditioner) {
+                ((AirConditioner) panel).cleanup();
+            }
+        }
+        detailGrid.removeAll();
+        if (detailPipeline != null) {
+            detailPipeline.shutdown();
+            detailPipeline = null;
+        }
+        backButton.setVisible(false);
+        ((CardLayout) cardPanel.getLayout()).show(cardPanel, MAP_CARD);
+        renderAll();
+    }
+
+    //getter for the cells, e.g. to measure rendering
+    public CellImage getCells() {
+        return cells;
+    }
+
+    //the map: copies the image, only the clipped (dirty) part of it, and draws the zoom selection
+    private class MapCanvas extends JComponent {
+        private Point anchor;
+        private Rectangle selection;
+
+        private MapCanvas() {
+            setOpaque(true);
+            setToolTipText("");
+            MouseAdapter mouse = new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    anchor = e.getPoint();
+                    selection = new Rectangle(anchor);
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    if (anchor == null) return;
+                    Rectangle previous = selection;
+                    selection = new Rectangle(anchor);
+                    selection.add(e.getPoint());
+                    Rectangle changed = previous.union(selection);
+                    repaint(changed.x, changed.y, changed.width + 1, changed.height + 1);
+                }
+
+                @Override
+                public void mouseReleased(MouseEvent e) {
+                    if (anchor == null) return;
+                    Rectangle region = selection;
+                    anchor = null;
+                    selection = null;
+                    repaint(region.x, region.y, region.width + 1, region.height + 1);
+                    int cellSize = cells.getCellSize();
+                    if (cellSize == 0) return;
+                    int lastColumn = Math.min((region.x + region.width) / cellSize, cells.getColumns() - 1);
+                    openDetail(Math.max(region.x / cellSize, 0), Math.max(region.y / cellSize, 0), lastColumn, (region.y + region.height) / cellSize);
+                }
+            };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            BufferedImage image = cells.getImage();
+            return image == null ? new Dimension(1, 1) : new Dimension(image.getWidth(), image.getHeight());
+        }
+
+        @Override
+        public String getToolTipText(MouseEvent e) {
+            int id = cells.cellAt(e.getX(), e.getY());
+            return id < 0 ? null : "#" + id + " " + registry.getStatus(id);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(Color.WHITE);
+            Rectangle clip = g.getClipBounds();
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            BufferedImage image = cells.getImage();
+            if (image != null) {
+                g.drawImage(image, 0, 0, null);
+            }
+            if (selection != null) {
+                g.setColor(Theme.OFF_TEXT);
+                g.drawRect(selection.x, selection.y, selection.width, selection.height);
+            }
+        }
+    }
+
+    //the pixels of the map: device id i is the cell at column i % columns, row i / columns, drawn from primitive
+    //registry state into the image's own int array; works headless, touch it on one thread (the EDT in the view)
+    public static class CellImage {
+        private static final int BACKGROUND = Color.WHITE.getRGB() & 0xFFFFFF;
+        private static final int MAX_CELL_SIZE = 24;
+        private static final int GAP_CELL_SIZE = 4; //cells this size or larger get a 1 px gap
+        private static final int MAX_DELTA = 7; //°C from target for the strongest temperature color
+
+        //colors resolved once, as RGB ints
+        private static final int OFF = rgb(Theme.HEATMAP_OFF);
+        private static final int OTHER = rgb(Theme.HEATMAP_OTHER);
+        private static final int LIGHT_ON = rgb(Theme.LIGHT_ON);
+        private static final int AC_ON = rgb(Theme.ON_TEXT);
+        private static final int[] SPEEDS = {OFF, rgb(Theme.FAN_LOW), rgb(Theme.FAN_HIGH)};
+        private static final int[] DELTAS = deltaColors();
+
+        private final DeviceRegistry registry;
+        private int colorMode = COLOR_BY_STATE;
+        private BufferedImage image;
+        private int[] pixels;
+        private int width;
+        private int cellSize;
+        private int columns;
+        private int cellCount;
+
+        //constructor
+        public CellImage(DeviceRegistry registry) {
+            this.registry = registry;
+        }
+
+        //pick the largest cell size that fits every device into the area, call renderAll afterwards
+        //with more devices than pixels the cells are 1 px and the image is taller than the area
+        public void layout(int availableWidth, int availableHeight) {
+            int count = registry.size();
+            int size = (int) Math.sqrt((double) availableWidth * availableHeight / Math.max(count, 1));
+            size = Math.max(1, Math.min(size, MAX_CELL_SIZE));
+            while (size > 1 && rowsOf(count, Math.max(availableWidth / size, 1)) * size > availableHeight) {
+                size--;
+            }
+            int newColumns = Math.max(availableWidth / size, 1);
+            int rows = rowsOf(count, newColumns);
+            int imageWidth = newColumns * size;
+            int imageHeight = rows * size;
+            if (image == null || image.getWidth() != imageWidth || image.getHeight() != imageHeight) {
+                image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+                pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            }
+            width = imageWidth;
+            cellSize = size;
+            columns = newColumns;
+            cellCount = count;
+        }
+
+        private static int rowsOf(int count, int columns) {
+            return Math.max((count + columns - 1) / columns, 1);
+        }
+
+        //color by state or by temperature delta (COLOR_BY_*), call renderAll afterwards
+        public void setColorMode(int colorMode) {
+            this.colorMode = colorMode;
+        }
+
+        //redraw every cell, returns how many
+        public int renderAll() {
+            if (image == null) return 0;
+            Arrays.fill(pixels, BACKGROUND);
+            for (int id = 0; id < cellCount; id++) {
+                renderCell(id);
+            }
+            return cellCount;
+        }
+
+        //redraw the cell of one device
+        public void renderCell(int id) {
+            int color = colorOf(id);
+            int size = cellSize >= GAP_CELL_SIZE ? cellSize - 1 : cellSize;
+            int x = id % columns * cellSize;
+            int offset = id / columns * cellSize * width + x;
+            for (int y = 0; y < size; y++) {
+                Arrays.fill(pixels, offset, offset + size, color);
+                offset += width;
+            }
+        }
+
+        private int colorOf(int id) {
+            switch (registry.getType(id)) {
+                case DeviceRegistry.TYPE_LIGHT:
+                    if (colorMode == COLOR_BY_TEMPERATURE) return OTHER;
+                    return registry.isOn(id) ? LIGHT_ON : OFF;
+                case DeviceRegistry.TYPE_FAN:
+                    if (colorMode == COLOR_BY_TEMPERATURE) return OTHER;
+                    return SPEEDS[registry.getSpeed(id)];
+                default:
+                    if (!registry.isOn(id)) return OFF;
+                    if (colorMode == COLOR_BY_STATE) return AC_ON;
+                    int delta = registry.getCurrentTemperature(id) - registry.getTargetTemperature(id);
+                    return DELTAS[Math.max(-MAX_DELTA, Math.min(delta, MAX_DELTA)) + MAX_DELTA];
+            }
+        }
+
+        //colder than target fades to blue, warmer to red, on target is the idle color
+        private static int[] deltaColors() {
+            int[] colors = new int[2 * MAX_DELTA + 1];
+            for (int delta = -MAX_DELTA; delta <= MAX_DELTA; delta++) {
+                Color end = delta < 0 ? Theme.HISTORY_TARGET : Theme.HISTORY_CURRENT;
+                float weight = Math.abs(delta) / (float) MAX_DELTA;
+                colors[delta + MAX_DELTA] = blend(Theme.IDLE, end, weight);
+            }
+            return colors;
+        }
+
+        private static int blend(Color from, Color to, float weight) {
+            int red = Math.round(from.getRed() + (to.getRed() - from.getRed()) * weight);
+            int green = Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * weight);
+            int blue = Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * weight);
+            return red << 16 | green << 8 | blue;
+        }
+
+        private static int rgb(Color color) {
+            return color.getRGB() & 0xFFFFFF;
+        }
+
+        //device id of the cell at a point of the image, -1 for none
+        public int cellAt(int x, int y) {
+            if (cellSize == 0 || x < 0 || y < 0 || x >= width) return -1;
+            int id = y / cellSize * columns + x / cellSize;
+            return id < cellCount ? id : -1;
+        }
+
+        //getter for the image, null until the first layout
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        //getter for the cell size in pixels
+        public int getCellSize() {
+            return cellSize;
+        }
+
+        //getter for the number of cells per row
+        public int getColumns() {
+            return columns;
+        }
+
+        //getter for the number of cells
+        public int getCellCount() {
+            return cellCount;
+        }
+    }
+}
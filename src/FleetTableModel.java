@@ -0,0 +1,189 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+
+//Fleet Table Model - table model that reads rows straight from the DeviceRegistry
+//it keeps no per-row objects, the table only asks for the cells of the rows that are visible
+//a filter keeps the shown device ids in one int array, updated as devices change instead of re-filtering every row;
+//type and group never change, so only an "on only" filter moves rows, one insert or delete per device
+
+public class FleetTableModel extends AbstractTableModel implements DeviceListener {
+    public static final int COLUMN_ID = 0;
+    public static final int COLUMN_TYPE = 1;
+    public static final int COLUMN_GROUP = 2;
+    public static final int COLUMN_STATE = 3;
+    public static final int COLUMN_SPEED = 4;
+    public static final int COLUMN_CURRENT = 5;
+    public static final int COLUMN_TARGET = 6;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Type", "Group", "State", "Speed", "Current", "Target"};
+    private static final String NOT_APPLICABLE = "-";
+
+    private final DeviceRegistry registry;
+    private int deviceCount;
+
+    //filter, while rows is null every device is shown and row index = device id,
+    //otherwise the first rowCount entries of rows are the shown ids in ascending order
+    private int type = DeviceRegistry.ANY_TYPE;
+    private int group = DeviceRegistry.ALL_GROUPS;
+    private boolean onOnly;
+    private int[] rows;
+    private int rowCount;
+
+    //constructor, the model follows the registry from then on, so it must live on the registry's writer thread (the EDT)
+    public FleetTableModel(DeviceRegistry registry) {
+        this.registry = registry;
+        this.deviceCount = registry.size();
+        this.rowCount = deviceCount;
+        registry.addListener(this);
+    }
+
+    //show only the devices of a type (or ANY_TYPE) in a group (or ALL_GROUPS), optionally only those switched on
+    public void setFilter(int type, int group, boolean onOnly) {
+        this.type = type;
+        this.group = group;
+        this.onOnly = onOnly;
+        if (type == DeviceRegistry.ANY_TYPE && group == DeviceRegistry.ALL_GROUPS && !onOnly) {
+            rows = null;
+            rowCount = deviceCount;
+        }
+        else {
+            filterAll();
+        }
+        fireTableDataChanged();
+    }
+
+    //pick up devices added to the registry since the last call, must be called on the EDT
+    public void refreshRowCount() {
+        int size = registry.size();
+        if (size <= deviceCount) return;
+        int first = rowCount;
+        if (rows == null) {
+            rowCount = size;
+        }
+        else {
+            //new ids are higher than every shown one, so matches are appended in order
+            rows = Arrays.copyOf(rows, size);
+            for (int id = deviceCount; id < size; id++) {
+                if (matches(id)) {
+                    rows[rowCount++] = id;
+                }
+            }
+        }
+        deviceCount = size;
+        if (rowCount > first) {
+            fireTableRowsInserted(first, rowCount - 1);
+        }
+    }
+
+    //a device switched on or off moves in or out of an "on only" view
+    @Override
+    public void deviceChanged(int deviceId, int field) {
+        if (!onOnly || deviceId >= deviceCount) return;
+        if (field == DeviceRegistry.FIELD_CURRENT_TEMP || field == DeviceRegistry.FIELD_TARGET_TEMP) return;
+        int row = Arrays.binarySearch(rows, 0, rowCount, deviceId);
+        boolean shown = row >= 0;
+        if (shown == matches(deviceId)) return;
+        if (shown) {
+            System.arraycopy(rows, row + 1, rows, row, rowCount - row - 1);
+            rowCount--;
+            fireTableRowsDeleted(row, row);
+        }
+        else {
+            row = -row - 1;
+            System.arraycopy(rows, row, rows, row + 1, rowCount - row);
+            rows[row] = deviceId;
+            rowCount++;
+            fireTableRowsInserted(row, row);
+        }
+    }
+
+    //after a bulk operation one pass over the fleet is cheaper than moving rows one by one
+    @Override
+    public void devicesChanged(int fromId, int toId) {
+        if (!onOnly) return;
+        filterAll();
+        fireTableDataChanged();
+    }
+
+    //collect the shown ids, reusing the array
+    private void filterAll() {
+        if (rows == null || rows.length < deviceCount) {
+            rows = new int[deviceCount];
+        }
+        int count = 0;
+        for (int id = 0; id < deviceCount; id++) {
+            if (matches(id)) {
+                rows[count++] = id;
+            }
+        }
+        rowCount = count;
+    }
+
+    private boolean matches(int id) {
+        return (type == DeviceRegistry.ANY_TYPE || registry.getType(id) == type)
+            && (group == DeviceRegistry.ALL_GROUPS || registry.getGroup(id) == group)
+            && (!onOnly || registry.isOn(id));
+    }
+
+    //getter for the device shown in a row
+    public int getDeviceId(int row) {
+        return rows == null ? row : rows[row];
+    }
+
+    //getter for the row showing a device, -1 if it is filtered out
+    public int getRow(int deviceId) {
+        if (rows == null) {
+            return deviceId < rowCount ? deviceId : -1;
+        }
+        int row = Arrays.binarySearch(rows, 0, rowCount, deviceId);
+        return row >= 0 ? row : -1;
+    }
+
+    //getter for the number of devices, shown or not
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    //getter for the registry behind the table
+    public DeviceRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    //cell values are cached strings where possible so scrolling does not allocate
+    @Override
+    public Object getValueAt(int row, int column) {
+        int id = getDeviceId(row);
+        byte type = registry.getType(id);
+        switch (column) {
+            case COLUMN_ID:
+                return id;
+            case COLUMN_TYPE:
+                return DeviceRegistry.getTypeName(type);
+            case COLUMN_GROUP:
+                return registry.getGroupName(registry.getGroup(id));
+            case COLUMN_STATE:
+                return registry.isOn(id) ? "ON" : "OFF";
+            case COLUMN_SPEED:
+                return type == DeviceRegistry.TYPE_FAN ? Theme.SPEED_NAMES[registry.getSpeed(id)] : NOT_APPLICABLE;
+            case COLUMN_CURRENT:
+                return type == DeviceRegistry.TYPE_AC ? Theme.temperatureText(registry.getCurrentTemperature(id)) : NOT_APPLICABLE;
+            default:
+                return type == DeviceRegistry.TYPE_AC ? Theme.temperatureText(registry.getTargetTemperature(id)) : NOT_APPLICABLE;
+        }
+    }
+}
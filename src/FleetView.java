@@ -0,0 +1,151 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+
+//Fleet View - scrollable, filterable table of every device in the registry
+//JTable only paints the visible rows with one shared renderer, so memory stays flat as the fleet grows,
+//and state changes repaint just the visible rows that changed, once per render frame
+//filtering is done by the model on an int array of ids, so there is no row sorter allocating an entry per row
+
+public class FleetView extends JPanel implements RenderPipeline.MultiView {
+    private static final String[] TYPE_FILTERS = {"All types", "Lights", "Fans", "ACs"};
+    private static final String ALL_GROUPS = "All groups";
+    private static final int ROW_HEIGHT = 20;
+
+    private final DeviceRegistry registry;
+    private final FleetTableModel model;
+    private JTable table;
+    private JComboBox<String> typeFilter;
+    private JComboBox<String> groupFilter;
+    private JCheckBox onOnlyFilter;
+    private JLabel countLabel;
+
+    //visible rows that changed during the current frame
+    private int firstVisibleRow = -1;
+    private int lastVisibleRow;
+    private int firstDirtyRow = Integer.MAX_VALUE;
+    private int lastDirtyRow = -1;
+    private int countShown = -1;
+
+    //constructor
+    public FleetView(DeviceRegistry registry, RenderPipeline pipeline) {
+        this.registry = registry;
+        this.model = new FleetTableModel(registry);
+        initializeUI();
+        applyFilter();
+        pipeline.addMultiView(this);
+    }
+
+    private void initializeUI() {
+        setLayout(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        setBackground(Color.WHITE);
+
+        //filter bar
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.setBackground(Color.WHITE);
+
+        typeFilter = new JComboBox<>(TYPE_FILTERS);
+        typeFilter.addActionListener(e -> applyFilter());
+
+        groupFilter = new JComboBox<>();
+        groupFilter.addItem(ALL_GROUPS);
+        for (int group = 0; group < registry.getGroupCount(); group++) {
+            groupFilter.addItem(registry.getGroupName(group));
+        }
+        groupFilter.addActionListener(e -> applyFilter());
+
+        onOnlyFilter = new JCheckBox("On only");
+        onOnlyFilter.setBackground(Color.WHITE);
+        onOnlyFilter.addActionListener(e -> applyFilter());
+
+        countLabel = new JLabel();
+        countLabel.setFont(Theme.SMALL_FONT);
+
+        filterPanel.add(new JLabel("Show:"));
+        filterPanel.add(typeFilter);
+        filterPanel.add(groupFilter);
+        filterPanel.add(onOnlyFilter);
+        filterPanel.add(countLabel);
+
+        //table, fixed row height lets JTable map scroll position to rows without measuring them
+        table = new JTable(model);
+        table.setRowHeight(ROW_HEIGHT);
+        table.setFillsViewportHeight(true);
+        table.setDefaultRenderer(Object.class, new StateCellRenderer());
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        add(filterPanel, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+    }
+
+    //hand the filter bar to the model, index 0 of each box means any (-1)
+    private void applyFilter() {
+        model.setFilter(typeFilter.getSelectedIndex() - 1, groupFilter.getSelectedIndex() - 1, onOnlyFilter.isSelected());
+        updateCount();
+    }
+
+    //show how many devices pass the filter, only when the number changed
+    private void updateCount() {
+        if (model.getRowCount() == countShown) return;
+        countShown = model.getRowCount();
+        countLabel.setText(countShown + " of " + model.getDeviceCount() + " devices");
+    }
+
+    //remember which visible rows changed, the repaint happens once in frameDone
+    @Override
+    public void deviceDirty(int deviceId) {
+        int row = model.getRow(deviceId);
+        if (row < 0) return;
+        if (firstVisibleRow < 0) {
+            Rectangle visible = table.getVisibleRect();
+            firstVisibleRow = table.rowAtPoint(visible.getLocation());
+            lastVisibleRow = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+            if (lastVisibleRow < 0) {
+                lastVisibleRow = table.getRowCount() - 1;
+            }
+        }
+        if (row >= firstVisibleRow && row <= lastVisibleRow) {
+            firstDirtyRow = Math.min(firstDirtyRow, row);
+            lastDirtyRow = Math.max(lastDirtyRow, row);
+        }
+    }
+
+    //repaint the changed visible rows in one go
+    @Override
+    public void frameDone() {
+        if (lastDirtyRow >= 0) {
+            Rectangle first = table.getCellRect(firstDirtyRow, 0, true);
+            Rectangle last = table.getCellRect(lastDirtyRow, model.getColumnCount() - 1, true);
+            table.repaint(first.union(last));
+        }
+        updateCount();
+        firstVisibleRow = -1;
+        firstDirtyRow = Integer.MAX_VALUE;
+        lastDirtyRow = -1;
+    }
+
+    //pick up devices added since the view was built, must be called on the EDT
+    public void refresh() {
+        countShown = -1;
+        model.refreshRowCount();
+        updateCount();
+    }
+
+    //single renderer instance reused for every cell, colors the state column
+    private static class StateCellRenderer extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            if (!isSelected) {
+                if (column == FleetTableModel.COLUMN_STATE) {
+                    setForeground("ON".equals(value) ? Theme.ON_TEXT : Theme.OFF_TEXT);
+                }
+                else {
+                    setForeground(table.getForeground());
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import javax.swing.*;
+import java.awt.*;
+import java.time.Clock;
+
+//History Chart - line chart of an AC's current and target temperature over the last minutes, read from a TimeSeriesStore
+//each paint asks the store for one downsampled bucket per point, so the cost does not depend on how much history there is
+
+public class HistoryChart extends JComponent {
+    public static final long DEFAULT_WINDOW_SECONDS = 600;
+
+    private static final int POINTS = 120;
+    private static final int PADDING = 4;
+    private static final int MIN_TEMP = DeviceRegistry.MIN_TEMP - 2;
+    private static final int MAX_TEMP = DeviceRegistry.MAX_TEMP + 2;
+
+    private final TimeSeriesStore store;
+    private final Clock clock;
+    private final int deviceId;
+    private final long windowSeconds;
+
+    //query buffers, reused by every paint
+    private final int[] min = new int[POINTS];
+    private final int[] max = new int[POINTS];
+    private final float[] mean = new float[POINTS];
+    private final int[] xs = new int[POINTS];
+    private final int[] ys = new int[POINTS];
+
+    //constructor, the clock should be the one the samples are stamped with (the recorder's scheduler clock)
+    public HistoryChart(TimeSeriesStore store, Clock clock, int deviceId, long windowSeconds) {
+        this.store = store;
+        this.clock = clock;
+        this.deviceId = deviceId;
+        this.windowSeconds = windowSeconds;
+        setPreferredSize(new Dimension(220, 70));
+        setFont(Theme.SMALL_FONT);
+        setToolTipText("Last " + windowSeconds / 60 + " minutes: current (solid) and target temperature");
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int width = getWidth() - 2 * PADDING;
+        int height = getHeight() - 2 * PADDING;
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, getWidth(), getHeight());
+        g2.setColor(Theme.IDLE);
+        g2.drawRect(PADDING, PADDING, width, height);
+
+        long to = clock.millis() / 1000 + 1;
+        long from = to - windowSeconds;
+        g2.setColor(Theme.HISTORY_TARGET);
+        drawSeries(g2, TimeSeriesStore.METRIC_TARGET_TEMP, from, to, width, height);
+        g2.setColor(Theme.HISTORY_CURRENT);
+        g2.setStroke(new BasicStroke(2f));
+        drawSeries(g2, TimeSeriesStore.METRIC_CURRENT_TEMP, from, to, width, height);
+        g2.dispose();
+    }
+
+    //draw the bucket means as a polyline, breaking it where there were no samples
+    private void drawSeries(Graphics2D g2, int metric, long from, long to, int width, int height) {
+        store.downsample(deviceId, metric, from, to, min, max, mean);
+        int count = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (Float.isNaN(mean[i])) {
+                if (count > 1) g2.drawPolyline(xs, ys, count);
+                count = 0;
+                continue;
+            }
+            xs[count] = PADDING + i * width / (POINTS - 1);
+            ys[count] = PADDING + Math.round((MAX_TEMP - mean[i]) * height / (MAX_TEMP - MIN_TEMP));
+            count++;
+        }
+        if (count > 1) g2.drawPolyline(xs, ys, count);
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//History Recorder - samples every AC's current and target temperature and every fan's speed into a TimeSeriesStore
+//runs once a second on the scheduler's dispatcher (the writer thread), a device that holds steady adds only a run count
+
+public class HistoryRecorder {
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    private final DeviceRegistry registry;
+    private final TimeSeriesStore store;
+    private final Scheduler scheduler;
+    private final long intervalMillis;
+    private final CopyOnWriteArrayList<Runnable> sampleListeners = new CopyOnWriteArrayList<>();
+
+    private Scheduler.Timeout timer;
+
+    //constructor
+    public HistoryRecorder(DeviceRegistry registry, TimeSeriesStore store, Scheduler scheduler, long intervalMillis) {
+        this.registry = registry;
+        this.store = store;
+        this.scheduler = scheduler;
+        this.intervalMillis = intervalMillis;
+    }
+
+    //start sampling every interval
+    public void start() {
+        if (timer != null) return;
+        timer = scheduler.scheduleAtFixedRate(this::sample, 0, intervalMillis);
+    }
+
+    //stop sampling, the recorded history stays in the store
+    public void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    //record the current values of every AC and fan, then tell the listeners (e.g. a chart to repaint)
+    public void sample() {
+        long now = scheduler.getClock().millis() / 1000;
+        int size = registry.size();
+        for (int id = 0; id < size; id++) {
+            byte type = registry.getType(id);
+            if (type == DeviceRegistry.TYPE_AC) {
+                store.append(id, TimeSeriesStore.METRIC_CURRENT_TEMP, now, registry.getCurrentTemperature(id));
+                store.append(id, TimeSeriesStore.METRIC_TARGET_TEMP, now, registry.getTargetTemperature(id));
+            }
+            else if (type == DeviceRegistry.TYPE_FAN) {
+                store.append(id, TimeSeriesStore.METRIC_SPEED, now, registry.getSpeed(id));
+            }
+        }
+        for (Runnable listener : sampleListeners) {
+            listener.run();
+        }
+    }
+
+    //add a listener that runs after every sample
+    public void addSampleListener(Runnable listener) {
+        sampleListeners.add(listener);
+    }
+
+    //remove a sample listener
+    public void removeSampleListener(Runnable listener) {
+        sampleListeners.remove(listener);
+    }
+
+    //getter for the store being recorded into
+    public TimeSeriesStore getStore() {
+        return store;
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//Journal Reader - command line tool that decodes EventJournal segments back to readable text
+//usage: java JournalReader [journal directory or segment files...] (defaults to the "journal" directory)
+
+public class JournalReader {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final String[] SYSTEM_MESSAGES = {
+        "Appliance Control System started",
+        "--- ANNUAL SYSTEM UPDATE INITIATED ---",
+        "All devices turned OFF for system update",
+        "--- SYSTEM UPDATE COMPLETE ---",
+        "System shutdown complete"
+    };
+
+    //main method
+    public static void main(String[] args) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (args.length == 0) {
+            args = new String[] {"journal"};
+        }
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                segments.addAll(listSegments(path));
+            }
+            else {
+                segments.add(path);
+            }
+        }
+        if (segments.isEmpty()) {
+            System.err.println("No journal segments found");
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        for (Path segment : segments) {
+            read(segment, line);
+        }
+    }
+
+    //journal segments of a directory in write order
+    public static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (EventJournal.isSegment(file)) {
+                    segments.add(file);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    //receives decoded records, in write order
+    public interface RecordVisitor {
+        void visit(long epochNanos, int event, int deviceId, int deviceType, int value, long sequence);
+    }
+
+    //print every record of a segment
+    private static void read(Path file, StringBuilder line) throws IOException {
+        read(file, (time, event, deviceId, deviceType, value, sequence) -> {
+            line.setLength(0);
+            formatRecord(line, time, event, deviceId, deviceType, value, sequence);
+            System.out.println(line);
+        });
+    }
+
+    //decode every record of a segment, stops at the unwritten (zero) tail, returns false if the file is not a segment
+    public static boolean read(Path file, RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < EventJournal.HEADER_BYTES || buffer.getInt() != EventJournal.MAGIC) {
+                System.err.println(file + ": not a journal segment");
+                return false;
+            }
+            int version = buffer.getInt();
+            if (version != EventJournal.VERSION) {
+                System.err.println(file + ": unsupported journal version " + version);
+                return false;
+            }
+            buffer.getLong(); //segment start time
+            while (buffer.remaining() >= EventJournal.RECORD_BYTES) {
+                long time = buffer.getLong();
+                long eventAndDevice = buffer.getLong();
+                long typeAndValue = buffer.getLong();
+                long sequence = buffer.getLong();
+                int event = (int) (eventAndDevice >>> 32);
+                if (event == 0) break;
+                visitor.visit(time, event, (int) eventAndDevice, (int) (typeAndValue >> 32), (int) typeAndValue, sequence);
+            }
+        }
+        return true;
+    }
+
+    //append one record as text, using the same messages the app used to print
+    public static void formatRecord(StringBuilder out, long epochNanos, int event, int deviceId, int deviceType, int value, long sequence) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(0, epochNanos), ZoneId.systemDefault());
+        out.append(TIME_FORMAT.format(time)).append(" #").append(sequence).append(' ');
+        if (event < EventJournal.EVENT_SYSTEM) {
+            out.append('[').append(deviceId).append("] ");
+        }
+        switch (event) {
+            case EventJournal.EVENT_POWER:
+                if (deviceType == DeviceRegistry.TYPE_LIGHT) {
+                    out.append(value != 0 ? "Light turned ON" : "Light turned OFF");
+                }
+                else {
+                    out.append(value != 0 ? "AC turned ON" : "AC turned OFF");
+                }
+                break;
+            case EventJournal.EVENT_SPEED:
+                out.append("Fan speed set to: ").append(speedName(value)).append(" (").append(value).append(')');
+                break;
+            case EventJournal.EVENT_TARGET:
+                out.append("AC target temperature set to: ").append(value).append("°C");
+                break;
+            case EventJournal.EVENT_HEATING:
+                out.append("AC heating: ").append(value).append("°C");
+                break;
+            case EventJournal.EVENT_COOLING:
+                out.append("AC cooling: ").append(value).append("°C");
+                break;
+            case EventJournal.EVENT_MAINTENANCE_OFF:
+                out.append(typeName(deviceType)).append(" turned OFF (system update)");
+                break;
+            case EventJournal.EVENT_SYSTEM:
+                out.append(value >= 0 && value < SYSTEM_MESSAGES.length ? SYSTEM_MESSAGES[value] : "System event " + value);
+                break;
+            case EventJournal.EVENT_BULK_OFF:
+                out.append("Bulk: ").append(value).append(' ').append(deviceType < 0 ? "device" : typeName(deviceType))
+                    .append("(s) turned OFF in ").append(groupName(deviceId));
+                break;
+            case EventJournal.EVENT_BULK_SPEED:
+                out.append("Bulk: fan speed set to ").append(speedName(value)).append(" in ").append(groupName(deviceId));
+                break;
+            case EventJournal.EVENT_BULK_TARGET:
+                out.append("Bulk: AC target temperature set to ").append(value).append("°C in ").append(groupName(deviceId));
+                break;
+            default:
+                out.append("Unknown event ").append(event).append(" value ").append(value);
+                break;
+        }
+    }
+
+    private static String groupName(int group) {
+        return group < 0 ? "all groups" : "group " + group;
+    }
+
+    private static String speedName(int speed) {
+        return speed >= 0 && speed < Theme.SPEED_NAMES.length ? Theme.SPEED_NAMES[speed] : "?";
+    }
+
+    private static String typeName(int type) {
+        return type >= DeviceRegistry.TYPE_LIGHT && type <= DeviceRegistry.TYPE_AC ? DeviceRegistry.getTypeName((byte) type) : "Device";
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Latency Histogram - lock-free log-linear histogram of durations in nanoseconds (HDR-style)
+//each power of two is split into 16 linear sub-buckets, so percentiles are within about 6% of the true value
+//record is a handful of arithmetic operations and one atomic increment, safe from any thread
+
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    //record one duration, negative values count as 0
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    //bucket index: values below 16 map 1:1, above that the exponent picks a group of 16 linear sub-buckets
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> (exponent - 1)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + subBucket;
+    }
+
+    //highest value that falls into a bucket
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS;
+        long subBucket = bucket % SUB_BUCKETS;
+        long low = (SUB_BUCKETS | subBucket) << (exponent - 1);
+        return low + (1L << (exponent - 1)) - 1;
+    }
+
+    //getter for the number of recorded values
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    //getter for the largest recorded value
+    public long getMax() {
+        return max.get();
+    }
+
+    //value at a percentile (0-100), reported as the upper bound of its bucket
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    //mean of the recorded values, using bucket midpoints
+    public long getMean() {
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            if (count > 0) {
+                total += count;
+                long upper = upperBoundOf(i);
+                long lower = i == 0 ? 0 : upperBoundOf(i - 1) + 1;
+                sum += count * ((lower + upper) / 2.0);
+            }
+        }
+        return total == 0 ? 0 : (long) (sum / total);
+    }
+
+    //clear every bucket
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    //getter for the summary as a string for logging/debugging, values in microseconds
+    public String getSummary() {
+        return "n=" + getCount() + " p50=" + micros(getPercentile(50)) + "us p99=" + micros(getPercentile(99))
+            + "us p99.9=" + micros(getPercentile(99.9)) + "us max=" + micros(getMax()) + "us";
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
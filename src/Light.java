@@ -6,16 +6,30 @@ import java.awt.event.ActionListener;
 //Light component - controls a light with on/off toggle functionality
 
 public class Light extends JPanel {
-    private boolean isOn;
+    //state lives in the registry, the panel only observes it
+    private final DeviceRegistry registry;
+    private final int deviceId;
+
     private JButton toggleButton;
     private JLabel statusLabel;
     private JPanel indicatorPanel;
 
-    //constructor
+    //constructor for a standalone light
     public Light() {
-        this.isOn = false;
+        this(DeviceRegistry.standalone(DeviceRegistry.TYPE_LIGHT));
+    }
+
+    private Light(DeviceRegistry registry) {
+        this(registry, new RenderPipeline(registry, null), 0);
+    }
+
+    //constructor for a light stored in a shared registry and drawn by a shared render pipeline
+    public Light(DeviceRegistry registry, RenderPipeline pipeline, int deviceId) {
+        this.registry = registry;
+        this.deviceId = deviceId;
         initializeUI();
         updateDisplay();
+        pipeline.register(deviceId, this::updateDisplay);
     }
 
     private void initializeUI() {
@@ -25,7 +39,7 @@ public class Light extends JPanel {
             "Light",
             0,
             0,
-            new Font("Arial", Font.BOLD, 14)
+            Theme.PANEL_TITLE_FONT
         ));
         setBackground(Color.WHITE);
 
@@ -41,7 +55,7 @@ public class Light extends JPanel {
 
         //status label
         statusLabel = new JLabel("OFF", SwingConstants.CENTER);
-        statusLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        statusLabel.setFont(Theme.STATUS_FONT);
 
         topPanel.add(indicatorPanel);
         topPanel.add(statusLabel);
@@ -52,7 +66,7 @@ public class Light extends JPanel {
 
         //toggle button
         toggleButton = new JButton("Turn On");
-        toggleButton.setFont(new Font("Arial", Font.PLAIN, 12));
+        toggleButton.setFont(Theme.BUTTON_FONT);
         toggleButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -69,44 +83,42 @@ public class Light extends JPanel {
 
     //toggle light on/off
     public void toggle() {
-        isOn = !isOn;
-        updateDisplay();
-        System.out.println("Light " + (isOn ? "turned ON" : "turned OFF"));
+        registry.toggleLight(deviceId);
     }
 
     //turn light off for system updates
     public void turnOff() {
-        if (isOn) {
-            isOn = false;
-            updateDisplay();
-            System.out.println("Light turned OFF (System Update)");
-        }
+        registry.turnOff(deviceId);
     }
 
     //getter for state of light
     public boolean isOn() {
-        return isOn;
+        return registry.isOn(deviceId);
+    }
+
+    //getter for the id of the light in the registry
+    public int getDeviceId() {
+        return deviceId;
     }
 
     //getter for status as a string for logging/debugging
     public String getStatus() {
-        return "Light: "+(isOn ? "ON" : "OFF");
+        return registry.getStatus(deviceId);
     }
 
     //update display based on current state
     private void updateDisplay() {
-        if (isOn) {
+        if (registry.isOn(deviceId)) {
             statusLabel.setText("ON");
-            statusLabel.setForeground(Color.decode("#00A63E"));
-            indicatorPanel.setBackground(Color.decode("#FFDF20"));
+            statusLabel.setForeground(Theme.ON_TEXT);
+            indicatorPanel.setBackground(Theme.LIGHT_ON);
             toggleButton.setText("Turn Off");            
         }
         else {
             statusLabel.setText("OFF");
-            statusLabel.setForeground(Color.decode("#E7000B"));
-            indicatorPanel.setBackground(Color.decode("#EEF2FF"));
+            statusLabel.setForeground(Theme.OFF_TEXT);
+            indicatorPanel.setBackground(Theme.IDLE);
             toggleButton.setText("Turn On");            
         }
-        repaint();
     }
 }
\ No newline at end of file
@@ -0,0 +1,513 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+//Load Harness - headless load generation and trace replay against the command endpoint, to gate releases
+//  storm:  open-loop synthetic commands at a fixed rate over the lights, fans and ACs of a fleet
+//  record: turn EventJournal segments (every click and command of a real session) into a timestamped command trace
+//  replay: send a trace at its recorded pace, or faster
+//commands are sent in 1 ms batches, each followed by a Q; latency runs from when the batch was due to its "OK",
+//so a stalled server cannot hide its backlog by slowing the sender down (no coordinated omission)
+//usage:
+//  java LoadHarness storm [devices] [commands per second] [seconds] [connections]
+//  java LoadHarness record [journal directory] [trace file]
+//  java LoadHarness replay [trace file] [speed, e.g. 1, 10 or max] [devices]
+//-Dharness.warmup=2 sends the storm for that many seconds before measuring,
+//-Dharness.shards=4 runs the in-process server over a ShardedFleet (like java CommandServer 0 [devices] 4),
+//-Dharness.port=7070 targets a running CommandServer or Dashboard instead of an in-process one (rooms of a light, a fan and an AC),
+//-Dharness.maxP99Millis=5 and -Dharness.minThroughput=100000 make the run exit with status 1 when missed
+
+public class LoadHarness {
+    private static final int PORT = Integer.getInteger("harness.port", 0); //0 starts an in-process server
+    private static final int SHARDS = Integer.getInteger("harness.shards", 0); //0 keeps the in-process server on one writer
+    private static final double MAX_P99_MILLIS = Double.parseDouble(System.getProperty("harness.maxP99Millis", "0"));
+    private static final double MIN_THROUGHPUT = Double.parseDouble(System.getProperty("harness.minThroughput", "0"));
+    private static final int WARMUP_SECONDS = Integer.getInteger("harness.warmup", 2); //storm time before measuring, while the JIT compiles
+    private static final String DEFAULT_TRACE = "trace.txt";
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MAX_BATCH = 1000;          //commands per Q
+    private static final int MAX_OUTSTANDING = 1 << 14; //unacknowledged batches per connection
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final GcMonitor gc = new GcMonitor();
+    private volatile long measureFrom = Long.MIN_VALUE; //batches due before this are warmup and not counted
+    private CommandServer server;
+    private ExecutorService writerThread;
+    private TimingWheel scheduler;
+    private ShardedFleet fleet;
+    private int port = PORT;
+
+    //start a headless controller like CommandServer.main unless a port was given
+    private void startServer(int devices) throws IOException {
+        if (port > 0) return;
+        if (SHARDS > 0) {
+            fleet = new ShardedFleet(SHARDS, ShardedFleet.PARTITION_BY_HASH);
+            int group = fleet.defineGroup("Default");
+            for (int i = 0; i < devices; i++) {
+                fleet.addDevice((byte) (i % 3), group);
+            }
+            fleet.start();
+            writerThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "command-router"));
+            server = new CommandServer(fleet, writerThread);
+            server.start(0);
+            port = server.getPort();
+            return;
+        }
+        DeviceRegistry registry = new DeviceRegistry(devices);
+        int group = registry.defineGroup("Default");
+        for (int i = 0; i < devices; i++) {
+            registry.addDevice((byte) (i % 3), group);
+        }
+        writerThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "registry-writer"));
+        scheduler = new TimingWheel(10, writerThread);
+        scheduler.start();
+        new ClimateController(registry, scheduler);
+        server = new CommandServer(registry, writerThread);
+        server.start(0);
+        port = server.getPort();
+    }
+
+    private void stopServer() {
+        if (server == null) return;
+        server.stop();
+        if (fleet != null) {
+            fleet.shutdown();
+        }
+        else {
+            scheduler.stop();
+        }
+        writerThread.shutdown();
+    }
+
+    //synthetic storm: every connection sends its share of the rate as random commands, batched per 1 ms tick
+    private boolean storm(int devices, int rate, int seconds, int connections) throws IOException, InterruptedException {
+        startServer(devices);
+        Client[] clients = new Client[connections];
+        for (int c = 0; c < connections; c++) {
+            clients[c] = new Client(c);
+        }
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        long ticks = TimeUnit.SECONDS.toNanos(WARMUP_SECONDS + seconds) / TICK_NANOS;
+        measureFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        double perTick = rate / (double) connections * TICK_NANOS / TimeUnit.SECONDS.toNanos(1);
+        Thread[] senders = new Thread[connections];
+        for (int c = 0; c < connections; c++) {
+            Client client = clients[c];
+            Random random = new Random(c + 1);
+            senders[c] = new Thread(() -> {
+                double credit = 0;
+                for (long tick = 0; tick < ticks; tick++) {
+                    long due = start + tick * TICK_NANOS;
+                    waitUntil(due);
+                    credit += perTick;
+                    int count = (int) credit;
+                    credit -= count;
+                    for (int i = 0; i < count; i++) {
+                        randomCommand(client, random, devices);
+                        if (client.batched == MAX_BATCH || i == count - 1) {
+                            client.sync(due);
+                        }
+                    }
+                }
+            }, "storm-" + c);
+            senders[c].start();
+        }
+        waitUntil(measureFrom);
+        gc.start();
+        if (server != null) {
+            server.getLatency().reset();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        long end = awaitAcknowledged(clients);
+        System.out.printf("Storm: %,d devices, %,d commands/s target over %d connection(s) for %d s after %d s warmup%n",
+            devices, rate, connections, seconds, WARMUP_SECONDS);
+        return report(measureFrom, end);
+    }
+
+    //a random command for the device's type, ids follow the room layout (light, fan, AC)
+    private static void randomCommand(Client client, Random random, int devices) {
+        int id = random.nextInt(devices);
+        switch (id % 3) {
+            case DeviceRegistry.TYPE_LIGHT:
+                client.command(CommandServer.OP_TOGGLE_LIGHT, id, -1);
+                break;
+            case DeviceRegistry.TYPE_FAN:
+                client.command(CommandServer.OP_SET_SPEED, id, random.nextInt(DeviceRegistry.MAX_SPEED + 1));
+                break;
+            default:
+                if (random.nextInt(4) == 0) {
+                    client.command(CommandServer.OP_TOGGLE_AC, id, -1);
+                }
+                else {
+                    client.command(CommandServer.OP_SET_TARGET, id, DeviceRegistry.MIN_TEMP + random.nextInt(DeviceRegistry.MAX_TEMP - DeviceRegistry.MIN_TEMP + 1));
+                }
+                break;
+        }
+    }
+
+    //convert journal records of user actions to "<microseconds since the first record> <command>" lines
+    //controller heating/cooling, system events and bulk operations have no single command and are left out
+    private static void record(Path journal, Path trace) throws IOException {
+        List<Path> segments = Files.isDirectory(journal) ? JournalReader.listSegments(journal) : List.of(journal);
+        long[] counts = new long[2];
+        long[] first = {-1};
+        try (BufferedWriter out = Files.newBufferedWriter(trace, StandardCharsets.US_ASCII)) {
+            out.write("# LoadHarness trace from " + journal + ": <microseconds> <command>\n");
+            for (Path segment : segments) {
+                JournalReader.read(segment, (time, event, deviceId, deviceType, value, sequence) -> {
+                    String command = toCommand(event, deviceId, deviceType, value);
+                    if (command == null) {
+                        counts[1]++;
+                        return;
+                    }
+                    if (first[0] < 0) first[0] = time;
+                    try {
+                        out.write(TimeUnit.NANOSECONDS.toMicros(time - first[0]) + " " + command + "\n");
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    counts[0]++;
+                });
+            }
+        }
+        System.out.println("Recorded " + counts[0] + " commands from " + segments.size() + " segment(s) to " + trace + " (" + counts[1] + " other records skipped)");
+    }
+
+    //the command that reproduces a journal record, null if there is none
+    private static String toCommand(int event, int deviceId, int deviceType, int value) {
+        switch (event) {
+            case EventJournal.EVENT_POWER:
+                if (value == 0) return (char) CommandServer.OP_TURN_OFF + " " + deviceId;
+                return (char) (deviceType == DeviceRegistry.TYPE_LIGHT ? CommandServer.OP_TOGGLE_LIGHT : CommandServer.OP_TOGGLE_AC) + " " + deviceId;
+            case EventJournal.EVENT_SPEED:
+                return (char) CommandServer.OP_SET_SPEED + " " + deviceId + " " + value;
+            case EventJournal.EVENT_TARGET:
+                return (char) CommandServer.OP_SET_TARGET + " " + deviceId + " " + value;
+            case EventJournal.EVENT_MAINTENANCE_OFF:
+                return (char) CommandServer.OP_TURN_OFF + " " + deviceId;
+            default:
+                return null;
+        }
+    }
+
+    //replay a trace on one connection, in order, with the gaps between commands divided by the speed
+    private boolean replay(Path trace, double speed, int devices) throws IOException, InterruptedException {
+        List<long[]> times = new ArrayList<>();
+        List<byte[]> lines = new ArrayList<>();
+        int maxId = 0;
+        try (BufferedReader in = Files.newBufferedReader(trace, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int space = line.indexOf(' ');
+                String command = line.substring(space + 1);
+                String[] fields = command.split(" ");
+                if (fields.length > 1) {
+                    maxId = Math.max(maxId, Integer.parseInt(fields[1]));
+                }
+                times.add(new long[] {Long.parseLong(line.substring(0, space))});
+                lines.add((command + "\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        if (lines.isEmpty()) {
+            System.err.println(trace + ": no commands");
+            return false;
+        }
+        startServer(devices > 0 ? devices : (maxId / 3 + 1) * 3);
+        Client client = new Client(0);
+        gc.start();
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        int i = 0;
+        while (i < lines.size()) {
+            long due = start + (long) (TimeUnit.MICROSECONDS.toNanos(times.get(i)[0]) / speed);
+            waitUntil(due);
+            //everything due within this tick goes in one batch
+            while (i < lines.size() && start + (long) (TimeUnit.MICROSECONDS.toNanos(times.get(i)[0]) / speed) < due + TICK_NANOS
+                    && client.batched < MAX_BATCH) {
+                client.raw(lines.get(i++));
+            }
+            client.sync(due);
+        }
+        long end = awaitAcknowledged(new Client[] {client});
+        double traceSeconds = times.get(times.size() - 1)[0] / 1e6;
+        System.out.printf("Replay: %,d commands from %s (%.1f s recorded) at %s speed%n", lines.size(), trace, traceSeconds,
+            Double.isInfinite(speed) ? "max" : speed + "x");
+        return report(start, end);
+    }
+
+    private static void waitUntil(long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    //wait for every batch to be acknowledged, returns the time of the last acknowledgement
+    private long awaitAcknowledged(Client[] clients) throws InterruptedException {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        long last = 0;
+        for (Client client : clients) {
+            while (client.acknowledgedBatches < client.sentBatches && System.nanoTime() < deadline && client.open) {
+                Thread.sleep(1);
+            }
+            if (client.acknowledgedBatches < client.sentBatches) {
+                System.err.println("Connection " + client.index + ": " + (client.sentBatches - client.acknowledgedBatches) + " batches never acknowledged");
+            }
+            last = Math.max(last, client.lastAcknowledgedNanos);
+            client.close();
+        }
+        return last;
+    }
+
+    //print throughput, latency and GC, then check the release gates
+    private boolean report(long start, long end) {
+        double seconds = Math.max(end - start, 1) / 1e9;
+        double throughput = acknowledged.get() / seconds;
+        double p99Millis = latency.getPercentile(99) / 1e6;
+        System.out.printf("Throughput: %,.0f commands/s (%,d acknowledged in %.2f s, %d errors)%n", throughput, acknowledged.get(), seconds, errors.get());
+        System.out.printf("Latency, due to acknowledged per batch: p50=%.3f ms p99=%.3f ms p99.9=%.3f ms max=%.3f ms (%d batches)%n",
+            latency.getPercentile(50) / 1e6, p99Millis, latency.getPercentile(99.9) / 1e6, latency.getMax() / 1e6, latency.getCount());
+        if (server != null) {
+            System.out.println("In-process server (GC below covers both): " + server.getMetrics());
+        }
+        System.out.println(gc.getSummary());
+        boolean passed = true;
+        if (MAX_P99_MILLIS > 0 && p99Millis > MAX_P99_MILLIS) {
+            System.out.printf("FAIL: p99 %.3f ms is above %.3f ms%n", p99Millis, MAX_P99_MILLIS);
+            passed = false;
+        }
+        if (MIN_THROUGHPUT > 0 && throughput < MIN_THROUGHPUT) {
+            System.out.printf("FAIL: throughput %,.0f commands/s is below %,.0f%n", throughput, MIN_THROUGHPUT);
+            passed = false;
+        }
+        if (errors.get() > 0) {
+            System.out.println("FAIL: the server rejected " + errors.get() + " command lines");
+            passed = false;
+        }
+        if (passed && (MAX_P99_MILLIS > 0 || MIN_THROUGHPUT > 0)) {
+            System.out.println("PASS");
+        }
+        return passed;
+    }
+
+    //one blocking connection: the sender thread writes commands and syncs, a reader thread matches "OK" replies to batches
+    private final class Client {
+        private final int index;
+        private final SocketChannel channel;
+        private final ByteBuffer output = ByteBuffer.allocate(64 * 1024);
+        private final long[] dueNanos = new long[MAX_OUTSTANDING];
+        private final int[] batchCommands = new int[MAX_OUTSTANDING];
+        private volatile long sentBatches;
+        private volatile long acknowledgedBatches;
+        private volatile long lastAcknowledgedNanos;
+        private volatile boolean open = true;
+        private int batched;
+
+        private Client(int index) throws IOException {
+            this.index = index;
+            channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+            channel.socket().setTcpNoDelay(true);
+            Thread reader = new Thread(this::readReplies, "harness-reader-" + index);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        //append one command line without allocating, a negative argument is left out
+        private void command(int op, int id, int argument) {
+            ensureRoom(32);
+            output.put((byte) op).put((byte) ' ');
+            putNumber(id);
+            if (argument >= 0) {
+                output.put((byte) ' ');
+                putNumber(argument);
+            }
+            output.put((byte) '\n');
+            batched++;
+        }
+
+        //append a recorded command line
+        private void raw(byte[] line) {
+            ensureRoom(line.length);
+            output.put(line);
+            batched++;
+        }
+
+        //close the batch with a Q and send it, waits while too many batches are unacknowledged
+        private void sync(long due) {
+            while (sentBatches - acknowledgedBatches >= MAX_OUTSTANDING && open) {
+                LockSupport.parkNanos(10_000);
+            }
+            int slot = (int) (sentBatches % MAX_OUTSTANDING);
+            dueNanos[slot] = due;
+            batchCommands[slot] = batched;
+            batched = 0;
+            sentBatches++;
+            ensureRoom(2);
+            output.put((byte) CommandServer.OP_SYNC).put((byte) '\n');
+            flush();
+        }
+
+        private void putNumber(int value) {
+            if (value >= 10) {
+                putNumber(value / 10);
+            }
+            output.put((byte) ('0' + value % 10));
+        }
+
+        private void ensureRoom(int bytes) {
+            if (output.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            output.flip();
+            try {
+                while (output.hasRemaining() && open) {
+                    channel.write(output);
+                }
+            } catch (IOException e) {
+                open = false;
+            }
+            output.clear();
+        }
+
+        //"OK <applied>" acknowledges the oldest batch, "ERR <line>" counts a rejected line
+        private void readReplies() {
+            ByteBuffer input = ByteBuffer.allocate(64 * 1024);
+            try {
+                while (channel.read(input) >= 0) {
+                    int lineStart = 0;
+                    for (int i = 0; i < input.position(); i++) {
+                        if (input.get(i) != '\n') continue;
+                        if (input.get(lineStart) == 'O') {
+                            long now = System.nanoTime();
+                            int slot = (int) (acknowledgedBatches % MAX_OUTSTANDING);
+                            if (dueNanos[slot] >= measureFrom) {
+                                latency.record(now - dueNanos[slot]);
+                                acknowledged.addAndGet(batchCommands[slot]);
+                            }
+                            lastAcknowledgedNanos = now;
+                            acknowledgedBatches++;
+                        }
+                        else {
+                            errors.incrementAndGet();
+                        }
+                        lineStart = i + 1;
+                    }
+                    input.limit(input.position()).position(lineStart);
+                    input.compact();
+                }
+            } catch (IOException e) {
+                //connection closed
+            }
+            open = false;
+        }
+
+        private void close() {
+            open = false;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //closing anyway
+            }
+        }
+    }
+
+    //collection counts and times per collector between start and the report, and the longest single collection
+    private static final class GcMonitor {
+        private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        private final long[] startCounts = new long[collectors.size()];
+        private final long[] startMillis = new long[collectors.size()];
+        private final AtomicLong longestMillis = new AtomicLong();
+
+        private GcMonitor() {
+            for (GarbageCollectorMXBean collector : collectors) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+                        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                        longestMillis.accumulateAndGet(info.getGcInfo().getDuration(), Math::max);
+                    }, null, null);
+                }
+            }
+        }
+
+        private void start() {
+            for (int i = 0; i < collectors.size(); i++) {
+                startCounts[i] = collectors.get(i).getCollectionCount();
+                startMillis[i] = collectors.get(i).getCollectionTime();
+            }
+            longestMillis.set(0);
+        }
+
+        //getter for the summary as a string
+        private String getSummary() {
+            StringBuilder summary = new StringBuilder("GC:");
+            for (int i = 0; i < collectors.size(); i++) {
+                GarbageCollectorMXBean collector = collectors.get(i);
+                summary.append(' ').append(collector.getName()).append(' ').append(collector.getCollectionCount() - startCounts[i])
+                    .append(" (").append(collector.getCollectionTime() - startMillis[i]).append(" ms) |");
+            }
+            Runtime runtime = Runtime.getRuntime();
+            return summary.append(" longest ").append(longestMillis.get()).append(" ms | heap used ")
+                .append((runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)).append(" MB").toString();
+        }
+    }
+
+    //main method, exits with status 1 if a gate is missed
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String mode = args.length > 0 ? args[0] : "storm";
+        LoadHarness harness = new LoadHarness();
+        boolean passed = true;
+        switch (mode) {
+            case "storm":
+                passed = harness.storm(args.length > 1 ? Integer.parseInt(args[1]) : 1000,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 100_000,
+                    args.length > 3 ? Integer.parseInt(args[3]) : 10,
+                    args.length > 4 ? Integer.parseInt(args[4]) : 4);
+                break;
+            case "record":
+                record(Paths.get(args.length > 1 ? args[1] : "journal"), Paths.get(args.length > 2 ? args[2] : DEFAULT_TRACE));
+                break;
+            case "replay":
+                String speed = args.length > 2 ? args[2] : "1";
+                passed = harness.replay(Paths.get(args.length > 1 ? args[1] : DEFAULT_TRACE),
+                    speed.equals("max") ? Double.POSITIVE_INFINITY : Double.parseDouble(speed),
+                    args.length > 3 ? Integer.parseInt(args[3]) : 0);
+                break;
+            default:
+                System.err.println("Usage: java LoadHarness storm [devices] [rate] [seconds] [connections] | record [journal] [trace] | replay [trace] [speed] [devices]");
+                passed = false;
+        }
+        harness.stopServer();
+        System.exit(passed ? 0 : 1);
+    }
+}
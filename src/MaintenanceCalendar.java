@@ -0,0 +1,193 @@
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+//Maintenance Calendar - fires cron-style maintenance windows per device group without polling the clock
+//it computes the next fire instant and sets a single one-shot timer on the timing wheel for it,
+//a cheap watchdog compares wall-clock time against monotonic time to catch clock changes or suspend and re-plans
+
+public class MaintenanceCalendar {
+    //group id meaning "every device"
+    public static final int ALL_GROUPS = DeviceRegistry.ALL_GROUPS;
+
+    //how often the watchdog compares the clocks, and how much drift counts as a jump
+    private static final long WATCHDOG_PERIOD_MILLIS = 60000;
+    private static final long JUMP_TOLERANCE_MILLIS = 2000;
+
+    private final Scheduler scheduler;
+    private final ZoneId zone;
+    private final Clock clock;
+    private final List<Window> windows = new ArrayList<>();
+
+    private Scheduler.Timeout nextTimer;
+    private Scheduler.Timeout watchdog;
+    private long plannedWallMillis;
+    private long plannedMonoNanos;
+    private long jumpsDetected;
+
+    //constructor, callbacks run on the scheduler's dispatcher, cron expressions use the scheduler clock's time zone
+    public MaintenanceCalendar(Scheduler scheduler) {
+        this(scheduler, scheduler.getClock().getZone());
+    }
+
+    //constructor with an explicit time zone for evaluating the cron expressions
+    public MaintenanceCalendar(Scheduler scheduler, ZoneId zone) {
+        this.scheduler = scheduler;
+        this.zone = zone;
+        this.clock = scheduler.getClock().withZone(zone);
+    }
+
+    //add a recurring window for a group, the action receives the group id
+    public synchronized Window addWindow(String name, String cron, int group, IntConsumer action) {
+        Window window = new Window(name, new CronSchedule(cron), group, action);
+        window.nextFire = window.schedule.next(LocalDateTime.now(clock));
+        windows.add(window);
+        if (watchdog != null) {
+            plan();
+        }
+        return window;
+    }
+
+    //remove a window
+    public synchronized void removeWindow(Window window) {
+        windows.remove(window);
+        if (watchdog != null) {
+            plan();
+        }
+    }
+
+    //start planning windows and watching the clock
+    public synchronized void start() {
+        if (watchdog != null) return;
+        watchdog = scheduler.scheduleAtFixedRate(this::checkClock, WATCHDOG_PERIOD_MILLIS, WATCHDOG_PERIOD_MILLIS);
+        plan();
+    }
+
+    //stop all timers
+    public synchronized void stop() {
+        if (watchdog != null) {
+            watchdog.cancel();
+            watchdog = null;
+        }
+        if (nextTimer != null) {
+            nextTimer.cancel();
+            nextTimer = null;
+        }
+    }
+
+    //set a single timer for the earliest window
+    private void plan() {
+        if (nextTimer != null) {
+            nextTimer.cancel();
+            nextTimer = null;
+        }
+        plannedWallMillis = clock.millis();
+        plannedMonoNanos = scheduler.nanoTime();
+        LocalDateTime earliest = null;
+        for (Window window : windows) {
+            if (window.nextFire != null && (earliest == null || window.nextFire.isBefore(earliest))) {
+                earliest = window.nextFire;
+            }
+        }
+        if (earliest == null) return;
+        long delay = earliest.atZone(zone).toInstant().toEpochMilli() - plannedWallMillis;
+        nextTimer = scheduler.schedule(this::fireDue, Math.max(delay, 0));
+    }
+
+    //run every window whose time has come, then plan the next one
+    private synchronized void fireDue() {
+        nextTimer = null;
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (Window window : windows) {
+            //a window is due once its minute has started, windows skipped by a forward jump fire once to catch up
+            if (window.nextFire != null && !window.nextFire.isAfter(now)) {
+                window.fireCount++;
+                try {
+                    window.action.accept(window.group);
+                } catch (RuntimeException e) {
+                    System.err.println("Maintenance window '" + window.name + "' failed: " + e);
+                }
+                window.nextFire = window.schedule.next(now);
+            }
+        }
+        plan();
+    }
+
+    //compare elapsed wall time with elapsed monotonic time, a difference means the clock was changed or the machine slept
+    private synchronized void checkClock() {
+        long wallElapsed = clock.millis() - plannedWallMillis;
+        long monoElapsed = TimeUnit.NANOSECONDS.toMillis(scheduler.nanoTime() - plannedMonoNanos);
+        long drift = wallElapsed - monoElapsed;
+        if (Math.abs(drift) <= JUMP_TOLERANCE_MILLIS) return;
+        jumpsDetected++;
+        System.out.println("Clock " + (drift > 0 ? "jumped forward " : "jumped back ") + Math.abs(drift) / 1000 + "s, re-planning maintenance");
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (drift < 0) {
+            //after a backward jump the planned times may be too far away, plan again from the new time
+            for (Window window : windows) {
+                window.nextFire = window.schedule.next(now);
+            }
+            plan();
+        }
+        else {
+            //after a forward jump fire anything that was skipped
+            fireDue();
+        }
+    }
+
+    //getter for the number of clock jumps seen by the watchdog
+    public synchronized long getJumpsDetected() {
+        return jumpsDetected;
+    }
+
+    //getter for the windows
+    public synchronized List<Window> getWindows() {
+        return new ArrayList<>(windows);
+    }
+
+    //a recurring maintenance window for one group
+    public static final class Window {
+        private final String name;
+        private final CronSchedule schedule;
+        private final int group;
+        private final IntConsumer action;
+        private LocalDateTime nextFire;
+        private long fireCount;
+
+        private Window(String name, CronSchedule schedule, int group, IntConsumer action) {
+            this.name = name;
+            this.schedule = schedule;
+            this.group = group;
+            this.action = action;
+        }
+
+        //getter for the name
+        public String getName() {
+            return name;
+        }
+
+        //getter for the cron schedule
+        public CronSchedule getSchedule() {
+            return schedule;
+        }
+
+        //getter for the group id, ALL_GROUPS for every device
+        public int getGroup() {
+            return group;
+        }
+
+        //getter for the next planned fire time, null if the schedule never matches again
+        public LocalDateTime getNextFire() {
+            return nextFire;
+        }
+
+        //getter for how often the window has fired
+        public long getFireCount() {
+            return fireCount;
+        }
+    }
+}
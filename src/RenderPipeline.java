@@ -0,0 +1,299 @@
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.swing.SwingUtilities;
+
+//Render Pipeline - coalesces device changes into at most one display update per device per frame
+//state changes only set a dirty bit, a frame on the EDT (capped at the frame rate) redraws the views of dirty devices
+//each frame stops once its time budget is used up and carries the remaining dirty devices to the next frame,
+//so EDT work per frame stays bounded however many changes arrive
+
+public class RenderPipeline implements DeviceListener {
+    public static final long DEFAULT_FRAME_MILLIS = 16; //about 60 frames per second
+    public static final long DEFAULT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+    //redraws the display of one device
+    public interface View {
+        void render();
+    }
+
+    //display showing many devices (e.g. a table), told about each dirty device and then that the frame is done
+    public interface MultiView {
+        void deviceDirty(int deviceId);
+        void frameDone();
+    }
+
+    private final DeviceRegistry registry;
+    private final Scheduler scheduler;
+    private final long frameMillis;
+    private final long budgetNanos;
+    private final AtomicBoolean frameRequested = new AtomicBoolean();
+
+    //one dirty bit per device, set from any thread and cleared by the frame on the EDT
+    private volatile AtomicLongArray dirty;
+    private View[] views;
+    private MultiView[] multiViews = new MultiView[0];
+    private int cursor;
+    private volatile long lastFrameStart;
+
+    //optional change-to-render latency, when set each newly dirty device is stamped with the time it changed
+    private volatile LatencyHistogram renderLatency;
+    private long[] dirtySince = new long[0];
+
+    //metrics
+    private volatile long changes;
+    private volatile long renders;
+    private volatile long frames;
+    private volatile long framesOverBudget;
+    private volatile long lastFrameNanos;
+    private volatile long maxFrameNanos;
+    private volatile long totalFrameNanos;
+
+    //constructor, the scheduler must dispatch on the EDT (null runs frames on the next EDT turn without a rate cap)
+    public RenderPipeline(DeviceRegistry registry, Scheduler scheduler) {
+        this(registry, scheduler, DEFAULT_FRAME_MILLIS, DEFAULT_BUDGET_NANOS);
+    }
+
+    //constructor with explicit frame interval and per-frame time budget
+    public RenderPipeline(DeviceRegistry registry, Scheduler scheduler, long frameMillis, long budgetNanos) {
+        this.registry = registry;
+        this.scheduler = scheduler;
+        this.frameMillis = frameMillis;
+        this.budgetNanos = budgetNanos;
+        int capacity = Math.max(registry.size(), 1);
+        this.dirty = new AtomicLongArray((capacity + 63) >>> 6);
+        this.views = new View[capacity];
+        registry.addListener(this);
+    }
+
+    //register the view that displays a device, must be called on the EDT
+    public void register(int deviceId, View view) {
+        if (deviceId >= views.length) {
+            views = Arrays.copyOf(views, Math.max(deviceId + 1, views.length * 2));
+        }
+        views[deviceId] = view;
+    }
+
+    //unregister the view of a device, must be called on the EDT
+    public void unregister(int deviceId) {
+        if (deviceId < views.length) {
+            views[deviceId] = null;
+        }
+    }
+
+    //register a view showing many devices, must be called on the EDT
+    public void addMultiView(MultiView view) {
+        multiViews = Arrays.copyOf(multiViews, multiViews.length + 1);
+        multiViews[multiViews.length - 1] = view;
+    }
+
+    //unregister a view showing many devices, must be called on the EDT
+    public void removeMultiView(MultiView view) {
+        for (int i = 0; i < multiViews.length; i++) {
+            if (multiViews[i] == view) {
+                MultiView[] updated = new MultiView[multiViews.length - 1];
+                System.arraycopy(multiViews, 0, updated, 0, i);
+                System.arraycopy(multiViews, i + 1, updated, i, multiViews.length - i - 1);
+                multiViews = updated;
+                return;
+            }
+        }
+    }
+
+    //a device changed, only mark it dirty
+    @Override
+    public void deviceChanged(int deviceId, int field) {
+        markDirty(deviceId);
+    }
+
+    //mark a device dirty and make sure a frame is coming
+    public void markDirty(int deviceId) {
+        changes++;
+        AtomicLongArray bits = ensureCapacity(deviceId);
+        int word = deviceId >>> 6;
+        long mask = 1L << deviceId;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) break;
+        } while (!bits.compareAndSet(word, current, current | mask));
+        if ((current & mask) == 0 && renderLatency != null) {
+            stamp(deviceId);
+        }
+        requestFrame();
+    }
+
+    //remember when a device became dirty, best effort when changes come from several threads
+    private void stamp(int deviceId) {
+        long[] since = dirtySince;
+        if (deviceId >= since.length) {
+            since = Arrays.copyOf(since, Math.max(deviceId + 1, since.length * 2));
+            dirtySince = since;
+        }
+        since[deviceId] = System.nanoTime();
+    }
+
+    //record how long each change waits until its device is redrawn, null to stop
+    public void setRenderLatency(LatencyHistogram histogram) {
+        renderLatency = histogram;
+    }
+
+    //a bulk operation changed a range of devices, mark them dirty a word at a time
+    @Override
+    public void devicesChanged(int fromId, int toId) {
+        if (fromId >= toId) return;
+        changes += toId - fromId;
+        int last = toId - 1;
+        AtomicLongArray bits = ensureCapacity(last);
+        for (int word = fromId >>> 6; word <= last >>> 6; word++) {
+            long mask = -1L;
+            if (word == fromId >>> 6) mask &= -1L << fromId;
+            if (word == last >>> 6) mask &= -1L >>> (63 - (last & 63));
+            bits.getAndAccumulate(word, mask, (current, added) -> current | added);
+        }
+        requestFrame();
+    }
+
+    //grow the dirty bits when the registry has grown
+    private AtomicLongArray ensureCapacity(int deviceId) {
+        AtomicLongArray bits = dirty;
+        if ((deviceId >>> 6) < bits.length()) return bits;
+        synchronized (this) {
+            bits = dirty;
+            if ((deviceId >>> 6) >= bits.length()) {
+                AtomicLongArray grown = new AtomicLongArray(Math.max((deviceId >>> 6) + 1, bits.length() * 2));
+                for (int i = 0; i < bits.length(); i++) {
+                    grown.set(i, bits.getAndSet(i, 0));
+                }
+                dirty = grown;
+                bits = grown;
+            }
+        }
+        return bits;
+    }
+
+    //schedule one frame, later changes ride along until it runs
+    private void requestFrame() {
+        if (!frameRequested.compareAndSet(false, true)) return;
+        if (scheduler == null) {
+            SwingUtilities.invokeLater(this::renderFrame);
+            return;
+        }
+        long sinceLast = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFrameStart);
+        scheduler.schedule(this::renderFrame, Math.max(frameMillis - sinceLast, 0));
+    }
+
+    //redraw dirty devices until done or out of budget, runs on the EDT
+    private void renderFrame() {
+        long start = System.nanoTime();
+        lastFrameStart = start;
+        frameRequested.set(false);
+        AtomicLongArray bits = dirty;
+        int words = bits.length();
+        int rendered = 0;
+        boolean overBudget = false;
+        LatencyHistogram latency = renderLatency;
+        long[] since = dirtySince;
+        //start where the previous frame stopped so no device is starved
+        for (int n = 0; n < words && !overBudget; n++) {
+            int word = (cursor + n) % words;
+            long pending = bits.getAndSet(word, 0);
+            while (pending != 0) {
+                int bit = Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                int id = (word << 6) + bit;
+                if (id < views.length && views[id] != null) {
+                    views[id].render();
+                    rendered++;
+                }
+                for (MultiView view : multiViews) {
+                    view.deviceDirty(id);
+                }
+                long now = System.nanoTime();
+                if (latency != null && id < since.length && since[id] != 0) {
+                    latency.record(now - since[id]);
+                    since[id] = 0;
+                }
+                if (now - start > budgetNanos) {
+                    //put the rest back and continue with them next frame
+                    if (pending != 0) {
+                        bits.getAndAccumulate(word, pending, (a, b) -> a | b);
+                    }
+                    cursor = pending != 0 ? word : (word + 1) % words;
+                    overBudget = true;
+                    break;
+                }
+            }
+        }
+        for (MultiView view : multiViews) {
+            view.frameDone();
+        }
+        if (overBudget) {
+            framesOverBudget++;
+            requestFrame();
+        }
+        else {
+            cursor = 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        renders += rendered;
+        frames++;
+        lastFrameNanos = elapsed;
+        maxFrameNanos = Math.max(maxFrameNanos, elapsed);
+        totalFrameNanos += elapsed;
+    }
+
+    //getter for the number of state changes reported
+    public long getChangeCount() {
+        return changes;
+    }
+
+    //getter for the number of view redraws, changes minus renders is what coalescing saved
+    public long getRenderCount() {
+        return renders;
+    }
+
+    //getter for the number of frames run
+    public long getFrameCount() {
+        return frames;
+    }
+
+    //getter for frames that hit the budget and carried work over
+    public long getFramesOverBudget() {
+        return framesOverBudget;
+    }
+
+    //getter for the EDT time of the last frame, in nanoseconds
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+
+    //getter for the longest frame, in nanoseconds
+    public long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+
+    //getter for the average frame, in nanoseconds
+    public long getMeanFrameNanos() {
+        long count = frames;
+        return count == 0 ? 0 : totalFrameNanos / count;
+    }
+
+    //getter for the per-frame time budget, in nanoseconds
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        return "Render: " + changes + " changes | " + renders + " renders in " + frames + " frames | frame mean "
+            + TimeUnit.NANOSECONDS.toMicros(getMeanFrameNanos()) + "us max "
+            + TimeUnit.NANOSECONDS.toMicros(maxFrameNanos) + "us | " + framesOverBudget + " over budget";
+    }
+
+    //stop observing the registry
+    public void shutdown() {
+        registry.removeListener(this);
+    }
+}
@@ -0,0 +1,723 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Replicated Log - device state replicated from a leader controller to follower controller processes over TCP
+//every change on the leader's registry is appended to an ordered log, as the resulting state of the device or as a
+//bulk operation (the maintenance turnOff sweep is one entry pair, not one entry per device); entries are state, not
+//commands, so a toggle or a climate step means the same on every node however often it is replayed
+//the leader streams the log in batches of up to 4096 entries, a follower applies a batch on its writer thread and
+//acknowledges everything it has applied with one message when its queue runs dry; a follower too far behind for the
+//log (or restarted) gets a snapshot of every device instead
+//nodes are listed in the same order everywhere; the leader sends a heartbeat every 50 ms, and when it has been silent
+//for 500 ms the first live node in the list promotes itself and the others follow it from their own log position
+//entries acknowledged by every follower (the commit index) survive a failover, newer ones may be lost
+//every leader has its own term; a follower whose log came from another leader, or runs past the index where the
+//current leader took over (it holds entries the new leader never had), is resynced with a snapshot
+
+public class ReplicatedLog implements DeviceListener {
+    public static final int DEFAULT_PORT = 7080;
+    public static final int DEFAULT_LOG_SIZE = 1 << 20; //entries kept for followers that reconnect, must be a power of two
+    public static final long HEARTBEAT_MILLIS = 50;
+    public static final long LEADER_TIMEOUT_MILLIS = 500;
+
+    //entry kinds, in the top 4 bits of an entry
+    private static final int KIND_STATE = 1; //the whole state of one device
+    private static final int KIND_BULK = 2; //a bulk operation, always followed by its range
+    private static final int KIND_RANGE = 3;
+    private static final long RANGE_MASK = (1L << 30) - 1;
+
+    //leader to follower: kind, entry count, index of the first entry, nanos, leader's term, then the entries
+    //follower to leader: a hello with its device count, the next index it needs and the term of its log, then acks of
+    //its head and the nanos
+    private static final byte FRAME_ENTRIES = 'E';
+    private static final byte FRAME_SNAPSHOT = 'S';
+    private static final byte FRAME_NOT_LEADER = 'W';
+    private static final byte FRAME_HELLO = 'H';
+    private static final byte FRAME_ACK = 'A';
+    private static final int HEADER_BYTES = 29;
+    private static final int HELLO_BYTES = 21;
+    private static final int ACK_BYTES = 17;
+    private static final int MAX_BATCH = 4096;
+    private static final int FRAMES_PER_PASS = 4;
+    private static final int MAX_BATCHES_IN_FLIGHT = 8;
+    private static final int CONNECT_TIMEOUT_MILLIS = 200;
+    private static final long RETRY_MILLIS = 50;
+
+    //outcomes of trying to follow one node
+    private static final int NODE_DOWN = 0;
+    private static final int NODE_NOT_LEADER = 1;
+    private static final int LEADER_LOST = 2;
+
+    private final DeviceRegistry registry;
+    private final Executor writer;
+    private final InetSocketAddress[] nodes;
+    private final int self;
+    private final Runnable onPromoted;
+
+    //the log, written by the writer thread only; index i is in slot i & mask until it is overwritten
+    private final long[] entries;
+    private final long[] appendNanos;
+    private final int mask;
+    private volatile long head; //index of the next entry
+    private volatile long base; //first index this node has ever had, moved by a snapshot
+    private boolean applying; //writer thread: the leader's entries are logged as they arrive, not from the listener
+    private long pendingBulk;
+    private long lastAckNanos;
+
+    private volatile boolean running;
+    private volatile boolean leader;
+    private volatile boolean synced; //this node's state matches its log, false until the first snapshot or promotion
+    private volatile long term; //the leader whose log this node holds, written by the writer thread
+    private volatile long previousTerm; //leader: the term this node followed until it was promoted
+    private volatile long promotedAt; //leader: its head at promotion, entries from here on are its own
+    private volatile int leaderNode = -1;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread ioThread;
+    private Thread followerThread;
+    private final List<Peer> peers = new ArrayList<>(); //io thread only
+    private final Semaphore batchesInFlight = new Semaphore(MAX_BATCHES_IN_FLIGHT);
+
+    //metrics
+    private final LatencyHistogram lag = new LatencyHistogram(); //leader: append of a batch's last entry to its ack
+    private final AtomicLong entriesSent = new AtomicLong();
+    private final AtomicLong acks = new AtomicLong();
+    private final AtomicLong snapshotsSent = new AtomicLong();
+    private final AtomicLong entriesApplied = new AtomicLong();
+    private final AtomicLong snapshotsApplied = new AtomicLong();
+    private volatile long commitIndex;
+    private volatile int followerCount;
+
+    //constructor, the writer executor runs on the registry's writer thread; onPromoted runs there when this node
+    //becomes the leader and should start what only the leader runs (climate control, commands, maintenance)
+    public ReplicatedLog(DeviceRegistry registry, Executor writer, InetSocketAddress[] nodes, int self, int logSize, Runnable onPromoted) {
+        if (Integer.bitCount(logSize) != 1) {
+            throw new IllegalArgumentException("Log size must be a power of two: " + logSize);
+        }
+        this.registry = registry;
+        this.writer = writer;
+        this.nodes = nodes;
+        this.self = self;
+        this.onPromoted = onPromoted;
+        this.entries = new long[logSize];
+        this.appendNanos = new long[logSize];
+        this.mask = logSize - 1;
+    }
+
+    //listen on this node's address and join the cluster; with lead set the node leads unless it finds a leader already
+    //running (a restarted leader follows its successor), otherwise it waits for a leader and follows it
+    public void start(boolean lead) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(nodes[self]);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        registry.addListener(this);
+        ioThread = new Thread(this::runIo, "replication-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+        followerThread = new Thread(() -> runFollower(lead), "replication-follower");
+        followerThread.setDaemon(true);
+        followerThread.start();
+    }
+
+    //stop replicating, the registry keeps its state
+    public void stop() {
+        running = false;
+        registry.removeListener(this);
+        selector.wakeup();
+        try {
+            ioThread.join(1000);
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close replication port: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void deviceChanged(int deviceId, int field) {
+        if (leader && !applying) {
+            append(stateEntry(deviceId));
+        }
+    }
+
+    @Override
+    public void bulkApplied(int operation, int type, int group, int value, int fromId, int toId) {
+        if (leader && !applying) {
+            append((long) KIND_BULK << 60 | (long) (operation & 0xFF) << 48 | (long) (type & 0xFF) << 40
+                | (long) (value & 0xFF) << 32 | (group & 0xFFFFFFFFL));
+            append((long) KIND_RANGE << 60 | (long) fromId << 30 | toId);
+        }
+    }
+
+    //the state of a device as one entry: power, speed, current and target temperature, id
+    private long stateEntry(int id) {
+        return (long) KIND_STATE << 60 | (registry.isOn(id) ? 1L << 56 : 0)
+            | (long) (registry.getTargetTemperature(id) & 0xFF) << 48 | (long) (registry.getCurrentTemperature(id) & 0xFF) << 40
+            | (long) (registry.getSpeed(id) & 0xFF) << 32 | id;
+    }
+
+    //add an entry to the log, writer thread
+    private void append(long entry) {
+        long index = head;
+        int slot = (int) index & mask;
+        entries[slot] = entry;
+        appendNanos[slot] = System.nanoTime();
+        head = index + 1;
+    }
+
+    //apply one of the leader's entries to the registry, writer thread
+    private void apply(long entry) {
+        switch ((int) (entry >>> 60)) {
+            case KIND_STATE:
+                registry.setState((int) entry, (entry >>> 56 & 1) != 0, (byte) (entry >>> 32), (byte) (entry >>> 40), (byte) (entry >>> 48));
+                break;
+            case KIND_BULK:
+                pendingBulk = entry;
+                break;
+            case KIND_RANGE:
+                int operation = (int) (pendingBulk >>> 48 & 0xFF);
+                int type = (byte) (pendingBulk >>> 40);
+                int value = (byte) (pendingBulk >>> 32);
+                int group = (int) pendingBulk;
+                int fromId = (int) (entry >>> 30 & RANGE_MASK);
+                int toId = (int) (entry & RANGE_MASK);
+                registry.applyBulkAndNotify(operation, type, group, value, fromId, toId);
+                break;
+            default:
+                throw new IllegalStateException("Unknown log entry: " + Long.toHexString(entry));
+        }
+    }
+
+    //apply a batch from the leader, skipping entries already applied before a reconnect, writer thread
+    private void applyEntries(long firstIndex, long[] batch, long leaderTerm) {
+        term = leaderTerm;
+        applying = true;
+        int applied = 0;
+        try {
+            for (int i = 0; i < batch.length; i++) {
+                long index = firstIndex + i;
+                if (index < head) continue;
+                apply(batch[i]);
+                append(batch[i]);
+                applied++;
+            }
+        } finally {
+            entriesApplied.addAndGet(applied);
+            applying = false;
+        }
+    }
+
+    //replace the state of every device with the leader's, the log restarts at the snapshot's index, writer thread
+    private void applySnapshot(long index, long[] states, long leaderTerm) {
+        term = leaderTerm;
+        applying = true;
+        try {
+            for (long state : states) {
+                apply(state);
+            }
+        } finally {
+            applying = false;
+        }
+        base = index;
+        head = index;
+        synced = true;
+        snapshotsApplied.incrementAndGet();
+    }
+
+    //--- follower side: one blocking connection to the leader, batches handed to the writer thread ---
+
+    private void runFollower(boolean lead) {
+        boolean lost = false;
+        if (lead) {
+            for (int i = 0; i < nodes.length && !lost && running; i++) {
+                if (i != self && follow(i) == LEADER_LOST) {
+                    lost = true;
+                }
+            }
+            if (!lost) {
+                promote();
+                return;
+            }
+        }
+        //walk the nodes in order: follow the first leader found, and after losing one promote this node only if every
+        //node before it is down, a live node before it that does not lead yet is about to
+        while (running) {
+            boolean earlierAlive = false;
+            for (int i = 0; i < nodes.length && running; i++) {
+                if (i == self) {
+                    if (lost && !earlierAlive) {
+                        promote();
+                        return;
+                    }
+                    continue;
+                }
+                int outcome = follow(i);
+                if (outcome == LEADER_LOST) {
+                    lost = true;
+                    earlierAlive = false;
+                    i = -1;
+                }
+                else if (outcome == NODE_NOT_LEADER && i < self) {
+                    earlierAlive = true;
+                }
+            }
+            sleep(RETRY_MILLIS);
+        }
+    }
+
+    //connect to a node and follow it for as long as it leads
+    private int follow(int node) {
+        awaitApplied();
+        boolean following = false;
+        try (Socket socket = new Socket()) {
+            socket.connect(nodes[node], CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) LEADER_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64));
+            out.writeByte(FRAME_HELLO);
+            out.writeInt(registry.size());
+            out.writeLong(synced ? head : -1);
+            out.writeLong(term);
+            out.flush();
+            while (running) {
+                byte kind = in.readByte();
+                int count = in.readInt();
+                long firstIndex = in.readLong();
+                long nanos = in.readLong();
+                long leaderTerm = in.readLong();
+                if (kind == FRAME_NOT_LEADER) return NODE_NOT_LEADER;
+                if (!following) {
+                    following = true;
+                    leaderNode = node;
+                }
+                if (count == 0) continue; //heartbeat
+                long[] batch = new long[count];
+                for (int i = 0; i < count; i++) {
+                    batch[i] = in.readLong();
+                }
+                batchesInFlight.acquireUninterruptibly();
+                writer.execute(() -> {
+                    try {
+                        if (kind == FRAME_SNAPSHOT) {
+                            applySnapshot(firstIndex, batch, leaderTerm);
+                        }
+                        else {
+                            applyEntries(firstIndex, batch, leaderTerm);
+                        }
+                        //one ack for everything applied so far, sent when no further batch is waiting (or at
+                        //heartbeat pace while the leader keeps the queue full)
+                        long now = System.nanoTime();
+                        if (batchesInFlight.availablePermits() == MAX_BATCHES_IN_FLIGHT - 1
+                                || now - lastAckNanos >= HEARTBEAT_MILLIS * 1_000_000) {
+                            lastAckNanos = now;
+                            acknowledge(out, nanos);
+                        }
+                    } finally {
+                        batchesInFlight.release();
+                    }
+                });
+            }
+        } catch (IOException e) {
+            //refused, timed out or closed: down if it never led, lost if it did
+        }
+        if (following) {
+            leaderNode = -1;
+            return LEADER_LOST;
+        }
+        return NODE_DOWN;
+    }
+
+    //tell the leader how far this node has applied, writer thread
+    private void acknowledge(DataOutputStream out, long nanos) {
+        try {
+            out.writeByte(FRAME_ACK);
+            out.writeLong(head);
+            out.writeLong(nanos);
+            out.flush();
+        } catch (IOException e) {
+            //the leader is gone, the follower thread notices on its next read
+        }
+    }
+
+    //wait until every batch handed to the writer thread has been applied
+    private void awaitApplied() {
+        batchesInFlight.acquireUninterruptibly(MAX_BATCHES_IN_FLIGHT);
+        batchesInFlight.release(MAX_BATCHES_IN_FLIGHT);
+    }
+
+    //become the leader once everything received from the old one is applied; its log continues where it stopped,
+    //under a new term that is unique to this node (node index in the low bits) and newer than the one it followed
+    private void promote() {
+        awaitApplied();
+        writer.execute(() -> {
+            previousTerm = term;
+            promotedAt = head;
+            term = (Math.max(term >>> 8, System.currentTimeMillis()) + 1) << 8 | self;
+            leader = true;
+            synced = true;
+            leaderNode = self;
+            if (onPromoted != null) {
+                onPromoted.run();
+            }
+        });
+        selector.wakeup();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //--- leader side: a selector thread streams the log to every follower; followers answer other nodes "not leader" ---
+
+    private void runIo() {
+        try {
+            while (running) {
+                selector.select(leader ? 1 : HEARTBEAT_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    else if (key.isReadable()) {
+                        read((Peer) key.attachment());
+                    }
+                }
+                if (leader) {
+                    long now = System.nanoTime();
+                    for (Peer peer : peers) {
+                        send(peer, now);
+                    }
+                }
+                peers.removeIf(peer -> !peer.channel.isOpen());
+                updateCommitIndex();
+            }
+        } catch (IOException e) {
+            System.err.println("Replication stopped: " + e.getMessage());
+        } finally {
+            for (Peer peer : peers) {
+                close(peer);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Peer peer = new Peer(channel);
+            channel.register(selector, SelectionKey.OP_READ, peer);
+            peers.add(peer);
+        }
+    }
+
+    //read hellos and acks
+    private void read(Peer peer) {
+        ByteBuffer input = peer.input;
+        try {
+            if (peer.channel.read(input) < 0) {
+                close(peer);
+                return;
+            }
+        } catch (IOException e) {
+            close(peer);
+            return;
+        }
+        input.flip();
+        while (input.hasRemaining()) {
+            byte kind = input.get(input.position());
+            if (kind == FRAME_HELLO && input.remaining() >= HELLO_BYTES) {
+                input.get();
+                hello(peer, input.getInt(), input.getLong(), input.getLong());
+            }
+            else if (kind == FRAME_ACK && input.remaining() >= ACK_BYTES) {
+                input.get();
+                peer.acked = input.getLong();
+                long nanos = input.getLong();
+                lag.record(System.nanoTime() - nanos);
+                acks.incrementAndGet();
+            }
+            else if (kind != FRAME_HELLO && kind != FRAME_ACK) {
+                close(peer);
+                return;
+            }
+            else {
+                break;
+            }
+        }
+        input.compact();
+    }
+
+    //a node asks to follow: send it the log from where it stopped, a snapshot, or tell it this node does not lead
+    private void hello(Peer peer, int devices, long nextIndex, long followerTerm) {
+        if (!leader) {
+            ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES);
+            frame.put(FRAME_NOT_LEADER).putInt(0).putLong(head).putLong(0).putLong(term).flip();
+            try {
+                peer.channel.write(frame);
+            } catch (IOException e) {
+                //closing it anyway
+            }
+            close(peer);
+            return;
+        }
+        if (devices != registry.size()) {
+            System.err.println("Rejected follower with " + devices + " devices, this node has " + registry.size());
+            close(peer);
+            return;
+        }
+        peer.ready = true;
+        peer.nextIndex = nextIndex;
+        peer.acked = Math.max(nextIndex, 0);
+        //the follower's log is a prefix of this one if it came from this leader, or from the one this node followed
+        //and stops at or before the promotion; otherwise its tail may hold entries this node never had
+        boolean sameLog = followerTerm == term || (followerTerm == previousTerm && nextIndex <= promotedAt);
+        if (!sameLog || nextIndex < Math.max(base, head - entries.length) || nextIndex > head) {
+            requestSnapshot(peer);
+        }
+    }
+
+    //build the snapshot on the writer thread, so it is one consistent point in the log
+    private void requestSnapshot(Peer peer) {
+        if (peer.snapshotRequested) return;
+        peer.snapshotRequested = true;
+        writer.execute(() -> {
+            int size = registry.size();
+            ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + size * Long.BYTES);
+            frame.put(FRAME_SNAPSHOT).putInt(size).putLong(head).putLong(System.nanoTime()).putLong(term);
+            for (int id = 0; id < size; id++) {
+                frame.putLong(stateEntry(id));
+            }
+            frame.flip();
+            peer.snapshot = frame;
+            selector.wakeup();
+        });
+    }
+
+    //write what is pending, then the next frames: a snapshot, a batch of entries, or a heartbeat
+    private void send(Peer peer, long now) {
+        if (!peer.ready || !peer.channel.isOpen()) return;
+        for (int frames = 0; frames < FRAMES_PER_PASS; frames++) {
+            if (peer.output.hasRemaining()) {
+                try {
+                    peer.channel.write(peer.output);
+                } catch (IOException e) {
+                    close(peer);
+                    return;
+                }
+                if (peer.output.hasRemaining()) return;
+            }
+            if (peer.snapshotRequested) {
+                ByteBuffer snapshot = peer.snapshot;
+                if (snapshot == null) return;
+                peer.snapshot = null;
+                peer.snapshotRequested = false;
+                peer.nextIndex = snapshot.getLong(5);
+                peer.output = snapshot;
+                peer.lastSendNanos = now;
+                snapshotsSent.incrementAndGet();
+                continue;
+            }
+            long from = peer.nextIndex;
+            long to = head;
+            if (from < to) {
+                int count = (int) Math.min(MAX_BATCH, to - from);
+                ByteBuffer frame = peer.frame;
+                frame.clear();
+                frame.put(FRAME_ENTRIES).putInt(count).putLong(from).putLong(appendNanos[(int) (from + count - 1) & mask]).putLong(term);
+                for (int i = 0; i < count; i++) {
+                    frame.putLong(entries[(int) (from + i) & mask]);
+                }
+                //the writer may have lapped the ring while this was copied
+                if (from < Math.max(base, head - entries.length)) {
+                    requestSnapshot(peer);
+                    return;
+                }
+                frame.flip();
+                peer.output = frame;
+                peer.nextIndex = from + count;
+                peer.lastSendNanos = now;
+                entriesSent.addAndGet(count);
+            }
+            else if (now - peer.lastSendNanos >= HEARTBEAT_MILLIS * 1_000_000) {
+                ByteBuffer frame = peer.frame;
+                frame.clear();
+                frame.put(FRAME_ENTRIES).putInt(0).putLong(to).putLong(0).putLong(term).flip();
+                peer.output = frame;
+                peer.lastSendNanos = now;
+            }
+            else {
+                return;
+            }
+        }
+    }
+
+    //the highest index every follower has applied
+    private void updateCommitIndex() {
+        long commit = head;
+        int followers = 0;
+        for (Peer peer : peers) {
+            if (peer.ready) {
+                commit = Math.min(commit, peer.acked);
+                followers++;
+            }
+        }
+        commitIndex = commit;
+        followerCount = followers;
+    }
+
+    private void close(Peer peer) {
+        try {
+            peer.channel.close();
+        } catch (IOException e) {
+            //already gone
+        }
+    }
+
+    //getter for whether this node leads
+    public boolean isLeader() {
+        return leader;
+    }
+
+    //getter for the node this one follows, itself when leading, -1 while it has no leader
+    public int getLeaderNode() {
+        return leaderNode;
+    }
+
+    //getter for the index of the next log entry
+    public long getHead() {
+        return head;
+    }
+
+    //getter for the index every follower has applied up to (leader)
+    public long getCommitIndex() {
+        return commitIndex;
+    }
+
+    //getter for the replication lag (leader): from a batch's last entry being appended to its ack, in nanoseconds
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        if (leader) {
+            return "Replication (node " + self + ", leader): head " + head + " | " + followerCount + " followers | commit "
+                + commitIndex + " (" + (head - commitIndex) + " behind) | " + entriesSent.get() + " entries sent | "
+                + acks.get() + " acks | " + snapshotsSent.get() + " snapshots | lag " + lag.getSummary();
+        }
+        return "Replication (node " + self + ", following " + (leaderNode < 0 ? "none" : "node " + leaderNode) + "): head "
+            + head + " | " + entriesApplied.get() + " entries applied | " + snapshotsApplied.get() + " snapshots";
+    }
+
+    //one connected node, touched by the io thread (snapshot is handed over by the writer thread)
+    private static final class Peer {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocate(256);
+        private final ByteBuffer frame = ByteBuffer.allocateDirect(HEADER_BYTES + MAX_BATCH * Long.BYTES);
+        private ByteBuffer output = ByteBuffer.allocate(0);
+        private boolean ready;
+        private long nextIndex;
+        private volatile long acked;
+        private long lastSendNanos;
+        private boolean snapshotRequested;
+        private volatile ByteBuffer snapshot;
+
+        private Peer(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    //run a controller node: java ReplicatedLog [node] [port,port,...] [fleet size]
+    //every node gets the same port list, the first one leads at start and takes commands on -Dreplication.commandPort
+    //(CommandServer protocol, so LoadHarness can drive it), a promoted node opens the same command port
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int self = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        String[] ports = (args.length > 1 ? args[1] : DEFAULT_PORT + "," + (DEFAULT_PORT + 1) + "," + (DEFAULT_PORT + 2)).split(",");
+        int fleetSize = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        String host = System.getProperty("replication.host", "127.0.0.1");
+        int commandPort = Integer.getInteger("replication.commandPort", CommandServer.DEFAULT_PORT);
+        InetSocketAddress[] nodes = new InetSocketAddress[ports.length];
+        for (int i = 0; i < ports.length; i++) {
+            nodes[i] = new InetSocketAddress(host, Integer.parseInt(ports[i].trim()));
+        }
+
+        //the same devices on every node: the home light, fan and AC, then the simulated fleet over 10 floors
+        DeviceRegistry registry = new DeviceRegistry(3 + fleetSize);
+        int home = registry.defineGroup("Home");
+        registry.addDevice(DeviceRegistry.TYPE_LIGHT, home);
+        registry.addDevice(DeviceRegistry.TYPE_FAN, home);
+        registry.addDevice(DeviceRegistry.TYPE_AC, home);
+        int[] floors = new int[10];
+        for (int floor = 0; floor < floors.length; floor++) {
+            floors[floor] = registry.defineGroup("Floor " + (floor + 1));
+        }
+        for (int i = 0; i < fleetSize; i++) {
+            registry.addDevice((byte) (i % 3), floors[i % floors.length]);
+        }
+
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "registry-writer"));
+        TimingWheel scheduler = new TimingWheel(10, writerThread);
+        scheduler.start();
+        Runnable lead = () -> {
+            new ClimateController(registry, scheduler);
+            CommandServer commands = new CommandServer(registry, writerThread);
+            try {
+                commands.start(commandPort);
+            } catch (IOException e) {
+                System.err.println("Failed to open the command port " + commandPort + ": " + e.getMessage());
+            }
+            //the annual update turns every device off in one bulk operation, replicated as a single entry pair
+            MaintenanceCalendar calendar = new MaintenanceCalendar(scheduler);
+            calendar.addWindow("Annual system update", "0 1 1 1 *", MaintenanceCalendar.ALL_GROUPS, group -> {
+                registry.applyBulkAndNotify(DeviceRegistry.BULK_TURN_OFF, DeviceRegistry.ANY_TYPE, DeviceRegistry.ALL_GROUPS, 0, 0, registry.size());
+            });
+            calendar.start();
+            System.out.println("Node " + self + " leading, commands on 127.0.0.1:" + commandPort);
+        };
+        ReplicatedLog log = new ReplicatedLog(registry, writerThread, nodes, self, DEFAULT_LOG_SIZE, lead);
+        log.start(self == 0);
+        System.out.println("Node " + self + " of " + nodes.length + " on " + nodes[self] + " with " + registry.size() + " devices");
+
+        //throughput is the log's growth: entries appended on the leader, entries applied on a follower
+        long[] lastHead = {0};
+        scheduler.scheduleAtFixedRate(() -> {
+            long current = log.getHead();
+            System.out.println((current - lastHead[0]) / 5 + " entries/s | " + log.getMetrics());
+            lastHead[0] = current;
+            log.getLag().reset();
+        }, 5000, 5000);
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,545 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+//Rule Engine - automation rules triggered by state changes instead of polling
+//a rule is a set of conditions on device attributes ("AC 2 current > 26 and fan 1 speed == 0") and one action
+//("fan 1 speed = 2"); conditions are indexed by the device and registry field they read, so a change only re-tests the
+//conditions on that device and field, and each rule keeps a count of its true conditions, so it is never re-tested whole
+//a rule fires when its last false condition becomes true (and once when added already true), not again while it stays true
+//timed rules ("at 23:00 turn off all lights") are cron windows on a MaintenanceCalendar
+//actions run on the writer after the change that triggered them has been fully handled, cascades are capped
+//call everything on the registry's writer thread (the EDT in the desktop app)
+
+public class RuleEngine implements DeviceListener {
+    //attributes a condition can read, the same values as the registry fields that change them
+    public static final int ATTR_ON = DeviceRegistry.FIELD_POWER;
+    public static final int ATTR_SPEED = DeviceRegistry.FIELD_SPEED;
+    public static final int ATTR_CURRENT_TEMP = DeviceRegistry.FIELD_CURRENT_TEMP;
+    public static final int ATTR_TARGET_TEMP = DeviceRegistry.FIELD_TARGET_TEMP;
+    private static final int FIELDS = 4;
+    private static final String[] ATTRIBUTE_NAMES = {"on", "speed", "current", "target"};
+
+    //comparisons
+    public static final int EQ = 0;
+    public static final int NE = 1;
+    public static final int LT = 2;
+    public static final int LE = 3;
+    public static final int GT = 4;
+    public static final int GE = 5;
+    private static final String[] COMPARISON_NAMES = {"==", "!=", "<", "<=", ">", ">="};
+
+    //actions
+    public static final int ACTION_TURN_ON = 0;
+    public static final int ACTION_TURN_OFF = 1;
+    public static final int ACTION_SET_SPEED = 2;
+    public static final int ACTION_SET_TARGET = 3;
+
+    //stop after this many rule actions in a row, protects against rules that keep triggering each other
+    private static final int MAX_CASCADE = 10_000;
+
+    private final DeviceRegistry registry;
+    private final Executor writer;
+    private final MaintenanceCalendar calendar;
+
+    //conditions
+    private int[] conditionDevices = new int[16];
+    private int[] conditionAttributes = new int[16];
+    private int[] conditionComparisons = new int[16];
+    private int[] conditionValues = new int[16];
+    private int[] conditionRules = new int[16];
+    private boolean[] conditionTrue = new boolean[16];
+    private int conditionCount;
+
+    //rules
+    private String[] ruleNames = new String[16];
+    private int[] ruleConditions = new int[16];
+    private int[] ruleTrueConditions = new int[16];
+    private int[] ruleTargets = new int[16];
+    private int[] ruleActions = new int[16];
+    private int[] ruleValues = new int[16];
+    private boolean[] ruleRemoved = new boolean[16];
+    private long[] ruleFireCounts = new long[16];
+    private int ruleCount;
+
+    //conditions per device field, key deviceId * FIELDS + field
+    private int[][] index = new int[0][];
+    private int[] indexSizes = new int[0];
+
+    //rules waiting to run their action
+    private int[] firing = new int[16];
+    private int firingCount;
+    private boolean drainScheduled;
+
+    //metrics
+    private long evaluations;
+    private long rulesFired;
+    private long cascadesStopped;
+
+    //constructor, actions run on the writer (SwingUtilities::invokeLater in the desktop app, Runnable::run inline),
+    //timed rules on the scheduler
+    public RuleEngine(DeviceRegistry registry, Scheduler scheduler, Executor writer) {
+        this.registry = registry;
+        this.writer = writer;
+        this.calendar = new MaintenanceCalendar(scheduler);
+        registry.addListener(this);
+        calendar.start();
+    }
+
+    //a condition on one attribute of one device
+    public static final class Condition {
+        private final int deviceId;
+        private final int attribute;
+        private final int comparison;
+        private final int value;
+
+        //constructor, e.g. new Condition(2, ATTR_CURRENT_TEMP, GT, 26), ATTR_ON compares with 1 or 0
+        public Condition(int deviceId, int attribute, int comparison, int value) {
+            this.deviceId = deviceId;
+            this.attribute = attribute;
+            this.comparison = comparison;
+            this.value = value;
+        }
+    }
+
+    //add a rule that runs the action on the target device when every condition holds, returns the rule id
+    public int addRule(String name, int targetId, int action, int value, Condition... conditions) {
+        if (conditions.length == 0) {
+            throw new IllegalArgumentException("Rule needs at least one condition: " + name);
+        }
+        checkAction(targetId, action);
+        for (Condition condition : conditions) {
+            checkCondition(condition);
+        }
+        int rule = ruleCount;
+        if (rule == ruleNames.length) {
+            growRules();
+        }
+        ruleNames[rule] = name;
+        ruleConditions[rule] = conditions.length;
+        ruleTargets[rule] = targetId;
+        ruleActions[rule] = action;
+        ruleValues[rule] = value;
+        ruleCount++;
+        for (Condition condition : conditions) {
+            int id = addCondition(condition, rule);
+            if (conditionTrue[id]) {
+                ruleTrueConditions[rule]++;
+            }
+        }
+        if (ruleTrueConditions[rule] == ruleConditions[rule]) {
+            fire(rule);
+        }
+        return rule;
+    }
+
+    //stop a rule, its conditions stay in the index but are skipped
+    public void removeRule(int rule) {
+        ruleRemoved[rule] = true;
+    }
+
+    //add a rule that applies a bulk action (ACTION_TURN_OFF, ACTION_SET_SPEED or ACTION_SET_TARGET) on a cron schedule
+    //to every device of a type (DeviceRegistry.ANY_TYPE for all) in a group (DeviceRegistry.ALL_GROUPS for all)
+    public MaintenanceCalendar.Window addTimedRule(String name, String cron, int type, int group, int action, int value) {
+        int operation;
+        switch (action) {
+            case ACTION_TURN_OFF:
+                operation = DeviceRegistry.BULK_TURN_OFF;
+                break;
+            case ACTION_SET_SPEED:
+                operation = DeviceRegistry.BULK_SET_SPEED;
+                break;
+            case ACTION_SET_TARGET:
+                operation = DeviceRegistry.BULK_SET_TARGET;
+                break;
+            default:
+                throw new IllegalArgumentException("Timed rules cannot use action " + action + ": " + name);
+        }
+        return calendar.addWindow(name, cron, group, g -> {
+            registry.applyBulkAndNotify(operation, type, g, value, 0, registry.size());
+        });
+    }
+
+    //stop a timed rule
+    public void removeTimedRule(MaintenanceCalendar.Window window) {
+        calendar.removeWindow(window);
+    }
+
+    //re-test only the conditions on the changed device field
+    @Override
+    public void deviceChanged(int deviceId, int field) {
+        if (field == DeviceRegistry.FIELD_ALL) {
+            for (int f = 0; f < FIELDS; f++) {
+                evaluate(deviceId * FIELDS + f);
+            }
+        }
+        else {
+            evaluate(deviceId * FIELDS + field);
+        }
+    }
+
+    //re-test every condition on the devices touched by a bulk operation
+    @Override
+    public void devicesChanged(int fromId, int toId) {
+        int from = fromId * FIELDS;
+        int to = Math.min(toId * FIELDS, index.length);
+        for (int key = from; key < to; key++) {
+            evaluate(key);
+        }
+    }
+
+    //re-test every condition of every rule, what a polling engine would do on each change; returns how many were tested
+    public int evaluateAll() {
+        for (int key = 0; key < index.length; key++) {
+            evaluate(key);
+        }
+        return conditionCount;
+    }
+
+    private void evaluate(int key) {
+        if (key >= index.length) return;
+        int[] conditions = index[key];
+        int count = indexSizes[key];
+        for (int i = 0; i < count; i++) {
+            int condition = conditions[i];
+            int rule = conditionRules[condition];
+            if (ruleRemoved[rule]) continue;
+            evaluations++;
+            boolean now = test(condition);
+            if (now == conditionTrue[condition]) continue;
+            conditionTrue[condition] = now;
+            if (!now) {
+                ruleTrueConditions[rule]--;
+            }
+            else if (++ruleTrueConditions[rule] == ruleConditions[rule]) {
+                fire(rule);
+            }
+        }
+    }
+
+    private boolean test(int condition) {
+        int id = conditionDevices[condition];
+        int actual;
+        switch (conditionAttributes[condition]) {
+            case ATTR_ON:
+                actual = registry.isOn(id) ? 1 : 0;
+                break;
+            case ATTR_SPEED:
+                actual = registry.getSpeed(id);
+                break;
+            case ATTR_CURRENT_TEMP:
+                actual = registry.getCurrentTemperature(id);
+                break;
+            default:
+                actual = registry.getTargetTemperature(id);
+                break;
+        }
+        int value = conditionValues[condition];
+        switch (conditionComparisons[condition]) {
+            case EQ:
+                return actual == value;
+            case NE:
+                return actual != value;
+            case LT:
+                return actual < value;
+            case LE:
+                return actual <= value;
+            case GT:
+                return actual > value;
+            default:
+                return actual >= value;
+        }
+    }
+
+    //queue a rule's action, the queue is drained on the writer once the current change is done
+    private void fire(int rule) {
+        if (firingCount == firing.length) {
+            firing = Arrays.copyOf(firing, firingCount * 2);
+        }
+        firing[firingCount++] = rule;
+        if (!drainScheduled) {
+            drainScheduled = true;
+            writer.execute(this::drain);
+        }
+    }
+
+    //run the queued actions, actions that make other rules true queue them behind (drainScheduled stays set meanwhile,
+    //so an inline writer does not start a nested drain)
+    private void drain() {
+        int run = 0;
+        for (int i = 0; i < firingCount; i++) {
+            int rule = firing[i];
+            //a later change in the same turn may have made the rule false again
+            if (ruleRemoved[rule] || ruleTrueConditions[rule] != ruleConditions[rule]) continue;
+            if (++run > MAX_CASCADE) {
+                cascadesStopped++;
+                System.err.println("Rule cascade stopped after " + MAX_CASCADE + " actions at rule '" + ruleNames[rule] + "'");
+                break;
+            }
+            ruleFireCounts[rule]++;
+            rulesFired++;
+            apply(rule);
+        }
+        firingCount = 0;
+        drainScheduled = false;
+    }
+
+    private void apply(int rule) {
+        int target = ruleTargets[rule];
+        int value = ruleValues[rule];
+        switch (ruleActions[rule]) {
+            case ACTION_TURN_ON:
+                if (registry.isOn(target)) break;
+                switch (registry.getType(target)) {
+                    case DeviceRegistry.TYPE_LIGHT:
+                        registry.toggleLight(target);
+                        break;
+                    case DeviceRegistry.TYPE_FAN:
+                        registry.setFanSpeed(target, 1);
+                        break;
+                    default:
+                        registry.toggleAirConditioner(target);
+                        break;
+                }
+                break;
+            case ACTION_TURN_OFF:
+                registry.turnOff(target);
+                break;
+            case ACTION_SET_SPEED:
+                if (registry.getSpeed(target) != value) {
+                    registry.setFanSpeed(target, value);
+                }
+                break;
+            default:
+                if (registry.getTargetTemperature(target) != value) {
+                    registry.setTargetTemperature(target, value);
+                }
+                break;
+        }
+    }
+
+    //add a condition to the index under the field that changes it (a fan is on through its speed)
+    private int addCondition(Condition condition, int rule) {
+        int id = conditionCount;
+        if (id == conditionDevices.length) {
+            growConditions();
+        }
+        conditionDevices[id] = condition.deviceId;
+        conditionAttributes[id] = condition.attribute;
+        conditionComparisons[id] = condition.comparison;
+        conditionValues[id] = condition.value;
+        conditionRules[id] = rule;
+        conditionCount++;
+        conditionTrue[id] = test(id);
+        int field = condition.attribute == ATTR_ON && registry.getType(condition.deviceId) == DeviceRegistry.TYPE_FAN
+            ? DeviceRegistry.FIELD_SPEED : condition.attribute;
+        int key = condition.deviceId * FIELDS + field;
+        if (key >= index.length) {
+            int capacity = Math.max(key + 1, index.length * 2);
+            index = Arrays.copyOf(index, capacity);
+            indexSizes = Arrays.copyOf(indexSizes, capacity);
+        }
+        if (index[key] == null) {
+            index[key] = new int[2];
+        }
+        else if (indexSizes[key] == index[key].length) {
+            index[key] = Arrays.copyOf(index[key], indexSizes[key] * 2);
+        }
+        index[key][indexSizes[key]++] = id;
+        return id;
+    }
+
+    private void checkCondition(Condition condition) {
+        checkDevice(condition.deviceId);
+        if (condition.attribute < 0 || condition.attribute >= FIELDS) {
+            throw new IllegalArgumentException("Unknown attribute: " + condition.attribute);
+        }
+        if (condition.comparison < EQ || condition.comparison > GE) {
+            throw new IllegalArgumentException("Unknown comparison: " + condition.comparison);
+        }
+        byte type = registry.getType(condition.deviceId);
+        if (condition.attribute == ATTR_SPEED && type != DeviceRegistry.TYPE_FAN
+            || condition.attribute >= ATTR_CURRENT_TEMP && type != DeviceRegistry.TYPE_AC) {
+            throw new IllegalArgumentException(DeviceRegistry.getTypeName(type) + " " + condition.deviceId + " has no "
+                + ATTRIBUTE_NAMES[condition.attribute]);
+        }
+    }
+
+    private void checkAction(int targetId, int action) {
+        checkDevice(targetId);
+        byte type = registry.getType(targetId);
+        if (action < ACTION_TURN_ON || action > ACTION_SET_TARGET) {
+            throw new IllegalArgumentException("Unknown action: " + action);
+        }
+        if (action == ACTION_SET_SPEED && type != DeviceRegistry.TYPE_FAN || action == ACTION_SET_TARGET && type != DeviceRegistry.TYPE_AC) {
+            throw new IllegalArgumentException(DeviceRegistry.getTypeName(type) + " " + targetId + " cannot take action " + action);
+        }
+    }
+
+    private void checkDevice(int id) {
+        if (id < 0 || id >= registry.size()) {
+            throw new IllegalArgumentException("Unknown device id: " + id);
+        }
+    }
+
+    private void growConditions() {
+        int capacity = conditionDevices.length * 2;
+        conditionDevices = Arrays.copyOf(conditionDevices, capacity);
+        conditionAttributes = Arrays.copyOf(conditionAttributes, capacity);
+        conditionComparisons = Arrays.copyOf(conditionComparisons, capacity);
+        conditionValues = Arrays.copyOf(conditionValues, capacity);
+        conditionRules = Arrays.copyOf(conditionRules, capacity);
+        conditionTrue = Arrays.copyOf(conditionTrue, capacity);
+    }
+
+    private void growRules() {
+        int capacity = ruleNames.length * 2;
+        ruleNames = Arrays.copyOf(ruleNames, capacity);
+        ruleConditions = Arrays.copyOf(ruleConditions, capacity);
+        ruleTrueConditions = Arrays.copyOf(ruleTrueConditions, capacity);
+        ruleTargets = Arrays.copyOf(ruleTargets, capacity);
+        ruleActions = Arrays.copyOf(ruleActions, capacity);
+        ruleValues = Arrays.copyOf(ruleValues, capacity);
+        ruleRemoved = Arrays.copyOf(ruleRemoved, capacity);
+        ruleFireCounts = Arrays.copyOf(ruleFireCounts, capacity);
+    }
+
+    //load rules from a text file, one per line, returns how many were added; # starts a comment
+    //  when 2.current > 26 and 1.speed == 0 then 1.speed = 2     attributes: on, speed, current, target
+    //  at 0 23 * * * then lights off                             lights, fans, acs or all; cron as in MaintenanceCalendar
+    public int loadRules(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        int added = 0;
+        for (int number = 1; number <= lines.size(); number++) {
+            String line = lines.get(number - 1).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                parseRule(line);
+                added++;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(file + " line " + number + ": " + e.getMessage(), e);
+            }
+        }
+        return added;
+    }
+
+    private void parseRule(String line) {
+        int then = line.indexOf(" then ");
+        if (then < 0) {
+            throw new IllegalArgumentException("Missing 'then'");
+        }
+        String[] action = line.substring(then + 6).trim().split("\\s+");
+        if (line.startsWith("at ")) {
+            if (action.length != 2 || !action[1].equals("off")) {
+                throw new IllegalArgumentException("Timed rules take '<lights|fans|acs|all> off'");
+            }
+            addTimedRule(line, line.substring(3, then).trim(), parseTypes(action[0]), DeviceRegistry.ALL_GROUPS, ACTION_TURN_OFF, 0);
+            return;
+        }
+        if (!line.startsWith("when ")) {
+            throw new IllegalArgumentException("Rules start with 'when' or 'at'");
+        }
+        String[] parts = line.substring(5, then).trim().split("\\s+and\\s+");
+        Condition[] conditions = new Condition[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String[] words = parts[i].split("\\s+");
+            if (words.length != 3) {
+                throw new IllegalArgumentException("Conditions look like '<id>.<attribute> <comparison> <value>'");
+            }
+            int[] target = parseTarget(words[0]);
+            conditions[i] = new Condition(target[0], target[1], indexOf(COMPARISON_NAMES, words[1], "comparison"), Integer.parseInt(words[2]));
+        }
+        if (action.length != 3 || !action[1].equals("=")) {
+            throw new IllegalArgumentException("Actions look like '<id>.<attribute> = <value>'");
+        }
+        int[] target = parseTarget(action[0]);
+        int value = Integer.parseInt(action[2]);
+        int type;
+        switch (target[1]) {
+            case ATTR_ON:
+                type = value != 0 ? ACTION_TURN_ON : ACTION_TURN_OFF;
+                break;
+            case ATTR_SPEED:
+                type = ACTION_SET_SPEED;
+                break;
+            case ATTR_TARGET_TEMP:
+                type = ACTION_SET_TARGET;
+                break;
+            default:
+                throw new IllegalArgumentException("The current temperature cannot be set");
+        }
+        addRule(line, target[0], type, value, conditions);
+    }
+
+    //"2.current" -> {2, ATTR_CURRENT_TEMP}
+    private static int[] parseTarget(String text) {
+        int dot = text.indexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Expected '<id>.<attribute>': " + text);
+        }
+        return new int[] {Integer.parseInt(text.substring(0, dot)), indexOf(ATTRIBUTE_NAMES, text.substring(dot + 1), "attribute")};
+    }
+
+    private static int parseTypes(String text) {
+        switch (text) {
+            case "lights":
+                return DeviceRegistry.TYPE_LIGHT;
+            case "fans":
+                return DeviceRegistry.TYPE_FAN;
+            case "acs":
+                return DeviceRegistry.TYPE_AC;
+            case "all":
+                return DeviceRegistry.ANY_TYPE;
+            default:
+                throw new IllegalArgumentException("Unknown device type: " + text);
+        }
+    }
+
+    private static int indexOf(String[] names, String name, String kind) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        throw new IllegalArgumentException("Unknown " + kind + ": " + name);
+    }
+
+    //stop the timed rules and detach from the registry
+    public void shutdown() {
+        registry.removeListener(this);
+        calendar.stop();
+    }
+
+    //getter for the number of rules added
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    //getter for the name of a rule
+    public String getRuleName(int rule) {
+        return ruleNames[rule];
+    }
+
+    //getter for how often a rule has fired
+    public long getFireCount(int rule) {
+        return ruleFireCounts[rule];
+    }
+
+    //getter for the number of condition tests done
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    //getter for the number of rule actions run
+    public long getRulesFired() {
+        return rulesFired;
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        return "Rules: " + ruleCount + " rules | " + conditionCount + " conditions | " + evaluations + " evaluations | "
+            + rulesFired + " fired | " + cascadesStopped + " cascades stopped";
+    }
+}
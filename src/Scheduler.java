@@ -0,0 +1,28 @@
+import java.time.Clock;
+
+//Scheduler - the clock and timers every service in the app runs on
+//TimingWheel runs them in real time on its own thread, VirtualScheduler runs them in timestamp order as fast as the
+//CPU allows, so code that takes its time and timers from here works unchanged in an accelerated, reproducible simulation
+
+public interface Scheduler {
+    //run a task once after the delay
+    Timeout schedule(Runnable task, long delayMillis);
+
+    //run a task repeatedly, fixed rate like java.util.Timer.scheduleAtFixedRate
+    Timeout scheduleAtFixedRate(Runnable task, long initialDelayMillis, long periodMillis);
+
+    //getter for the wall clock the timers follow, use LocalDateTime.now(getClock()) instead of LocalDateTime.now()
+    Clock getClock();
+
+    //getter for monotonic time in nanoseconds, use instead of System.nanoTime() for elapsed time
+    long nanoTime();
+
+    //handle returned by schedule calls, used to cancel the task
+    interface Timeout {
+        //cancel the task
+        void cancel();
+
+        //check if the task was cancelled
+        boolean isCancelled();
+    }
+}
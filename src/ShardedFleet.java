@@ -0,0 +1,322 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+//Sharded Fleet - devices partitioned into shards, each owned by one worker thread that applies its commands and runs
+//its control loops without locks; shards share nothing, so command throughput grows with the cores
+//a device is placed by group (a floor or home stays on one shard) or by a hash of its id, and keeps a fleet-wide id
+//every shard has its own DeviceRegistry and TimingWheel, so ClimateController, listeners, the journal and snapshots work
+//per shard unchanged, and a shard whose ring is full only holds up its own timers
+//producers on any thread post encoded commands (CommandServer.encode) and tasks into the shard's multi-producer ring,
+//which keeps each producer's order; cross-shard bulk operations and queries run on every shard at once and are merged
+//set up (defineGroup, addDevice) on one thread, then start()
+
+public class ShardedFleet {
+    public static final int PARTITION_BY_GROUP = 0;
+    public static final int PARTITION_BY_HASH = 1;
+
+    private static final int RING_SIZE = 1 << 16;
+    private static final int MAX_BATCH = 4096;
+    private static final int IDLE_SPINS = 200;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long TIMER_TICK_MILLIS = 10;
+
+    private final Shard[] shards;
+    private final int partitioning;
+    private volatile boolean running;
+
+    //fleet-wide id to shard and id within the shard
+    private int[] shardOf = new int[16];
+    private int[] localIds = new int[16];
+    private int size;
+    private int groupCount;
+
+    //constructor, one shard per core is the usual choice
+    public ShardedFleet(int shardCount, int partitioning) {
+        this.partitioning = partitioning;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    //define a group on every shard, so group ids mean the same everywhere
+    public int defineGroup(String name) {
+        for (Shard shard : shards) {
+            shard.registry.defineGroup(name);
+        }
+        return groupCount++;
+    }
+
+    //add a device to the shard its group or id hash selects, returns its fleet-wide id
+    public int addDevice(byte type, int group) {
+        int id = size;
+        int shard = partitioning == PARTITION_BY_GROUP ? group % shards.length : Math.floorMod(mix(id), shards.length);
+        if (id == shardOf.length) {
+            shardOf = Arrays.copyOf(shardOf, id * 2);
+            localIds = Arrays.copyOf(localIds, id * 2);
+        }
+        shardOf[id] = shard;
+        localIds[id] = shards[shard].registry.addDevice(type, group);
+        size++;
+        return id;
+    }
+
+    //spread consecutive ids (a room's light, fan and AC) over the shards
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    //start the shard workers, each with a ClimateController for its ACs
+    public void start() {
+        running = true;
+        for (Shard shard : shards) {
+            shard.scheduler.start();
+            new ClimateController(shard.registry, shard.scheduler);
+            shard.thread.start();
+        }
+    }
+
+    //stop the workers after what is already queued
+    public void shutdown() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.scheduler.stop();
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    //post a command (CommandServer.OP_* and its argument) for a device, never blocks
+    //returns false if the shard's ring is full, the caller decides whether to retry or drop
+    public boolean tell(int deviceId, int op, int argument) {
+        if (deviceId < 0 || deviceId >= size) return false;
+        return shards[shardOf[deviceId]].offer(CommandServer.encode(op, localIds[deviceId], argument), null, false);
+    }
+
+    //run a task on a shard's worker, after the commands already posted to it
+    public void execute(int shard, Runnable task) {
+        shards[shard].execute(task);
+    }
+
+    //run a callback once every shard has applied what was posted to it before this call, on the shard that finishes last
+    public void sync(Runnable done) {
+        AtomicInteger remaining = new AtomicInteger(shards.length);
+        Runnable barrier = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                done.run();
+            }
+        };
+        for (Shard shard : shards) {
+            shard.execute(barrier);
+        }
+    }
+
+    //run a task against every shard's registry in parallel and merge the results
+    public <T> CompletableFuture<T> query(Function<DeviceRegistry, T> task, BinaryOperator<T> merge) {
+        return query(task, merge, 0, shards.length);
+    }
+
+    private <T> CompletableFuture<T> query(Function<DeviceRegistry, T> task, BinaryOperator<T> merge, int from, int to) {
+        CompletableFuture<T> result = null;
+        for (int i = from; i < to; i++) {
+            DeviceRegistry registry = shards[i].registry;
+            CompletableFuture<T> part = CompletableFuture.supplyAsync(() -> task.apply(registry), shards[i]);
+            result = result == null ? part : result.thenCombine(part, merge);
+        }
+        return result;
+    }
+
+    //bulk operation over the fleet (DeviceRegistry.BULK_*), completes with the number of devices changed on every shard
+    //partitioned by group, an operation on one group only runs on the shard that owns it
+    public CompletableFuture<Integer> applyBulk(int operation, int type, int group, int value) {
+        Function<DeviceRegistry, Integer> task = registry -> registry.applyBulkAndNotify(operation, type, group, value, 0, registry.size());
+        if (partitioning == PARTITION_BY_GROUP && group != DeviceRegistry.ALL_GROUPS) {
+            int shard = group % shards.length;
+            return query(task, Integer::sum, shard, shard + 1);
+        }
+        return query(task, Integer::sum);
+    }
+
+    //getter for the number of devices
+    public int size() {
+        return size;
+    }
+
+    //getter for the number of shards
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    //getter for the shard that owns a device
+    public int getShard(int deviceId) {
+        return shardOf[deviceId];
+    }
+
+    //getter for a device's id within its shard's registry
+    public int getLocalId(int deviceId) {
+        return localIds[deviceId];
+    }
+
+    //getter for a shard's registry, touch it only on that shard (execute or query)
+    public DeviceRegistry getRegistry(int shard) {
+        return shards[shard].registry;
+    }
+
+    //getter for the number of commands applied over all shards
+    public long getAppliedCount() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.applied;
+        }
+        return total;
+    }
+
+    //getter for the number of commands the shards could not apply (unknown device or wrong type)
+    public long getRejectedCount() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.rejected;
+        }
+        return total;
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        StringBuilder metrics = new StringBuilder("Shards: ").append(shards.length).append(" | ").append(size).append(" devices | ");
+        long rejected = 0;
+        for (Shard shard : shards) {
+            metrics.append(shard.applied).append(' ');
+            rejected += shard.rejected;
+        }
+        return metrics.append("applied | ").append(rejected).append(" rejected | ").append(getAppliedCount()).append(" total").toString();
+    }
+
+    //one partition: its registry, its ring, its timers and the worker that owns them
+    private final class Shard implements Executor {
+        private final DeviceRegistry registry = new DeviceRegistry(1024);
+        private final TimingWheel scheduler = new TimingWheel(TIMER_TICK_MILLIS, this); //due timers run on the worker
+        private final Thread thread;
+
+        //multi-producer single-consumer ring, slot i holds the entry with sequence i mod size, a task or an encoded command
+        private final long[] commands = new long[RING_SIZE];
+        private final Runnable[] tasks = new Runnable[RING_SIZE];
+        private final AtomicLongArray published = new AtomicLongArray(RING_SIZE);
+        private final AtomicLong claimed = new AtomicLong();
+        private final AtomicLong consumed = new AtomicLong();
+        private volatile boolean parked;
+
+        //metrics, written by the worker
+        private volatile long applied;
+        private volatile long rejected;
+
+        private Shard(int index) {
+            for (int i = 0; i < RING_SIZE; i++) {
+                published.set(i, -1);
+            }
+            thread = new Thread(this::run, "shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        //tasks always get in, waiting for room if the ring is full
+        @Override
+        public void execute(Runnable task) {
+            offer(0, task, true);
+        }
+
+        private boolean offer(long command, Runnable task, boolean wait) {
+            long sequence;
+            do {
+                sequence = claimed.get();
+                if (sequence - consumed.get() >= RING_SIZE) {
+                    if (!wait) return false;
+                    Thread.onSpinWait();
+                    continue;
+                }
+                if (claimed.compareAndSet(sequence, sequence + 1)) break;
+            } while (true);
+            int slot = (int) (sequence & (RING_SIZE - 1));
+            commands[slot] = command;
+            tasks[slot] = task;
+            //a volatile store before reading parked, so either the worker sees the entry or this sees it parked
+            published.set(slot, sequence);
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+            return true;
+        }
+
+        //worker loop: drain in batches, spin briefly when idle, then park
+        private void run() {
+            int idle = 0;
+            while (running || hasWork()) {
+                if (drain() > 0) {
+                    idle = 0;
+                }
+                else if (++idle < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                }
+                else {
+                    parked = true;
+                    if (!hasWork()) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    parked = false;
+                }
+            }
+        }
+
+        private boolean hasWork() {
+            long next = consumed.get();
+            return published.get((int) (next & (RING_SIZE - 1))) == next;
+        }
+
+        private int drain() {
+            long next = consumed.get();
+            int count = 0;
+            long appliedNow = 0;
+            long rejectedNow = 0;
+            while (count < MAX_BATCH) {
+                int slot = (int) (next & (RING_SIZE - 1));
+                if (published.get(slot) != next) break;
+                long command = commands[slot];
+                Runnable task = tasks[slot];
+                tasks[slot] = null;
+                next++;
+                count++;
+                consumed.lazySet(next);
+                if (task != null) {
+                    //publish the counts first, so a task (a sync) sees every command before it
+                    if (appliedNow > 0) applied += appliedNow;
+                    if (rejectedNow > 0) rejected += rejectedNow;
+                    appliedNow = 0;
+                    rejectedNow = 0;
+                    task.run();
+                }
+                else if (CommandServer.apply(registry, command)) {
+                    appliedNow++;
+                }
+                else {
+                    rejectedNow++;
+                }
+            }
+            if (appliedNow > 0) applied += appliedNow;
+            if (rejectedNow > 0) rejected += rejectedNow;
+            return count;
+        }
+    }
+}
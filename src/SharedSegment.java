@@ -0,0 +1,562 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//Shared Segment - device state in a memory-mapped file, so the controller and the UI run as separate processes
+//a headless controller process owns the registry and publishes every change straight into the mapping; Dashboard
+//processes map the same file, read the state in place and post commands into a lock-free ring in the same mapping
+//a UI that hangs or crashes no longer stops temperature control, and restarting it picks up the live state
+//every device is one aligned long written and read atomically, so a single device is never torn; a seqlock version
+//(odd while the controller writes) gives readers that need several devices at once a consistent view, and tells
+//pollers that something changed
+//layout (little endian): header, group names, command ring of {sequence, command} slots, one long per device
+//run the controller: java SharedSegment [file] [fleet size], then java -Dshared.segment=state.shm Dashboard (any number)
+//java SharedSegment probe [file] measures the command-to-visible round trip between two processes
+
+public class SharedSegment implements DeviceListener {
+    public static final int MAGIC = 0x4143534D; //"ACSM"
+    public static final int VERSION = 1;
+    public static final String DEFAULT_FILE = "state.shm";
+    public static final int DEFAULT_RING_SIZE = 1 << 12;
+    public static final long HEARTBEAT_MILLIS = 250;
+    public static final long CONTROLLER_TIMEOUT_MILLIS = 2000;
+
+    //header offsets, the fields written often each get their own cache line
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int RING_SIZE_OFFSET = 12;
+    private static final int GROUP_COUNT_OFFSET = 16;
+    private static final int STARTED_OFFSET = 24;     //controller start time, changes when a new controller takes over
+    private static final int HEARTBEAT_OFFSET = 32;
+    private static final int STATE_VERSION_OFFSET = 64;
+    private static final int RING_HEAD_OFFSET = 128;  //claimed by UI processes
+    private static final int RING_TAIL_OFFSET = 192;  //consumed by the controller
+    private static final int GROUPS_OFFSET = 256;
+    private static final int GROUPS_BYTES = 4096;
+    private static final int RING_OFFSET = GROUPS_OFFSET + GROUPS_BYTES;
+    private static final int SLOT_BYTES = 16;
+
+    private static final int MAX_BATCH = 4096;
+    private static final int IDLE_SPINS = 100;
+    private static final long IDLE_PARK_NANOS = 50_000;
+    private static final long ABANDONED_SLOT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    //atomic and ordered access to the longs of a direct buffer, offsets must be 8-byte aligned
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int ringSize;
+    private final int devicesOffset;
+    private final boolean controller;
+    private volatile boolean running = true;
+    private Thread poller;
+
+    //controller side
+    private DeviceRegistry registry;
+    private Executor writer;
+    private long stateVersion;
+    private long nextCommand;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private Scheduler.Timeout heartbeat;
+    private long stuckSequence = -1;
+    private long stuckSinceNanos;
+    private volatile long skipSequence = -1;
+    private volatile long commandsApplied;
+    private volatile long commandsRejected;
+
+    //UI side
+    private long[] mirrored;
+    private long mirroredVersion = -1;
+    private final AtomicBoolean mirrorScheduled = new AtomicBoolean();
+    private final AtomicLong commandsSent = new AtomicLong();
+    private final AtomicLong commandsDropped = new AtomicLong();
+    private volatile long mirrorPasses;
+
+    private SharedSegment(FileChannel channel, MappedByteBuffer buffer, int capacity, int ringSize, boolean controller) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.ringSize = ringSize;
+        this.devicesOffset = RING_OFFSET + ringSize * SLOT_BYTES;
+        this.controller = controller;
+    }
+
+    //controller: create or take over the segment and publish the registry into it, call on the registry's writer thread
+    //commands from UI processes are applied on the writer, the scheduler writes the heartbeat
+    public static SharedSegment publish(Path file, DeviceRegistry registry, Executor writer, Scheduler scheduler, int ringSize) throws IOException {
+        int capacity = registry.size();
+        long bytes = RING_OFFSET + (long) ringSize * SLOT_BYTES + (long) capacity * Long.BYTES;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        SharedSegment segment = new SharedSegment(channel, buffer, capacity, ringSize, true);
+        segment.registry = registry;
+        segment.writer = writer;
+
+        //a UI of an older controller sees the magic vanish while the layout is rewritten
+        buffer.putInt(MAGIC_OFFSET, 0);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(RING_SIZE_OFFSET, ringSize);
+        writeGroups(buffer, registry);
+        segment.stateVersion = (long) LONGS.getVolatile(buffer, STATE_VERSION_OFFSET) & ~1L;
+        for (int slot = 0; slot < ringSize; slot++) {
+            LONGS.setRelease(buffer, segment.slotOffset(slot), -1L);
+        }
+        LONGS.setRelease(buffer, RING_HEAD_OFFSET, 0L);
+        LONGS.setRelease(buffer, RING_TAIL_OFFSET, 0L);
+        segment.devicesChanged(0, capacity);
+        LONGS.setRelease(buffer, HEARTBEAT_OFFSET, System.currentTimeMillis());
+        LONGS.setRelease(buffer, STARTED_OFFSET, System.currentTimeMillis());
+        VarHandle.fullFence();
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        VarHandle.fullFence();
+
+        registry.addListener(segment);
+        segment.heartbeat = scheduler.scheduleAtFixedRate(
+            () -> LONGS.setRelease(buffer, HEARTBEAT_OFFSET, System.currentTimeMillis()), HEARTBEAT_MILLIS, HEARTBEAT_MILLIS);
+        segment.startPoller("shared-segment-commands");
+        return segment;
+    }
+
+    //UI: map a segment published by a controller
+    public static SharedSegment attach(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RING_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException(file + ": no controller has published a segment here");
+            }
+            int capacity = header.getInt(CAPACITY_OFFSET);
+            int ringSize = header.getInt(RING_SIZE_OFFSET);
+            long bytes = RING_OFFSET + (long) ringSize * SLOT_BYTES + (long) capacity * Long.BYTES;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new SharedSegment(channel, buffer, capacity, ringSize, false);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //group names as {length, UTF-8 bytes} so a UI process can rebuild the same group ids
+    private static void writeGroups(ByteBuffer buffer, DeviceRegistry registry) throws IOException {
+        int position = GROUPS_OFFSET;
+        int count = registry.getGroupCount();
+        for (int group = 0; group < count; group++) {
+            byte[] name = registry.getGroupName(group).getBytes(StandardCharsets.UTF_8);
+            if (position + 2 + name.length > GROUPS_OFFSET + GROUPS_BYTES) {
+                throw new IOException("Too many group names for the shared segment");
+            }
+            buffer.putShort(position, (short) name.length);
+            buffer.put(position + 2, name);
+            position += 2 + name.length;
+        }
+        buffer.putInt(GROUP_COUNT_OFFSET, count);
+    }
+
+    //device state packed into one long: type, on, speed, current, target, group
+    private static long pack(DeviceRegistry registry, int id) {
+        return registry.getType(id) | (registry.isOn(id) ? 1L : 0L) << 8 | (long) registry.getSpeed(id) << 16
+            | (long) (registry.getCurrentTemperature(id) & 0xFF) << 24 | (long) (registry.getTargetTemperature(id) & 0xFF) << 32
+            | (long) registry.getGroup(id) << 40;
+    }
+
+    private int slotOffset(int slot) {
+        return RING_OFFSET + slot * SLOT_BYTES;
+    }
+
+    private int deviceOffset(int id) {
+        return devicesOffset + id * Long.BYTES;
+    }
+
+    //controller: publish one device, runs on the writer
+    @Override
+    public void deviceChanged(int deviceId, int field) {
+        if (deviceId >= capacity) return;
+        beginWrite();
+        LONGS.setOpaque(buffer, deviceOffset(deviceId), pack(registry, deviceId));
+        endWrite();
+    }
+
+    //controller: publish a range of devices in one seqlock section
+    @Override
+    public void devicesChanged(int fromId, int toId) {
+        beginWrite();
+        for (int id = fromId; id < Math.min(toId, capacity); id++) {
+            LONGS.setOpaque(buffer, deviceOffset(id), pack(registry, id));
+        }
+        endWrite();
+    }
+
+    //odd version, and no device write may move above it
+    private void beginWrite() {
+        LONGS.setOpaque(buffer, STATE_VERSION_OFFSET, ++stateVersion);
+        VarHandle.storeStoreFence();
+    }
+
+    //even version again, released after the device writes
+    private void endWrite() {
+        LONGS.setRelease(buffer, STATE_VERSION_OFFSET, ++stateVersion);
+    }
+
+    //getter for the state version, even when no write is in progress, it changes with every published change
+    public long getStateVersion() {
+        return (long) LONGS.getAcquire(buffer, STATE_VERSION_OFFSET);
+    }
+
+    //getter for the packed state of one device, read in place, never torn
+    public long getState(int id) {
+        return (long) LONGS.getOpaque(buffer, deviceOffset(id));
+    }
+
+    //copy the state of every device as of one moment, retrying while the controller writes, returns the version read
+    public long readConsistent(long[] states) {
+        while (true) {
+            long version = getStateVersion();
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            for (int id = 0; id < capacity; id++) {
+                states[id] = (long) LONGS.getOpaque(buffer, deviceOffset(id));
+            }
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(buffer, STATE_VERSION_OFFSET) == version) {
+                return version;
+            }
+        }
+    }
+
+    //field accessors for a packed state
+    public static byte typeOf(long state) {
+        return (byte) state;
+    }
+
+    public static boolean isOn(long state) {
+        return (state >>> 8 & 0xFF) != 0;
+    }
+
+    public static int speedOf(long state) {
+        return (int) (state >>> 16 & 0xFF);
+    }
+
+    public static int currentTemperatureOf(long state) {
+        return (int) (state >>> 24 & 0xFF);
+    }
+
+    public static int targetTemperatureOf(long state) {
+        return (int) (state >>> 32 & 0xFF);
+    }
+
+    public static int groupOf(long state) {
+        return (int) (state >>> 40);
+    }
+
+    //UI: post a command (CommandServer.encode) into the ring, returns false if the ring is full
+    public boolean offer(long command) {
+        long sequence;
+        do {
+            sequence = (long) LONGS.getVolatile(buffer, RING_HEAD_OFFSET);
+            if (sequence - (long) LONGS.getAcquire(buffer, RING_TAIL_OFFSET) >= ringSize) {
+                return false;
+            }
+        } while (!LONGS.compareAndSet(buffer, RING_HEAD_OFFSET, sequence, sequence + 1));
+        int slot = slotOffset((int) (sequence & (ringSize - 1)));
+        LONGS.setOpaque(buffer, slot + Long.BYTES, command);
+        LONGS.setRelease(buffer, slot, sequence);
+        return true;
+    }
+
+    //UI: post a command, dropped and counted if the controller is not keeping up (the UI never blocks on it)
+    public void send(long command) {
+        if (offer(command)) {
+            commandsSent.incrementAndGet();
+        }
+        else {
+            commandsDropped.incrementAndGet();
+        }
+    }
+
+    //controller: watch the ring and drain it on the writer, UI: watch the state version and mirror on the writer
+    private void startPoller(String name) {
+        poller = new Thread(() -> {
+            int idle = 0;
+            while (running) {
+                boolean work = controller ? commandWaiting() : stateChanged();
+                if (work) {
+                    idle = 0;
+                    if (controller) {
+                        if (drainScheduled.compareAndSet(false, true)) {
+                            writer.execute(this::drainCommands);
+                        }
+                    }
+                    else if (mirrorScheduled.compareAndSet(false, true)) {
+                        writer.execute(this::mirror);
+                    }
+                }
+                if (idle++ < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                }
+                else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }, name);
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    private boolean commandWaiting() {
+        if (drainScheduled.get()) return false;
+        long next = nextCommand;
+        if ((long) LONGS.getAcquire(buffer, slotOffset((int) (next & (ringSize - 1)))) == next) return true;
+        //a UI that died between claiming a slot and filling it would block the ring, the slot is skipped after a while
+        if ((long) LONGS.getVolatile(buffer, RING_HEAD_OFFSET) > next) {
+            if (stuckSequence != next) {
+                stuckSequence = next;
+                stuckSinceNanos = System.nanoTime();
+            }
+            else if (System.nanoTime() - stuckSinceNanos > ABANDONED_SLOT_NANOS) {
+                skipSequence = next;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //apply a batch of commands from the ring, runs on the writer
+    private void drainCommands() {
+        int count = 0;
+        long applied = 0;
+        long rejected = 0;
+        while (count < MAX_BATCH) {
+            int slot = slotOffset((int) (nextCommand & (ringSize - 1)));
+            if ((long) LONGS.getAcquire(buffer, slot) != nextCommand) {
+                if (skipSequence != nextCommand) break;
+                nextCommand++;
+                LONGS.setRelease(buffer, RING_TAIL_OFFSET, nextCommand);
+                rejected++;
+                continue;
+            }
+            long command = (long) LONGS.getOpaque(buffer, slot + Long.BYTES);
+            nextCommand++;
+            LONGS.setRelease(buffer, RING_TAIL_OFFSET, nextCommand);
+            if (CommandServer.apply(registry, command)) {
+                applied++;
+            }
+            else {
+                rejected++;
+            }
+            count++;
+        }
+        commandsApplied += applied;
+        commandsRejected += rejected;
+        drainScheduled.set(false);
+    }
+
+    //UI: a registry holding the segment's devices and groups at their current state
+    public DeviceRegistry createRegistry() {
+        DeviceRegistry local = new DeviceRegistry(capacity);
+        int position = GROUPS_OFFSET;
+        int groups = buffer.getInt(GROUP_COUNT_OFFSET);
+        for (int group = 0; group < groups; group++) {
+            byte[] name = new byte[buffer.getShort(position)];
+            buffer.get(position + 2, name);
+            local.defineGroup(new String(name, StandardCharsets.UTF_8));
+            position += 2 + name.length;
+        }
+        long[] states = new long[capacity];
+        readConsistent(states);
+        for (int id = 0; id < capacity; id++) {
+            local.addDevice(typeOf(states[id]), groupOf(states[id]));
+            local.setState(id, isOn(states[id]), speedOf(states[id]), currentTemperatureOf(states[id]), targetTemperatureOf(states[id]));
+        }
+        mirrored = states;
+        return local;
+    }
+
+    //UI: keep a registry made by createRegistry current and send its setters' commands to the controller
+    //changes are copied on the registry's writer (the EDT), so the panels get their usual change events
+    public void mirrorInto(DeviceRegistry local, Executor writer) {
+        this.registry = local;
+        this.writer = writer;
+        local.setRemote(this::send);
+        startPoller("shared-segment-mirror");
+    }
+
+    private boolean stateChanged() {
+        return !mirrorScheduled.get() && getStateVersion() != mirroredVersion;
+    }
+
+    //copy the devices that differ from the last pass into the registry, runs on the writer
+    //devices are copied one by one (each is consistent on its own), a change during the pass shows up in the next one
+    private void mirror() {
+        mirroredVersion = getStateVersion();
+        for (int id = 0; id < capacity; id++) {
+            long state = getState(id);
+            if (state != mirrored[id]) {
+                mirrored[id] = state;
+                registry.setState(id, isOn(state), speedOf(state), currentTemperatureOf(state), targetTemperatureOf(state));
+            }
+        }
+        mirrorPasses++;
+        mirrorScheduled.set(false);
+    }
+
+    //check if the controller wrote its heartbeat recently, false as well if a new controller changed the layout
+    public boolean isControllerAlive() {
+        return buffer.getInt(MAGIC_OFFSET) == MAGIC && buffer.getInt(CAPACITY_OFFSET) == capacity
+            && System.currentTimeMillis() - (long) LONGS.getAcquire(buffer, HEARTBEAT_OFFSET) < CONTROLLER_TIMEOUT_MILLIS;
+    }
+
+    //getter for when the current controller started, changes when a new controller takes over the segment
+    public long getControllerStartMillis() {
+        return (long) LONGS.getAcquire(buffer, STARTED_OFFSET);
+    }
+
+    //getter for the number of devices
+    public int size() {
+        return capacity;
+    }
+
+    //stop polling and unmap, the controller also stops its heartbeat
+    public void close() {
+        running = false;
+        if (registry != null) {
+            registry.removeListener(this);
+            if (!controller) {
+                registry.setRemote(null);
+            }
+        }
+        if (heartbeat != null) {
+            heartbeat.cancel();
+        }
+        if (poller != null) {
+            LockSupport.unpark(poller);
+            try {
+                poller.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //closing anyway
+        }
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        if (controller) {
+            return "Shared segment (controller): " + capacity + " devices | version " + stateVersion + " | "
+                + commandsApplied + " commands applied | " + commandsRejected + " rejected";
+        }
+        return "Shared segment (UI): " + capacity + " devices | " + commandsSent.get() + " commands sent | "
+            + commandsDropped.get() + " dropped | " + mirrorPasses + " mirror passes";
+    }
+
+    //run a headless controller with the climate control, journal, snapshots and annual update: java SharedSegment [file] [fleet size]
+    //or measure the round trip against a running one: java SharedSegment probe [file] [commands]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("probe")) {
+            probe(Paths.get(args.length > 1 ? args[1] : DEFAULT_FILE), args.length > 2 ? Integer.parseInt(args[2]) : 10_000);
+            return;
+        }
+        Path file = Paths.get(args.length > 0 ? args[0] : DEFAULT_FILE);
+        int fleetSize = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        //the same devices as the Dashboard: the home light, fan and AC, then the simulated fleet over 10 floors
+        DeviceRegistry registry = new DeviceRegistry(3 + fleetSize);
+        int home = registry.defineGroup("Home");
+        registry.addDevice(DeviceRegistry.TYPE_LIGHT, home);
+        registry.addDevice(DeviceRegistry.TYPE_FAN, home);
+        registry.addDevice(DeviceRegistry.TYPE_AC, home);
+        int[] floors = new int[10];
+        for (int floor = 0; floor < floors.length; floor++) {
+            floors[floor] = registry.defineGroup("Floor " + (floor + 1));
+        }
+        for (int i = 0; i < fleetSize; i++) {
+            registry.addDevice((byte) (i % 3), floors[i % floors.length]);
+        }
+        Path snapshot = Paths.get(System.getProperty("snapshot.file", "state.snap"));
+        SnapshotWriter.restore(registry, snapshot);
+        EventJournal journal = new EventJournal(Paths.get(System.getProperty("journal.dir", "journal")));
+        registry.setJournal(journal);
+        journal.recordSystem(EventJournal.SYSTEM_STARTED);
+
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "registry-writer"));
+        TimingWheel scheduler = new TimingWheel(10, writerThread);
+        scheduler.start();
+        SharedSegment[] segment = new SharedSegment[1];
+        try {
+            writerThread.submit(() -> {
+                new ClimateController(registry, scheduler);
+                segment[0] = publish(file, registry, writerThread, scheduler, DEFAULT_RING_SIZE);
+                new SnapshotWriter(registry, snapshot, scheduler, SnapshotWriter.DEFAULT_INTERVAL_MILLIS).start();
+                //the annual update turns every device off in one bulk operation, the UIs show it through the segment
+                MaintenanceCalendar calendar = new MaintenanceCalendar(scheduler);
+                calendar.addWindow("Annual system update", "0 1 1 1 *", MaintenanceCalendar.ALL_GROUPS, group -> {
+                    journal.recordSystem(EventJournal.SYSTEM_UPDATE_STARTED);
+                    registry.applyBulkAndNotify(DeviceRegistry.BULK_TURN_OFF, DeviceRegistry.ANY_TYPE, DeviceRegistry.ALL_GROUPS, 0, 0, registry.size());
+                    journal.recordSystem(EventJournal.SYSTEM_UPDATE_COMPLETE);
+                });
+                calendar.start();
+                return null;
+            }).get();
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IOException("Failed to publish " + file, e.getCause());
+        }
+        System.out.println("Controller publishing " + registry.size() + " devices to " + file.toAbsolutePath()
+            + ", start a UI with java -Dshared.segment=" + file + " Dashboard");
+        scheduler.scheduleAtFixedRate(() -> System.out.println(segment[0].getMetrics()), 10_000, 10_000);
+        Thread.currentThread().join();
+    }
+
+    //toggle the home light through the ring and spin until the controller's change is visible in the mapping
+    private static void probe(Path file, int commands) throws IOException {
+        SharedSegment segment = attach(file);
+        if (!segment.isControllerAlive()) {
+            System.err.println("No live controller on " + file);
+            return;
+        }
+        LatencyHistogram roundTrip = new LatencyHistogram();
+        for (int i = 0; i < commands; i++) {
+            long before = segment.getState(0);
+            long start = System.nanoTime();
+            while (!segment.offer(CommandServer.encode(CommandServer.OP_TOGGLE_LIGHT, 0, 0))) {
+                Thread.onSpinWait();
+            }
+            while (segment.getState(0) == before) {
+                Thread.onSpinWait();
+                if (System.nanoTime() - start > TimeUnit.SECONDS.toNanos(1)) {
+                    System.err.println("Controller stopped answering");
+                    return;
+                }
+            }
+            roundTrip.record(System.nanoTime() - start);
+        }
+        System.out.println("Command to visible state, across processes: " + roundTrip.getSummary());
+        segment.close();
+    }
+}
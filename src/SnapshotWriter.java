@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+//Snapshot Writer - periodically captures the registry and writes the snapshot file on a background thread
+//the capture runs on the scheduler's dispatcher (the writer thread) and is skipped when nothing changed
+
+public class SnapshotWriter {
+    public static final long DEFAULT_INTERVAL_MILLIS = 30000;
+
+    private final DeviceRegistry registry;
+    private final Path file;
+    private final Scheduler scheduler;
+    private final long intervalMillis;
+    private final ExecutorService writer;
+
+    private Scheduler.Timeout timer;
+    private long savedChangeCount = -1;
+    private volatile long snapshotsWritten;
+    private volatile long lastWriteNanos;
+
+    //constructor
+    public SnapshotWriter(DeviceRegistry registry, Path file, Scheduler scheduler, long intervalMillis) {
+        this.registry = registry;
+        this.file = file;
+        this.scheduler = scheduler;
+        this.intervalMillis = intervalMillis;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //restore a registry from a snapshot file if it matches the expected device layout, returns true if restored
+    public static boolean restore(DeviceRegistry registry, Path file) {
+        if (!file.toFile().exists()) return false;
+        try {
+            long start = System.nanoTime();
+            StateSnapshot snapshot = StateSnapshot.readFrom(file);
+            if (snapshot.size() != registry.size()) {
+                System.err.println("Snapshot has " + snapshot.size() + " devices, expected " + registry.size() + ", starting fresh");
+                return false;
+            }
+            for (int id = 0; id < snapshot.size(); id++) {
+                if (snapshot.getType(id) != registry.getType(id)) {
+                    System.err.println("Snapshot device layout differs, starting fresh");
+                    return false;
+                }
+            }
+            registry.restoreSnapshot(snapshot);
+            System.out.println("Restored " + snapshot.size() + " devices in " + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + "us");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to restore snapshot, starting fresh: " + e.getMessage());
+            return false;
+        }
+    }
+
+    //start taking snapshots every interval
+    public void start() {
+        savedChangeCount = registry.getChangeCount();
+        timer = scheduler.scheduleAtFixedRate(this::capture, intervalMillis, intervalMillis);
+    }
+
+    //capture now if anything changed and hand the write to the background thread
+    public void capture() {
+        long changes = registry.getChangeCount();
+        if (changes == savedChangeCount) return;
+        savedChangeCount = changes;
+        StateSnapshot snapshot = registry.captureSnapshot();
+        writer.execute(() -> write(snapshot));
+    }
+
+    //write a snapshot, runs on the background thread
+    private void write(StateSnapshot snapshot) {
+        long start = System.nanoTime();
+        try {
+            snapshot.writeTo(file);
+            snapshotsWritten++;
+            lastWriteNanos = System.nanoTime() - start;
+        } catch (IOException e) {
+            System.err.println("Failed to write snapshot: " + e.getMessage());
+        }
+    }
+
+    //stop the timer, write a last snapshot and wait for pending writes
+    public void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        capture();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //getter for the number of snapshots written
+    public long getSnapshotsWritten() {
+        return snapshotsWritten;
+    }
+
+    //getter for how long the last write took, in nanoseconds
+    public long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+}
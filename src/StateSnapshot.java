@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+//State Snapshot - copy of every device's state in a compact fixed-layout binary file
+//capture is a few array copies on the writer thread, writing happens off the EDT into a temporary file that is
+//renamed over the old one, so a crash leaves either the old or the new snapshot, never a torn one
+//files are written and read with plain channel I/O, no mapping stays open that would stop the next rename on Windows,
+//and a snapshot read from a file is handed to the registry as is (restoreSnapshot takes over its arrays)
+//layout: 32 byte header (magic, version, device count, group count, capture time, CRC32 of the body),
+//then types, power, speeds, current and target temperatures (1 byte each per device), groups (4 bytes per device)
+//and the group names (2 byte length + UTF-8)
+
+public class StateSnapshot {
+    public static final int MAGIC = 0x41435353; //"ACSS"
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    final int size;
+    final byte[] types;
+    final boolean[] power;
+    final byte[] speeds;
+    final byte[] currentTemps;
+    final byte[] targetTemps;
+    final int[] groups;
+    final List<String> groupNames;
+    final long capturedAtMillis;
+
+    //constructor, the arrays are owned by the snapshot from now on
+    StateSnapshot(int size, byte[] types, boolean[] power, byte[] speeds, byte[] currentTemps, byte[] targetTemps,
+                  int[] groups, List<String> groupNames, long capturedAtMillis) {
+        this.size = size;
+        this.types = types;
+        this.power = power;
+        this.speeds = speeds;
+        this.currentTemps = currentTemps;
+        this.targetTemps = targetTemps;
+        this.groups = groups;
+        this.groupNames = groupNames;
+        this.capturedAtMillis = capturedAtMillis;
+    }
+
+    //getter for the number of devices
+    public int size() {
+        return size;
+    }
+
+    //getter for the type of a device
+    public byte getType(int id) {
+        return types[id];
+    }
+
+    //getter for when the snapshot was taken
+    public long getCapturedAtMillis() {
+        return capturedAtMillis;
+    }
+
+    //copy of the snapshot, for restoring the same state more than once
+    public StateSnapshot copy() {
+        return new StateSnapshot(size, Arrays.copyOf(types, size), Arrays.copyOf(power, size), Arrays.copyOf(speeds, size),
+            Arrays.copyOf(currentTemps, size), Arrays.copyOf(targetTemps, size), Arrays.copyOf(groups, size),
+            new ArrayList<>(groupNames), capturedAtMillis);
+    }
+
+    //write the snapshot crash-consistently: temporary file, force to disk, atomic rename
+    public void writeTo(Path file) throws IOException {
+        byte[][] names = new byte[groupNames.size()][];
+        long namesBytes = 0;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = groupNames.get(i).getBytes(StandardCharsets.UTF_8);
+            namesBytes += 2 + names[i].length;
+        }
+        long total = HEADER_BYTES + 5L * size + 4L * size + namesBytes;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot too large: " + total + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) total).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_BYTES);
+        buffer.put(types, 0, size);
+        for (int id = 0; id < size; id++) {
+            buffer.put((byte) (power[id] ? 1 : 0));
+        }
+        buffer.put(speeds, 0, size);
+        buffer.put(currentTemps, 0, size);
+        buffer.put(targetTemps, 0, size);
+        buffer.asIntBuffer().put(groups, 0, size);
+        buffer.position(buffer.position() + 4 * size);
+        for (byte[] name : names) {
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, (int) total - HEADER_BYTES);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, size);
+        buffer.putInt(12, names.length);
+        buffer.putLong(16, capturedAtMillis);
+        buffer.putLong(24, crc.getValue());
+        buffer.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = parent.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //read a snapshot file into arrays, throws IOException if it is missing or damaged
+    public static StateSnapshot readFrom(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Truncated snapshot: " + file);
+                }
+            }
+            buffer.flip();
+        }
+        int length = buffer.limit();
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + ": " + file);
+        }
+        int size = buffer.getInt(8);
+        int groupCount = buffer.getInt(12);
+        long capturedAt = buffer.getLong(16);
+        long checksum = buffer.getLong(24);
+        if (size < 0 || HEADER_BYTES + 9L * size > length) {
+            throw new IOException("Truncated snapshot: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, length - HEADER_BYTES);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+        buffer.position(HEADER_BYTES);
+        byte[] types = new byte[size];
+        boolean[] power = new boolean[size];
+        byte[] speeds = new byte[size];
+        byte[] currentTemps = new byte[size];
+        byte[] targetTemps = new byte[size];
+        int[] groups = new int[size];
+        buffer.get(types);
+        for (int id = 0; id < size; id++) {
+            power[id] = buffer.get() != 0;
+        }
+        buffer.get(speeds);
+        buffer.get(currentTemps);
+        buffer.get(targetTemps);
+        buffer.asIntBuffer().get(groups);
+        buffer.position(buffer.position() + 4 * size);
+        List<String> groupNames = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            groupNames.add(new String(name, StandardCharsets.UTF_8));
+        }
+        return new StateSnapshot(size, types, power, speeds, currentTemps, targetTemps, groups, groupNames, capturedAt);
+    }
+}
@@ -0,0 +1,587 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Subscription Server - streams live device state to remote dashboards over localhost
+//each subscriber gets a full snapshot, then delta frames with only the changed fields of the changed devices
+//the control path only sets a dirty bit per device field (O(1) in the listener), a publish timer on the writer encodes
+//one delta frame per interval from the latest values, and the selector thread fans the same read-only frame out to
+//every subscriber; the last RING_SIZE frames are kept, a subscriber that falls further behind is conflated to a fresh
+//snapshot of the latest state, so a slow client never builds up a queue
+//frame: kind (S or D), body length (int), sequence (long), device count (int), then per device:
+//  id delta from the previous entry (varint), field mask (byte), one byte per field in the mask (type, on, speed, current, target)
+
+public class SubscriptionServer implements DeviceListener {
+    public static final int DEFAULT_PORT = 7071;
+    public static final long DEFAULT_PUBLISH_MILLIS = 50;
+
+    //frame kinds
+    public static final byte FRAME_SNAPSHOT = 'S';
+    public static final byte FRAME_DELTA = 'D';
+    public static final int HEADER_BYTES = 1 + 4 + 8 + 4;
+
+    //field mask bits, the registry fields shifted, and the device type in snapshots
+    public static final int MASK_POWER = 1 << DeviceRegistry.FIELD_POWER;
+    public static final int MASK_SPEED = 1 << DeviceRegistry.FIELD_SPEED;
+    public static final int MASK_CURRENT_TEMP = 1 << DeviceRegistry.FIELD_CURRENT_TEMP;
+    public static final int MASK_TARGET_TEMP = 1 << DeviceRegistry.FIELD_TARGET_TEMP;
+    public static final int MASK_TYPE = 1 << 4;
+    private static final int MASK_STATE = MASK_POWER | MASK_SPEED | MASK_CURRENT_TEMP | MASK_TARGET_TEMP;
+    private static final int MAX_ENTRY_BYTES = 5 + 1 + 5;
+
+    private static final int RING_SIZE = 64;
+    private static final int ACCEPT_BACKLOG = 1024;
+    //small send buffers so a slow subscriber falls behind here, where it is conflated, instead of queueing in the kernel
+    private static final int SEND_BUFFER_BYTES = 64 * 1024;
+
+    private final DeviceRegistry registry;
+    private final Scheduler scheduler;
+    private final long publishMillis;
+    private final LatencyHistogram publishTime = new LatencyHistogram();
+
+    //writer thread: changed fields per device and the devices with any
+    private int[] dirtyMasks = new int[0];
+    private int[] dirtyIds = new int[16];
+    private int dirtyCount;
+    private long sequence;
+    private Scheduler.Timeout publisher;
+
+    //published by the writer, read by the selector thread
+    private final ByteBuffer[] frames = new ByteBuffer[RING_SIZE];
+    private volatile long publishedSequence;
+    private volatile ByteBuffer snapshot;
+    private volatile long snapshotsEncoded;
+    private final AtomicBoolean snapshotRequested = new AtomicBoolean();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    //metrics
+    private final AtomicLong bytesSent = new AtomicLong();
+    private volatile long framesPublished;
+    private volatile long framesSent;
+    private volatile long snapshotsSent;
+    private volatile long conflations;
+    private volatile long subscribersAccepted;
+    private volatile int subscriberCount;
+
+    //constructor, the scheduler must dispatch on the registry's writer (the EDT in the desktop app)
+    public SubscriptionServer(DeviceRegistry registry, Scheduler scheduler, long publishMillis) {
+        this.registry = registry;
+        this.scheduler = scheduler;
+        this.publishMillis = publishMillis;
+    }
+
+    //bind to the loopback interface, start publishing and start the selector thread, port 0 picks a free port
+    public void start(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", port), ACCEPT_BACKLOG);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        registry.addListener(this);
+        publisher = scheduler.scheduleAtFixedRate(this::publish, publishMillis, publishMillis);
+        selectorThread = new Thread(this::runSelector, "subscription-server");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    //getter for the port the server listens on
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    //stop publishing and close every subscriber
+    public void stop() {
+        running = false;
+        registry.removeListener(this);
+        if (publisher != null) {
+            publisher.cancel();
+        }
+        if (selector != null) {
+            selector.wakeup();
+        }
+        try {
+            if (selectorThread != null) {
+                selectorThread.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //mark the changed field, nothing else happens on the control path
+    @Override
+    public void deviceChanged(int deviceId, int field) {
+        mark(deviceId, field == DeviceRegistry.FIELD_ALL ? MASK_STATE : 1 << field);
+    }
+
+    //mark every field of the devices touched by a bulk operation
+    @Override
+    public void devicesChanged(int fromId, int toId) {
+        for (int id = fromId; id < toId; id++) {
+            mark(id, MASK_STATE);
+        }
+    }
+
+    private void mark(int id, int mask) {
+        if (id >= dirtyMasks.length) {
+            dirtyMasks = Arrays.copyOf(dirtyMasks, Math.max(id + 1, dirtyMasks.length * 2));
+        }
+        if (dirtyMasks[id] == 0) {
+            if (dirtyCount == dirtyIds.length) {
+                dirtyIds = Arrays.copyOf(dirtyIds, dirtyCount * 2);
+            }
+            dirtyIds[dirtyCount++] = id;
+        }
+        dirtyMasks[id] |= mask;
+    }
+
+    //encode the changes since the last publish into one delta frame, and a snapshot if a subscriber asked for one
+    //runs on the writer
+    private void publish() {
+        long start = System.nanoTime();
+        boolean published = false;
+        if (dirtyCount > 0) {
+            ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + dirtyCount * MAX_ENTRY_BYTES);
+            beginFrame(frame, FRAME_DELTA, sequence + 1, dirtyCount);
+            int previous = 0;
+            for (int i = 0; i < dirtyCount; i++) {
+                int id = dirtyIds[i];
+                writeEntry(frame, id - previous, id, dirtyMasks[id]);
+                dirtyMasks[id] = 0;
+                previous = id;
+            }
+            dirtyCount = 0;
+            sequence++;
+            frames[(int) (sequence % RING_SIZE)] = endFrame(frame);
+            publishedSequence = sequence;
+            framesPublished++;
+            published = true;
+        }
+        if (snapshotRequested.getAndSet(false)) {
+            int size = registry.size();
+            ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + size * MAX_ENTRY_BYTES);
+            beginFrame(frame, FRAME_SNAPSHOT, sequence, size);
+            for (int id = 0; id < size; id++) {
+                writeEntry(frame, id == 0 ? 0 : 1, id, MASK_TYPE | MASK_STATE);
+            }
+            snapshot = endFrame(frame);
+            snapshotsEncoded++;
+            published = true;
+        }
+        if (published) {
+            publishTime.record(System.nanoTime() - start);
+            selector.wakeup();
+        }
+    }
+
+    private static void beginFrame(ByteBuffer frame, byte kind, long sequence, int count) {
+        frame.put(kind);
+        frame.putInt(0);
+        frame.putLong(sequence);
+        frame.putInt(count);
+    }
+
+    private static ByteBuffer endFrame(ByteBuffer frame) {
+        frame.putInt(1, frame.position() - HEADER_BYTES);
+        frame.flip();
+        return frame.asReadOnlyBuffer();
+    }
+
+    private void writeEntry(ByteBuffer frame, int idDelta, int id, int mask) {
+        writeVarint(frame, idDelta);
+        frame.put((byte) mask);
+        if ((mask & MASK_TYPE) != 0) frame.put(registry.getType(id));
+        if ((mask & MASK_POWER) != 0) frame.put((byte) (registry.isOn(id) ? 1 : 0));
+        if ((mask & MASK_SPEED) != 0) frame.put((byte) registry.getSpeed(id));
+        if ((mask & MASK_CURRENT_TEMP) != 0) frame.put((byte) registry.getCurrentTemperature(id));
+        if ((mask & MASK_TARGET_TEMP) != 0) frame.put((byte) registry.getTargetTemperature(id));
+    }
+
+    private static void writeVarint(ByteBuffer frame, int value) {
+        while ((value & ~0x7F) != 0) {
+            frame.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        frame.put((byte) value);
+    }
+
+    //selector loop: accept subscribers, detect closed ones, write frames
+    private void runSelector() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Subscriber subscriber = (Subscriber) key.attachment();
+                    if (key.isReadable()) {
+                        read(subscriber);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        pump(subscriber);
+                    }
+                }
+                //new frames or snapshots, subscribers waiting on a full socket are pumped when it drains
+                for (SelectionKey key : selector.keys()) {
+                    if (key.isValid() && key.attachment() instanceof Subscriber && ((Subscriber) key.attachment()).pending == null) {
+                        pump((Subscriber) key.attachment());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Subscription server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                //already stopping
+            }
+        }
+    }
+
+    //accept every waiting subscriber, a display wall reconnecting comes all at once
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setSendBufferSize(SEND_BUFFER_BYTES);
+            Subscriber subscriber = new Subscriber(channel);
+            subscriber.key = channel.register(selector, SelectionKey.OP_READ, subscriber);
+            requestSnapshot(subscriber);
+            subscribersAccepted++;
+            subscriberCount++;
+        }
+    }
+
+    //subscribers send nothing, reading only notices when they hang up
+    private void read(Subscriber subscriber) {
+        int count;
+        try {
+            subscriber.input.clear();
+            count = subscriber.channel.read(subscriber.input);
+        } catch (IOException e) {
+            count = -1;
+        }
+        if (count < 0) {
+            close(subscriber);
+        }
+    }
+
+    private void requestSnapshot(Subscriber subscriber) {
+        subscriber.snapshotAfter = snapshotsEncoded;
+        subscriber.waitingForSnapshot = true;
+        snapshotRequested.set(true);
+    }
+
+    //write as much as the socket takes: the pending frame, then a snapshot or the next delta frames
+    private void pump(Subscriber subscriber) {
+        while (subscriber.key.isValid()) {
+            if (subscriber.pending == null && !next(subscriber)) {
+                subscriber.key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+            try {
+                bytesSent.addAndGet(subscriber.channel.write(subscriber.pending));
+            } catch (IOException e) {
+                close(subscriber);
+                return;
+            }
+            if (subscriber.pending.hasRemaining()) {
+                subscriber.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            subscriber.pending = null;
+        }
+    }
+
+    //pick the next frame for a subscriber, returns false if it is up to date or waiting for its snapshot
+    private boolean next(Subscriber subscriber) {
+        if (subscriber.waitingForSnapshot) {
+            ByteBuffer current = snapshot;
+            if (current == null || snapshotsEncoded <= subscriber.snapshotAfter) return false;
+            subscriber.waitingForSnapshot = false;
+            subscriber.pending = current.duplicate();
+            subscriber.nextSequence = current.getLong(5) + 1;
+            snapshotsSent++;
+            return true;
+        }
+        long published = publishedSequence;
+        if (subscriber.nextSequence > published) return false;
+        ByteBuffer frame = frames[(int) (subscriber.nextSequence % RING_SIZE)];
+        //too far behind, the frame it needs is gone: send the latest state instead of the backlog
+        if (published - subscriber.nextSequence >= RING_SIZE - 1 || frame == null || frame.getLong(5) != subscriber.nextSequence) {
+            conflations++;
+            requestSnapshot(subscriber);
+            return false;
+        }
+        subscriber.pending = frame.duplicate();
+        subscriber.nextSequence++;
+        framesSent++;
+        return true;
+    }
+
+    private void close(Subscriber subscriber) {
+        if (subscriber.key.isValid()) {
+            subscriberCount--;
+        }
+        closeQuietly(subscriber.key);
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            //closing anyway
+        }
+    }
+
+    //getter for how long the writer spends encoding each publish
+    public LatencyHistogram getPublishTime() {
+        return publishTime;
+    }
+
+    //getter for the number of connected subscribers
+    public int getSubscriberCount() {
+        return subscriberCount;
+    }
+
+    //getter for the number of times a slow subscriber was resynced with a snapshot instead of its backlog
+    public long getConflationCount() {
+        return conflations;
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        return "Subscriptions: " + subscriberCount + " subscribers (" + subscribersAccepted + " accepted) | "
+            + framesPublished + " frames published | " + framesSent + " frames and " + snapshotsSent + " snapshots sent | "
+            + conflations + " conflated | " + bytesSent.get() / 1024 + " KB | publish " + publishTime.getSummary();
+    }
+
+    //state of one subscriber, touched by the selector thread only
+    private static final class Subscriber {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocate(256);
+        private SelectionKey key;
+        private ByteBuffer pending;
+        private long nextSequence;
+        private boolean waitingForSnapshot;
+        private long snapshotAfter;
+
+        private Subscriber(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    //client side: a copy of the device state kept current by applying frames in order
+    public static final class Mirror {
+        private byte[] types = new byte[0];
+        private boolean[] power = new boolean[0];
+        private byte[] speeds = new byte[0];
+        private byte[] currentTemps = new byte[0];
+        private byte[] targetTemps = new byte[0];
+        private int size;
+        private long sequence = -1;
+
+        //read one frame from the stream and apply it, returns the frame kind
+        public byte read(DataInputStream in) throws IOException {
+            byte[] header = new byte[HEADER_BYTES];
+            in.readFully(header);
+            ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + ByteBuffer.wrap(header).getInt(1));
+            frame.put(header);
+            in.readFully(frame.array(), HEADER_BYTES, frame.capacity() - HEADER_BYTES);
+            return apply(frame);
+        }
+
+        //apply one complete frame, a delta that does not follow the last applied sequence is rejected
+        public byte apply(ByteBuffer frame) {
+            byte kind = frame.get(0);
+            long frameSequence = frame.getLong(5);
+            int count = frame.getInt(13);
+            if (kind == FRAME_DELTA && frameSequence != sequence + 1) {
+                throw new IllegalStateException("Missed frames: expected " + (sequence + 1) + ", got " + frameSequence);
+            }
+            if (kind == FRAME_SNAPSHOT) {
+                ensureCapacity(count);
+                size = count;
+            }
+            int position = HEADER_BYTES;
+            int id = 0;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = frame.get(position++);
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += delta;
+                ensureCapacity(id + 1);
+                size = Math.max(size, id + 1);
+                int mask = frame.get(position++);
+                if ((mask & MASK_TYPE) != 0) types[id] = frame.get(position++);
+                if ((mask & MASK_POWER) != 0) power[id] = frame.get(position++) != 0;
+                if ((mask & MASK_SPEED) != 0) speeds[id] = frame.get(position++);
+                if ((mask & MASK_CURRENT_TEMP) != 0) currentTemps[id] = frame.get(position++);
+                if ((mask & MASK_TARGET_TEMP) != 0) targetTemps[id] = frame.get(position++);
+            }
+            sequence = frameSequence;
+            return kind;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= types.length) return;
+            int grown = Math.max(capacity, types.length * 2);
+            types = Arrays.copyOf(types, grown);
+            power = Arrays.copyOf(power, grown);
+            speeds = Arrays.copyOf(speeds, grown);
+            currentTemps = Arrays.copyOf(currentTemps, grown);
+            targetTemps = Arrays.copyOf(targetTemps, grown);
+        }
+
+        //getter for the number of devices
+        public int size() {
+            return size;
+        }
+
+        //getter for the sequence of the last applied frame
+        public long getSequence() {
+            return sequence;
+        }
+
+        //getter for the type of a device
+        public byte getType(int id) {
+            return types[id];
+        }
+
+        //check if a device is on (a fan is on when its speed is above 0)
+        public boolean isOn(int id) {
+            return types[id] == DeviceRegistry.TYPE_FAN ? speeds[id] > 0 : power[id];
+        }
+
+        //getter for the speed of a fan
+        public int getSpeed(int id) {
+            return speeds[id];
+        }
+
+        //getter for the current temperature of an AC
+        public int getCurrentTemperature(int id) {
+            return currentTemps[id];
+        }
+
+        //getter for the target temperature of an AC
+        public int getTargetTemperature(int id) {
+            return targetTemps[id];
+        }
+    }
+
+    //run a headless controller with random changes and in-process subscribers, one in ten of them slow:
+    //java SubscriptionServer [port] [devices] [subscribers] [changes per second]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int devices = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int subscribers = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int changesPerSecond = args.length > 3 ? Integer.parseInt(args[3]) : 50_000;
+        DeviceRegistry registry = new DeviceRegistry(devices);
+        int group = registry.defineGroup("Default");
+        for (int i = 0; i < devices; i++) {
+            registry.addDevice((byte) (i % 3), group);
+        }
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "registry-writer"));
+        TimingWheel scheduler = new TimingWheel(10, writerThread);
+        scheduler.start();
+        SubscriptionServer server = new SubscriptionServer(registry, scheduler, DEFAULT_PUBLISH_MILLIS);
+        server.start(port);
+        System.out.println("Subscription server on 127.0.0.1:" + server.getPort() + " with " + devices + " devices");
+
+        //the control path: random changes every 10 ms, timed to show what the subscribers cost it
+        LatencyHistogram changeTime = new LatencyHistogram();
+        Random random = new Random(1);
+        int perTick = Math.max(1, changesPerSecond / 100);
+        scheduler.scheduleAtFixedRate(() -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < perTick; i++) {
+                int id = random.nextInt(devices);
+                switch (registry.getType(id)) {
+                    case DeviceRegistry.TYPE_LIGHT:
+                        registry.toggleLight(id);
+                        break;
+                    case DeviceRegistry.TYPE_FAN:
+                        registry.setFanSpeed(id, random.nextInt(DeviceRegistry.MAX_SPEED + 1));
+                        break;
+                    default:
+                        registry.setTargetTemperature(id, DeviceRegistry.MIN_TEMP + random.nextInt(15));
+                        break;
+                }
+            }
+            changeTime.record((System.nanoTime() - start) / perTick);
+        }, 10, 10);
+
+        Mirror[] mirrors = new Mirror[subscribers];
+        AtomicLong framesReceived = new AtomicLong();
+        for (int s = 0; s < subscribers; s++) {
+            Mirror mirror = new Mirror();
+            mirrors[s] = mirror;
+            boolean slow = s % 10 == 9;
+            Thread client = new Thread(() -> {
+                try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()))) {
+                    DataInputStream in = new DataInputStream(new java.io.BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+                    while (true) {
+                        mirror.read(in);
+                        framesReceived.incrementAndGet();
+                        if (slow) {
+                            Thread.sleep(200);
+                        }
+                    }
+                } catch (IOException | InterruptedException | IllegalStateException e) {
+                    //server stopped
+                }
+            }, "subscriber-" + s);
+            client.setDaemon(true);
+            client.start();
+        }
+
+        for (int round = 0; round < 3; round++) {
+            Thread.sleep(5000);
+            long behind = 0;
+            for (Mirror mirror : mirrors) {
+                behind = Math.max(behind, server.publishedSequence - mirror.getSequence());
+            }
+            System.out.println(server.getMetrics());
+            System.out.println("Received " + framesReceived.get() + " frames | most frames behind " + behind
+                + " | change on the control path " + changeTime.getSummary());
+        }
+        server.stop();
+        scheduler.stop();
+        writerThread.shutdown();
+    }
+}
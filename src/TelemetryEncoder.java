@@ -0,0 +1,132 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+//Telemetry Encoder - writes device status into caller-supplied buffers without allocating
+//text form: the same UTF-8 line getStatus() returns, e.g. "AC: AUTO | Current: 22°C | Target: 23°C"
+//binary form: 8 bytes per device (big-endian as set on the buffer):
+//device id (4), type (1), flags (1: bit 0 on, bits 1-2 fan speed), current temperature (1), target temperature (1)
+
+public final class TelemetryEncoder {
+    public static final int BINARY_BYTES = 8;
+    public static final int MAX_TEXT_BYTES = 64; //room needed in the buffer for one text status
+
+    public static final int FLAG_ON = 1;
+    public static final int SPEED_SHIFT = 1;
+    public static final int SPEED_MASK = 3;
+
+    //text fragments, encoded once
+    private static final byte[] LIGHT = bytes("Light: ");
+    private static final byte[] FAN = bytes("Fan: ");
+    private static final byte[] AC = bytes("AC: ");
+    private static final byte[] ON = bytes("ON");
+    private static final byte[] OFF = bytes("OFF");
+    private static final byte[] AUTO = bytes("AUTO");
+    private static final byte[] SPEED = bytes(" (Speed ");
+    private static final byte[] CURRENT = bytes(" | Current: ");
+    private static final byte[] TARGET = bytes("°C | Target: ");
+    private static final byte[] CELSIUS = bytes("°C");
+    private static final byte[][] SPEED_NAMES = {bytes("OFF"), bytes("LOW"), bytes("HIGH")};
+
+    //per-thread room for one status, for buffers the array encoder cannot write into directly
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[MAX_TEXT_BYTES]);
+
+    private TelemetryEncoder() {
+    }
+
+    //write the binary status of a device at the buffer's position, returns the number of bytes written
+    public static int encodeBinary(DeviceRegistry registry, int id, ByteBuffer out) {
+        int speed = registry.getSpeed(id);
+        out.putInt(id);
+        out.put(registry.getType(id));
+        out.put((byte) ((registry.isOn(id) ? FLAG_ON : 0) | (speed & SPEED_MASK) << SPEED_SHIFT));
+        out.put((byte) registry.getCurrentTemperature(id));
+        out.put((byte) registry.getTargetTemperature(id));
+        return BINARY_BYTES;
+    }
+
+    //write the binary status of the devices from fromId until toId or the buffer is full, returns the next id to encode
+    public static int encodeBinary(DeviceRegistry registry, int fromId, int toId, ByteBuffer out) {
+        int id = fromId;
+        while (id < toId && out.remaining() >= BINARY_BYTES) {
+            encodeBinary(registry, id, out);
+            id++;
+        }
+        return id;
+    }
+
+    //write the text status of a device as UTF-8 at the buffer's position, returns the number of bytes written
+    //throws BufferOverflowException and leaves the position unchanged if the status does not fit
+    public static int encodeText(DeviceRegistry registry, int id, ByteBuffer out) {
+        //the array is written without bounds checks against the limit, so only when the longest status fits
+        if (out.hasArray() && out.remaining() >= MAX_TEXT_BYTES) {
+            int length = encodeText(registry, id, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + length);
+            return length;
+        }
+        //direct or nearly full buffers: encode into the scratch array, then copy what fits in one checked put
+        byte[] text = SCRATCH.get();
+        int length = encodeText(registry, id, text, 0);
+        if (out.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        out.put(text, 0, length);
+        return length;
+    }
+
+    //write the text status of a device as UTF-8 into an array, returns the number of bytes written
+    public static int encodeText(DeviceRegistry registry, int id, byte[] out, int offset) {
+        int position = offset;
+        switch (registry.getType(id)) {
+            case DeviceRegistry.TYPE_LIGHT:
+                position = put(out, position, LIGHT);
+                position = put(out, position, registry.isOn(id) ? ON : OFF);
+                break;
+            case DeviceRegistry.TYPE_FAN:
+                position = put(out, position, FAN);
+                position = put(out, position, SPEED_NAMES[registry.getSpeed(id)]);
+                position = put(out, position, SPEED);
+                position = putInt(out, position, registry.getSpeed(id));
+                out[position++] = ')';
+                break;
+            default:
+                position = put(out, position, AC);
+                position = put(out, position, registry.isOn(id) ? AUTO : OFF);
+                position = put(out, position, CURRENT);
+                position = putInt(out, position, registry.getCurrentTemperature(id));
+                position = put(out, position, TARGET);
+                position = putInt(out, position, registry.getTargetTemperature(id));
+                position = put(out, position, CELSIUS);
+                break;
+        }
+        return position - offset;
+    }
+
+    //text status as a String, allocates, for logging/debugging
+    public static String toText(DeviceRegistry registry, int id) {
+        byte[] text = new byte[MAX_TEXT_BYTES];
+        int length = encodeText(registry, id, text, 0);
+        return new String(text, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int put(byte[] out, int position, byte[] fragment) {
+        System.arraycopy(fragment, 0, out, position, fragment.length);
+        return position + fragment.length;
+    }
+
+    //write a small signed integer (device values fit in a byte) as decimal digits
+    private static int putInt(byte[] out, int position, int value) {
+        if (value < 0) {
+            out[position++] = '-';
+            value = -value;
+        }
+        if (value >= 100) out[position++] = (byte) ('0' + value / 100);
+        if (value >= 10) out[position++] = (byte) ('0' + value / 10 % 10);
+        out[position++] = (byte) ('0' + value % 10);
+        return position;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
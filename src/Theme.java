@@ -0,0 +1,68 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+
+//Theme - colors, fonts and label texts shared by every panel, resolved once instead of on every display update
+
+public final class Theme {
+    //colors
+    public static final Color ON_TEXT = Color.decode("#00A63E");
+    public static final Color OFF_TEXT = Color.decode("#E7000B");
+    public static final Color LIGHT_ON = Color.decode("#FFDF20");
+    public static final Color IDLE = Color.decode("#EEF2FF");
+    public static final Color FAN_LOW = Color.decode("#BEDBFF");
+    public static final Color FAN_HIGH = Color.decode("#51A2FF");
+    public static final Color HEADER = Color.decode("#C6D2FF");
+    public static final Color UPDATING = Color.decode("#FFDF20");
+    public static final Color UPDATE_COMPLETE = Color.decode("#00A63E");
+    public static final Color[] SPEED_COLORS = {IDLE, FAN_LOW, FAN_HIGH};
+    public static final Color HISTORY_CURRENT = Color.decode("#E7000B");
+    public static final Color HISTORY_TARGET = Color.decode("#51A2FF");
+    public static final Color HEATMAP_OFF = Color.decode("#D1D5DC");
+    public static final Color HEATMAP_OTHER = Color.decode("#F3F4F6"); //devices without a temperature in the temperature view
+
+    //fonts
+    public static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 18);
+    public static final Font PANEL_TITLE_FONT = new Font("Arial", Font.BOLD, 14);
+    public static final Font STATUS_FONT = new Font("Arial", Font.BOLD, 12);
+    public static final Font BUTTON_FONT = new Font("Arial", Font.PLAIN, 12);
+    public static final Font VALUE_FONT = new Font("Arial", Font.PLAIN, 12);
+    public static final Font SMALL_FONT = new Font("Arial", Font.PLAIN, 10);
+    public static final Font STATUS_BAR_FONT = new Font("Arial", Font.PLAIN, 11);
+    public static final Font DIAGNOSTICS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+    //label texts
+    public static final String[] SPEED_NAMES = {"OFF", "LOW", "HIGH"};
+    public static final String[] SPEED_TEXTS = {"Speed: 0", "Speed: 1", "Speed: 2"};
+
+    //temperature texts cached for the range a room can realistically reach
+    private static final int MIN_CACHED_TEMP = -40;
+    private static final int MAX_CACHED_TEMP = 60;
+    private static final String[] TEMPERATURE_TEXTS = new String[MAX_CACHED_TEMP - MIN_CACHED_TEMP + 1];
+
+    static {
+        for (int t = MIN_CACHED_TEMP; t <= MAX_CACHED_TEMP; t++) {
+            TEMPERATURE_TEXTS[t - MIN_CACHED_TEMP] = t + "°C";
+        }
+    }
+
+    private Theme() {
+    }
+
+    //load every font now (e.g. on a background thread during startup) instead of during the first paint
+    public static void preload() {
+        FontRenderContext context = new FontRenderContext(null, true, true);
+        Font[] fonts = {TITLE_FONT, PANEL_TITLE_FONT, STATUS_FONT, BUTTON_FONT, VALUE_FONT, SMALL_FONT, STATUS_BAR_FONT, DIAGNOSTICS_FONT};
+        for (Font font : fonts) {
+            font.getStringBounds(TEMPERATURE_TEXTS[0] + SPEED_NAMES[2], context);
+        }
+    }
+
+    //getter for a temperature as display text, e.g. "21°C"
+    public static String temperatureText(int temperature) {
+        if (temperature >= MIN_CACHED_TEMP && temperature <= MAX_CACHED_TEMP) {
+            return TEMPERATURE_TEXTS[temperature - MIN_CACHED_TEMP];
+        }
+        return temperature + "°C";
+    }
+}
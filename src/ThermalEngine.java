@@ -0,0 +1,135 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+//Thermal Engine - batch what-if simulation of many rooms, each moving toward its AC's target temperature
+//state lives in contiguous float arrays and step() advances every room in one branch-free loop,
+//a shape the JIT compiles to SIMD instructions, so a tick costs a few nanoseconds per room
+//model: a powered room moves toward its target at its rate (°C per second), never overshooting, fractions allowed
+
+public class ThermalEngine {
+    public static final float DEFAULT_RATE = 0.5f; //1°C per 2 seconds, the pace of the ClimateController
+
+    private float[] current;
+    private float[] target;
+    private float[] rate;
+    private float[] active; //1 when the AC is on, 0 when off, multiplied in so the loop needs no branch
+    private int[] deviceIds;
+    private int rooms;
+    private final LongAdder roomsStepped = new LongAdder(); //added to by every range, possibly from several threads
+
+    //constructor
+    public ThermalEngine(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        current = new float[capacity];
+        target = new float[capacity];
+        rate = new float[capacity];
+        active = new float[capacity];
+        deviceIds = new int[capacity];
+    }
+
+    //engine with one room per AC in the registry, starting from the ACs' current state
+    public static ThermalEngine fromRegistry(DeviceRegistry registry) {
+        ThermalEngine engine = new ThermalEngine(registry.size() / 3 + 1);
+        for (int id = 0; id < registry.size(); id++) {
+            if (registry.getType(id) == DeviceRegistry.TYPE_AC) {
+                int room = engine.addRoom(registry.getCurrentTemperature(id), registry.getTargetTemperature(id), DEFAULT_RATE);
+                engine.setOn(room, registry.isOn(id));
+                engine.deviceIds[room] = id;
+            }
+        }
+        return engine;
+    }
+
+    //add a room with its AC off and return its index
+    public int addRoom(float currentTemperature, float targetTemperature, float ratePerSecond) {
+        if (rooms == current.length) {
+            grow();
+        }
+        int room = rooms++;
+        current[room] = currentTemperature;
+        target[room] = targetTemperature;
+        rate[room] = ratePerSecond;
+        active[room] = 0;
+        deviceIds[room] = -1;
+        return room;
+    }
+
+    //double the capacity of every array
+    private void grow() {
+        int capacity = current.length * 2;
+        current = Arrays.copyOf(current, capacity);
+        target = Arrays.copyOf(target, capacity);
+        rate = Arrays.copyOf(rate, capacity);
+        active = Arrays.copyOf(active, capacity);
+        deviceIds = Arrays.copyOf(deviceIds, capacity);
+    }
+
+    //advance every room by the given number of seconds
+    public void step(float seconds) {
+        step(seconds, 0, rooms);
+    }
+
+    //advance the rooms in [fromRoom, toRoom), disjoint ranges may be stepped from different threads
+    public void step(float seconds, int fromRoom, int toRoom) {
+        float[] current = this.current;
+        float[] target = this.target;
+        float[] rate = this.rate;
+        float[] active = this.active;
+        for (int i = fromRoom; i < toRoom; i++) {
+            float limit = rate[i] * seconds * active[i];
+            float delta = target[i] - current[i];
+            current[i] += Math.max(-limit, Math.min(limit, delta));
+        }
+        roomsStepped.add(toRoom - fromRoom);
+    }
+
+    //getter for the number of rooms
+    public int size() {
+        return rooms;
+    }
+
+    //getter for the current temperature of a room
+    public float getCurrentTemperature(int room) {
+        return current[room];
+    }
+
+    //getter for the target temperature of a room
+    public float getTargetTemperature(int room) {
+        return target[room];
+    }
+
+    //set the target temperature of a room
+    public void setTargetTemperature(int room, float temperature) {
+        target[room] = temperature;
+    }
+
+    //set how fast a room's temperature moves, in °C per second
+    public void setRate(int room, float ratePerSecond) {
+        rate[room] = ratePerSecond;
+    }
+
+    //set the same rate for every room
+    public void setRate(float ratePerSecond) {
+        Arrays.fill(rate, 0, rooms, ratePerSecond);
+    }
+
+    //switch a room's AC on or off
+    public void setOn(int room, boolean on) {
+        active[room] = on ? 1 : 0;
+    }
+
+    //check if a room's AC is on
+    public boolean isOn(int room) {
+        return active[room] != 0;
+    }
+
+    //getter for the registry device a room was created from, -1 for rooms added directly
+    public int getDeviceId(int room) {
+        return deviceIds[room];
+    }
+
+    //getter for the total number of room updates performed
+    public long getRoomsStepped() {
+        return roomsStepped.sum();
+    }
+}
@@ -0,0 +1,375 @@
+import java.util.Arrays;
+
+//Time Series Store - compressed in-memory history of device values (AC current/target temperature, fan speed)
+//samples are (epoch second, int value) per device and metric, appended in time order and bit-packed into blocks:
+//timestamps as delta-of-delta, values as deltas, and a run of samples that repeat both the interval and the value
+//collapses into a single Elias-gamma count, so a steady device sampled every second costs almost nothing
+//blocks grow up to 2 KB and remember their first/last time, so range and downsampled queries skip whole blocks
+//not thread-safe, call everything on one thread (the EDT in the desktop app)
+//encoding after a block's first sample (kept uncompressed in the block header):
+//  0 + gamma(n)            n samples with the same interval and value as the previous one
+//  1 + time + value        time: 0 same interval | 10 + 7 bit | 110 + 12 bit | 111 + 32 bit delta-of-delta (zigzag)
+//                          value: 0 same | 10 + 4 bit | 11 + 16 bit delta (zigzag)
+
+public class TimeSeriesStore {
+    //metrics
+    public static final int METRIC_CURRENT_TEMP = 0;
+    public static final int METRIC_TARGET_TEMP = 1;
+    public static final int METRIC_SPEED = 2;
+    public static final int METRICS = 3;
+
+    private static final int INITIAL_BLOCK_LONGS = 4;
+    private static final int MAX_BLOCK_LONGS = 256;
+    private static final int MAX_SAMPLE_BITS = 1 + 3 + 32 + 2 + 16;
+    private static final int MAX_RUN_BITS = 1 + 63;
+
+    private Series[] series = new Series[0];
+    private int seriesCount;
+    private long samples;
+
+    //receives the samples of a query as runs: count samples from start, step seconds apart, all with the same value
+    private interface SegmentVisitor {
+        void segment(long start, long step, int count, int value);
+    }
+
+    //append a sample, samples at or before the series' last time are ignored, returns true if stored
+    public boolean append(int deviceId, int metric, long epochSecond, int value) {
+        int index = deviceId * METRICS + metric;
+        if (index >= series.length) {
+            series = Arrays.copyOf(series, Math.max(index + 1, series.length * 2));
+        }
+        Series target = series[index];
+        if (target == null) {
+            target = new Series();
+            series[index] = target;
+            seriesCount++;
+        }
+        if (!target.append(epochSecond, value)) return false;
+        samples++;
+        return true;
+    }
+
+    //copy the samples with fromSecond <= time < toSecond into the arrays, returns how many were copied
+    public int range(int deviceId, int metric, long fromSecond, long toSecond, long[] times, int[] values) {
+        int[] copied = new int[1];
+        visit(deviceId, metric, fromSecond, toSecond, (start, step, count, value) -> {
+            long first = start < fromSecond ? (fromSecond - start + step - 1) / step : 0;
+            for (long i = first; i < count && copied[0] < times.length; i++) {
+                long time = start + i * step;
+                if (time >= toSecond) break;
+                times[copied[0]] = time;
+                values[copied[0]] = value;
+                copied[0]++;
+            }
+        });
+        return copied[0];
+    }
+
+    //split [fromSecond, toSecond) into min.length equal buckets and fill in min, max and mean of each (NaN mean when empty)
+    //runs are aggregated arithmetically, so a month of steady per-second samples costs the same as one sample
+    public void downsample(int deviceId, int metric, long fromSecond, long toSecond, int[] min, int[] max, float[] mean) {
+        int buckets = min.length;
+        long[] counts = new long[buckets];
+        double[] sums = new double[buckets];
+        Arrays.fill(min, Integer.MAX_VALUE);
+        Arrays.fill(max, Integer.MIN_VALUE);
+        double width = (toSecond - fromSecond) / (double) buckets;
+        visit(deviceId, metric, fromSecond, toSecond, (start, step, count, value) -> {
+            //skip to the first sample in range
+            long first = start < fromSecond ? (fromSecond - start + step - 1) / step : 0;
+            long i = first;
+            while (i < count) {
+                long time = start + i * step;
+                if (time >= toSecond) break;
+                int bucket = Math.min((int) ((time - fromSecond) / width), buckets - 1);
+                //samples of the run that fall into this bucket
+                long bucketEnd = Math.min(fromSecond + (long) Math.ceil((bucket + 1) * width), toSecond);
+                long inBucket = Math.max(1, Math.min(count - i, (bucketEnd - time + step - 1) / step));
+                counts[bucket] += inBucket;
+                sums[bucket] += (double) value * inBucket;
+                min[bucket] = Math.min(min[bucket], value);
+                max[bucket] = Math.max(max[bucket], value);
+                i += inBucket;
+            }
+        });
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            mean[bucket] = counts[bucket] == 0 ? Float.NaN : (float) (sums[bucket] / counts[bucket]);
+        }
+    }
+
+    //getter for the latest sample time of a series, -1 if it has none
+    public long getLastTime(int deviceId, int metric) {
+        Series target = get(deviceId, metric);
+        return target == null || target.blockCount == 0 ? -1 : target.lastTime;
+    }
+
+    //getter for the number of samples stored
+    public long getSampleCount() {
+        return samples;
+    }
+
+    //getter for the number of series
+    public int getSeriesCount() {
+        return seriesCount;
+    }
+
+    //getter for the approximate memory used by the samples, in bytes
+    public long getMemoryBytes() {
+        long total = 0;
+        for (Series current : series) {
+            if (current != null) {
+                total += current.memoryBytes();
+            }
+        }
+        return total;
+    }
+
+    private Series get(int deviceId, int metric) {
+        int index = deviceId * METRICS + metric;
+        return index < series.length ? series[index] : null;
+    }
+
+    //decode the blocks that overlap [fromSecond, toSecond)
+    private void visit(int deviceId, int metric, long fromSecond, long toSecond, SegmentVisitor visitor) {
+        Series target = get(deviceId, metric);
+        if (target == null) return;
+        int block = target.findBlock(fromSecond);
+        for (; block < target.blockCount && target.firstTimes[block] < toSecond; block++) {
+            target.decode(block, visitor);
+        }
+    }
+
+    //one device metric: a list of bit-packed blocks, the last one still open for appends
+    private static final class Series {
+        private long[][] blocks = new long[1][];
+        private long[] firstTimes = new long[1];
+        private long[] lastTimes = new long[1];
+        private int[] firstValues = new int[1];
+        private int[] bitLengths = new int[1];
+        private int blockCount;
+
+        //encoder state of the open block
+        private long lastTime;
+        private long lastDelta;
+        private int lastValue;
+        private int pendingRun;
+
+        boolean append(long time, int value) {
+            if (blockCount == 0) {
+                openBlock(time, value);
+                return true;
+            }
+            if (time <= lastTime) return false;
+            long delta = time - lastTime;
+            long deltaOfDelta = delta - lastDelta;
+            int valueDelta = value - lastValue;
+            if (deltaOfDelta == 0 && valueDelta == 0) {
+                pendingRun++;
+            }
+            else if (!reserve(pendingRun > 0 ? MAX_RUN_BITS + MAX_SAMPLE_BITS : MAX_SAMPLE_BITS)) {
+                //block full: close it with its pending run and start the next one at this sample
+                flushRun();
+                lastTimes[blockCount - 1] = lastTime;
+                openBlock(time, value);
+                return true;
+            }
+            else {
+                flushRun();
+                writeSample(deltaOfDelta, valueDelta);
+            }
+            lastTime = time;
+            lastDelta = delta;
+            lastValue = value;
+            lastTimes[blockCount - 1] = time;
+            return true;
+        }
+
+        //start a new block whose first sample is kept in the header
+        private void openBlock(long time, int value) {
+            if (blockCount == blocks.length) {
+                int capacity = blocks.length * 2;
+                blocks = Arrays.copyOf(blocks, capacity);
+                firstTimes = Arrays.copyOf(firstTimes, capacity);
+                lastTimes = Arrays.copyOf(lastTimes, capacity);
+                firstValues = Arrays.copyOf(firstValues, capacity);
+                bitLengths = Arrays.copyOf(bitLengths, capacity);
+            }
+            blocks[blockCount] = new long[INITIAL_BLOCK_LONGS];
+            firstTimes[blockCount] = time;
+            lastTimes[blockCount] = time;
+            firstValues[blockCount] = value;
+            bitLengths[blockCount] = 0;
+            blockCount++;
+            lastTime = time;
+            lastDelta = 0;
+            lastValue = value;
+            pendingRun = 0;
+        }
+
+        //make sure the open block has room for the given bits plus a final run, growing it up to the maximum
+        //returns false when the block is full
+        private boolean reserve(int bits) {
+            int block = blockCount - 1;
+            long needed = (long) bitLengths[block] + bits + MAX_RUN_BITS;
+            while (needed > (long) blocks[block].length * 64) {
+                if (blocks[block].length >= MAX_BLOCK_LONGS) return false;
+                blocks[block] = Arrays.copyOf(blocks[block], blocks[block].length * 2);
+            }
+            return true;
+        }
+
+        private void flushRun() {
+            if (pendingRun == 0) return;
+            writeBits(0, 1);
+            writeGamma(pendingRun);
+            pendingRun = 0;
+        }
+
+        private void writeSample(long deltaOfDelta, int valueDelta) {
+            writeBits(1, 1);
+            long zigzag = (deltaOfDelta << 1) ^ (deltaOfDelta >> 63);
+            if (deltaOfDelta == 0) {
+                writeBits(0, 1);
+            }
+            else if (zigzag < (1 << 7)) {
+                writeBits(0b01, 2);
+                writeBits(zigzag, 7);
+            }
+            else if (zigzag < (1 << 12)) {
+                writeBits(0b011, 3);
+                writeBits(zigzag, 12);
+            }
+            else {
+                writeBits(0b111, 3);
+                writeBits(zigzag, 32);
+            }
+            int valueZigzag = (valueDelta << 1) ^ (valueDelta >> 31);
+            if (valueDelta == 0) {
+                writeBits(0, 1);
+            }
+            else if (valueZigzag < (1 << 4)) {
+                writeBits(0b01, 2);
+                writeBits(valueZigzag, 4);
+            }
+            else {
+                writeBits(0b11, 2);
+                writeBits(valueZigzag, 16);
+            }
+        }
+
+        //Elias gamma: floor(log2 n) zeros, the leading 1 of n, then the rest of n's bits
+        private void writeGamma(int n) {
+            int bits = 32 - Integer.numberOfLeadingZeros(n);
+            writeBits(0, bits - 1);
+            writeBits(1, 1);
+            writeBits(n, bits - 1);
+        }
+
+        //bits go into the words least significant first, prefix codes are written in the order they are read
+        private void writeBits(long value, int count) {
+            if (count == 0) return;
+            int block = blockCount - 1;
+            long[] words = blocks[block];
+            int position = bitLengths[block];
+            long masked = count == 64 ? value : value & ((1L << count) - 1);
+            int word = position >>> 6;
+            int offset = position & 63;
+            words[word] |= masked << offset;
+            if (offset + count > 64) {
+                words[word + 1] |= masked >>> (64 - offset);
+            }
+            bitLengths[block] = position + count;
+        }
+
+        //first block that may hold samples at or after the given time
+        int findBlock(long time) {
+            int low = 0;
+            int high = blockCount - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (lastTimes[middle] < time) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        //replay a block as runs of samples
+        void decode(int block, SegmentVisitor visitor) {
+            long[] words = blocks[block];
+            int end = bitLengths[block];
+            int[] position = {0};
+            long time = firstTimes[block];
+            long delta = 0;
+            int value = firstValues[block];
+            visitor.segment(time, 1, 1, value);
+            while (position[0] < end) {
+                if (readBits(words, position, 1) == 0) {
+                    int zeros = 0;
+                    while (readBits(words, position, 1) == 0) {
+                        zeros++;
+                    }
+                    int count = (int) ((1L << zeros) | readBits(words, position, zeros));
+                    visitor.segment(time + delta, delta, count, value);
+                    time += delta * count;
+                }
+                else {
+                    long zigzag;
+                    if (readBits(words, position, 1) == 0) {
+                        zigzag = 0;
+                    }
+                    else if (readBits(words, position, 1) == 0) {
+                        zigzag = readBits(words, position, 7);
+                    }
+                    else if (readBits(words, position, 1) == 0) {
+                        zigzag = readBits(words, position, 12);
+                    }
+                    else {
+                        zigzag = readBits(words, position, 32);
+                    }
+                    delta += (zigzag >>> 1) ^ -(zigzag & 1);
+                    int valueZigzag;
+                    if (readBits(words, position, 1) == 0) {
+                        valueZigzag = 0;
+                    }
+                    else if (readBits(words, position, 1) == 0) {
+                        valueZigzag = (int) readBits(words, position, 4);
+                    }
+                    else {
+                        valueZigzag = (int) readBits(words, position, 16);
+                    }
+                    value += (valueZigzag >>> 1) ^ -(valueZigzag & 1);
+                    time += delta;
+                    visitor.segment(time, 1, 1, value);
+                }
+            }
+            //samples still waiting in the open block's run
+            if (block == blockCount - 1 && pendingRun > 0) {
+                visitor.segment(time + delta, delta, pendingRun, value);
+            }
+        }
+
+        private static long readBits(long[] words, int[] position, int count) {
+            if (count == 0) return 0;
+            int word = position[0] >>> 6;
+            int offset = position[0] & 63;
+            long value = words[word] >>> offset;
+            if (offset + count > 64) {
+                value |= words[word + 1] << (64 - offset);
+            }
+            position[0] += count;
+            return count == 64 ? value : value & ((1L << count) - 1);
+        }
+
+        long memoryBytes() {
+            long total = 5L * 8 * blocks.length;
+            for (int block = 0; block < blockCount; block++) {
+                total += 16 + 8L * blocks[block].length;
+            }
+            return total;
+        }
+    }
+}
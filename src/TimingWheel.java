@@ -0,0 +1,362 @@
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//Timing Wheel - shared hierarchical timer that runs every periodic task in the app from a single thread
+//schedule and cancel are O(1), tasks that fall due on the same tick are handed to the dispatcher as one batch
+
+public class TimingWheel implements Scheduler {
+    //each level has 64 slots, level n slots are 64^n ticks wide
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+
+    //factor for the smoothed jitter estimate (same as RFC 3550)
+    private static final int JITTER_DIVISOR = 16;
+
+    private final long tickNanos;
+    private final Executor dispatcher;
+    private final Clock clock;
+    private final Timeout[][] wheels = new Timeout[LEVELS][SLOTS];
+    private final List<Timeout> expired = new ArrayList<>();
+
+    private Thread worker;
+    private volatile boolean running;
+    private long startNanos;
+    private long currentTick;
+    private int pending;
+
+    //metrics, written by the worker thread only
+    private volatile long tickCount;
+    private volatile long tasksDispatched;
+    private volatile long lastTickLagNanos;
+    private volatile long maxTickLagNanos;
+    private volatile long totalTickLagNanos;
+    private volatile long jitterNanos;
+
+    //constructor, due tasks are passed to the dispatcher (e.g. SwingUtilities::invokeLater)
+    public TimingWheel(long tickMillis, Executor dispatcher) {
+        this(tickMillis, dispatcher, Clock.systemDefaultZone());
+    }
+
+    //constructor with the wall clock handed to the tasks, e.g. Clock.offset to start the app at another date
+    public TimingWheel(long tickMillis, Executor dispatcher, Clock clock) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.dispatcher = dispatcher;
+        this.clock = clock;
+    }
+
+    //start the worker thread
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        startNanos = System.nanoTime();
+        currentTick = 0;
+        worker = new Thread(this::runWorker, "timing-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    //stop the worker thread, pending tasks are dropped
+    public synchronized void stop() {
+        running = false;
+        notifyAll();
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    //run a task once after the delay
+    @Override
+    public Timeout schedule(Runnable task, long delayMillis) {
+        return add(task, delayMillis, 0);
+    }
+
+    //run a task repeatedly, fixed rate like java.util.Timer.scheduleAtFixedRate
+    @Override
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelayMillis, long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+        }
+        return add(task, initialDelayMillis, periodMillis);
+    }
+
+    //getter for the wall clock
+    @Override
+    public Clock getClock() {
+        return clock;
+    }
+
+    //getter for monotonic time, the same source the wheel ticks on
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    //create a timeout and insert it into the wheel
+    private synchronized Timeout add(Runnable task, long delayMillis, long periodMillis) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel is not running");
+        }
+        Timeout timeout = new Timeout(this, task);
+        long now = System.nanoTime();
+        if (pending == 0) {
+            //the wheel was idle, every slot is empty so it can jump straight to the current tick
+            currentTick = Math.max(currentTick, (now - startNanos) / tickNanos);
+        }
+        long deadline = now + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+        timeout.deadlineTick = Math.max(ceilDiv(deadline - startNanos, tickNanos), currentTick + 1);
+        timeout.periodTicks = Math.max(ceilDiv(TimeUnit.MILLISECONDS.toNanos(periodMillis), tickNanos), periodMillis > 0 ? 1 : 0);
+        insert(timeout);
+        if (pending++ == 0) {
+            notifyAll(); //wake the worker if it was idle
+        }
+        return timeout;
+    }
+
+    //remove a timeout from its slot, O(1)
+    private synchronized void cancel(Timeout timeout) {
+        if (timeout.cancelled) return;
+        timeout.cancelled = true;
+        if (timeout.level >= 0) {
+            unlink(timeout);
+            pending--;
+        }
+    }
+
+    //put a timeout in the lowest level whose range covers its deadline
+    //a deadline already passed goes on the next tick, but deadlineTick is kept so a fixed-rate timer re-arms from it
+    private void insert(Timeout timeout) {
+        long due = Math.max(timeout.deadlineTick, currentTick + 1);
+        long delta = due - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot;
+        if (delta >= 1L << (SLOT_BITS * LEVELS)) {
+            //beyond the top level, park it in the slot that cascades last and re-insert it from there
+            slot = (int) (((currentTick >> (SLOT_BITS * level)) + SLOT_MASK) & SLOT_MASK);
+        }
+        else {
+            slot = (int) ((due >> (SLOT_BITS * level)) & SLOT_MASK);
+        }
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = wheels[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+    }
+
+    //detach a timeout from its slot list
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        }
+        else {
+            wheels[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    //worker loop, sleeps until the next tick or until a timeout is added to an empty wheel
+    private void runWorker() {
+        while (running) {
+            long deadline;
+            synchronized (this) {
+                while (running && pending == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                deadline = startNanos + (currentTick + 1) * tickNanos;
+            }
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+                LockSupport.parkNanos(deadline - now);
+                if (!running) return;
+            }
+            Runnable[] batch = advance();
+            recordLag(now - deadline);
+            if (batch != null) {
+                tasksDispatched += batch.length;
+                dispatcher.execute(() -> runBatch(batch));
+            }
+        }
+    }
+
+    //move the wheel forward one tick and collect the tasks that fell due
+    private synchronized Runnable[] advance() {
+        currentTick++;
+        //cascade higher levels whose slot boundary was reached, highest first
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                cascade(level, (int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK));
+            }
+        }
+        int slot = (int) (currentTick & SLOT_MASK);
+        Timeout timeout = wheels[0][slot];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.deadlineTick <= currentTick) {
+                unlink(timeout);
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+        if (expired.isEmpty()) return null;
+        Runnable[] batch = new Runnable[expired.size()];
+        for (int i = 0; i < batch.length; i++) {
+            Timeout due = expired.get(i);
+            batch[i] = due.task;
+            if (due.periodTicks > 0) {
+                due.deadlineTick += due.periodTicks;
+                insert(due);
+            }
+            else {
+                pending--;
+            }
+        }
+        expired.clear();
+        return batch;
+    }
+
+    //move every timeout in a higher level slot down to the level that now covers it,
+    //one whose deadline is this tick (it sat on the boundary) expires now instead of a tick late
+    private void cascade(int level, int slot) {
+        Timeout timeout = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            if (timeout.deadlineTick <= currentTick) {
+                timeout.level = -1;
+                expired.add(timeout);
+            }
+            else {
+                insert(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    //run every task of a tick, one failing task does not stop the others
+    private static void runBatch(Runnable[] batch) {
+        for (Runnable task : batch) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Scheduled task failed: " + e);
+            }
+        }
+    }
+
+    //update tick lag and jitter after a tick
+    private void recordLag(long lagNanos) {
+        long difference = Math.abs(lagNanos - lastTickLagNanos);
+        jitterNanos += (difference - jitterNanos) / JITTER_DIVISOR;
+        lastTickLagNanos = lagNanos;
+        maxTickLagNanos = Math.max(maxTickLagNanos, lagNanos);
+        totalTickLagNanos += lagNanos;
+        tickCount++;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    //getter for the number of ticks processed
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    //getter for the number of tasks handed to the dispatcher
+    public long getTasksDispatched() {
+        return tasksDispatched;
+    }
+
+    //getter for how many timeouts are waiting in the wheel
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    //getter for how late the last tick ran, in nanoseconds
+    public long getLastTickLagNanos() {
+        return lastTickLagNanos;
+    }
+
+    //getter for the worst tick lag seen, in nanoseconds
+    public long getMaxTickLagNanos() {
+        return maxTickLagNanos;
+    }
+
+    //getter for the average tick lag, in nanoseconds
+    public long getMeanTickLagNanos() {
+        long ticks = tickCount;
+        return ticks == 0 ? 0 : totalTickLagNanos / ticks;
+    }
+
+    //getter for the smoothed tick-to-tick variation of the lag, in nanoseconds
+    public long getJitterNanos() {
+        return jitterNanos;
+    }
+
+    //getter for metrics as a string for logging/debugging
+    public String getMetrics() {
+        return "Scheduler: " + tickCount + " ticks | " + tasksDispatched + " tasks | lag mean "
+            + TimeUnit.NANOSECONDS.toMicros(getMeanTickLagNanos()) + "us max "
+            + TimeUnit.NANOSECONDS.toMicros(maxTickLagNanos) + "us | jitter "
+            + TimeUnit.NANOSECONDS.toMicros(jitterNanos) + "us";
+    }
+
+    //handle returned by schedule calls, used to cancel the task
+    public static final class Timeout implements Scheduler.Timeout {
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private long deadlineTick;
+        private long periodTicks;
+        private int level = -1;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+        private boolean cancelled;
+
+        private Timeout(TimingWheel wheel, Runnable task) {
+            this.wheel = wheel;
+            this.task = task;
+        }
+
+        //cancel the task, a batch already handed to the dispatcher still runs
+        @Override
+        public void cancel() {
+            wheel.cancel(this);
+        }
+
+        //check if the task was cancelled
+        @Override
+        public boolean isCancelled() {
+            synchronized (wheel) {
+                return cancelled;
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.PriorityQueue;
+
+//Virtual Scheduler - simulated time for the services that run on a Scheduler
+//nothing happens until runUntil/advance is called, then every due task runs in timestamp order (ties in the order they
+//were scheduled) on the calling thread, and the clock jumps straight from one deadline to the next;
+//the same start time and the same inputs always give the same run, so a simulated year is reproducible
+//not thread-safe, schedule and run from one thread (which is then the registry's writer thread)
+
+public class VirtualScheduler implements Scheduler {
+    private final PriorityQueue<Timeout> queue = new PriorityQueue<>(VirtualScheduler::compare);
+    private final Clock clock;
+    private final long startMillis;
+
+    private volatile long nowMillis;
+    private long sequence;
+    private long tasksRun;
+    private int pending;
+
+    //constructor, the clock starts at the given instant and only moves when tasks are run
+    public VirtualScheduler(Instant start, ZoneId zone) {
+        this.startMillis = start.toEpochMilli();
+        this.nowMillis = startMillis;
+        this.clock = new VirtualClock(zone);
+    }
+
+    //run a task once after the delay
+    @Override
+    public Timeout schedule(Runnable task, long delayMillis) {
+        return add(task, delayMillis, 0);
+    }
+
+    //run a task repeatedly, fixed rate like java.util.Timer.scheduleAtFixedRate
+    @Override
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelayMillis, long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+        }
+        return add(task, initialDelayMillis, periodMillis);
+    }
+
+    //getter for the simulated wall clock
+    @Override
+    public Clock getClock() {
+        return clock;
+    }
+
+    //getter for the simulated monotonic time, nanoseconds since the start
+    @Override
+    public long nanoTime() {
+        return (nowMillis - startMillis) * 1_000_000;
+    }
+
+    private Timeout add(Runnable task, long delayMillis, long periodMillis) {
+        Timeout timeout = new Timeout(this, task, nowMillis + Math.max(delayMillis, 0), periodMillis, sequence++);
+        queue.add(timeout);
+        pending++;
+        return timeout;
+    }
+
+    //run every task due up to the given epoch millisecond in timestamp order, then leave the clock there
+    //returns the number of tasks run
+    public long runUntil(long epochMillis) {
+        long run = 0;
+        Timeout due;
+        while ((due = queue.peek()) != null && due.deadline <= epochMillis) {
+            queue.poll();
+            //cancelled timeouts stay queued until they come up, cancel is O(1)
+            if (due.cancelled) continue;
+            nowMillis = due.deadline;
+            if (due.period == 0) {
+                due.queued = false;
+                pending--;
+            }
+            try {
+                due.task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Scheduled task failed: " + e);
+            }
+            run++;
+            if (due.period > 0 && !due.cancelled) {
+                due.deadline += due.period;
+                due.sequence = sequence++;
+                queue.add(due);
+            }
+        }
+        nowMillis = Math.max(nowMillis, epochMillis);
+        tasksRun += run;
+        return run;
+    }
+
+    //run every task due in the next millis of simulated time
+    public long advance(long millis) {
+        return runUntil(nowMillis + millis);
+    }
+
+    //getter for the simulated time as epoch milliseconds
+    public long currentTimeMillis() {
+        return nowMillis;
+    }
+
+    //getter for the number of tasks run so far
+    public long getTasksRun() {
+        return tasksRun;
+    }
+
+    //getter for how many timeouts are waiting, cancelled ones excluded
+    public int getPendingCount() {
+        return pending;
+    }
+
+    private static int compare(Timeout a, Timeout b) {
+        int order = Long.compare(a.deadline, b.deadline);
+        return order != 0 ? order : Long.compare(a.sequence, b.sequence);
+    }
+
+    //wall clock view of the simulated time, withZone views share the same time
+    private final class VirtualClock extends Clock {
+        private final ZoneId zone;
+
+        VirtualClock(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return zone.equals(this.zone) ? this : new VirtualClock(zone);
+        }
+
+        @Override
+        public long millis() {
+            return nowMillis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(nowMillis);
+        }
+    }
+
+    //handle returned by schedule calls, used to cancel the task
+    public static final class Timeout implements Scheduler.Timeout {
+        private final VirtualScheduler scheduler;
+        private final Runnable task;
+        private final long period;
+        private long deadline;
+        private long sequence;
+        private boolean cancelled;
+        private boolean queued = true;
+
+        private Timeout(VirtualScheduler scheduler, Runnable task, long deadline, long period, long sequence) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+            this.sequence = sequence;
+        }
+
+        //cancel the task, also from inside the task itself
+        @Override
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            if (queued) {
+                queued = false;
+                scheduler.pending--;
+            }
+        }
+
+        //check if the task was cancelled
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
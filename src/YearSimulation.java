@@ -0,0 +1,144 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Random;
+
+//Year Simulation - runs a fleet through a whole simulated year on a VirtualScheduler, as fast as the CPU allows
+//the real services (ClimateController, MaintenanceCalendar with the annual update, EnergyAccountant) run unchanged,
+//occupants change random devices through the day; the same arguments always print the same results and checksum
+//run: java YearSimulation [rooms] [year] [seed] (each room has a light, a fan and an AC), -Dsim.zone=Europe/Berlin
+
+public class YearSimulation {
+    private static final String ANNUAL_UPDATE_CRON = "0 1 1 1 *"; //January 1st at 1:00am, same as the Dashboard
+    private static final int FLOORS = 10;
+    private static final long OCCUPANT_PERIOD_MILLIS = 15 * 60_000;
+    private static final int CHANGES_PER_DEVICE_PER_DAY = 2;
+    private static final long DAY_MILLIS = 24 * 3_600_000L;
+
+    private final DeviceRegistry registry;
+    private final VirtualScheduler scheduler;
+    private final Random random;
+    private final int changesPerPeriod;
+    private long occupantChanges;
+    private long updatesRun;
+    private int devicesTurnedOff;
+    private LocalDateTime lastUpdate;
+
+    //constructor, builds the fleet with every device off
+    public YearSimulation(int rooms, VirtualScheduler scheduler, long seed) {
+        this.scheduler = scheduler;
+        this.random = new Random(seed);
+        registry = new DeviceRegistry(rooms * 3);
+        for (int floor = 0; floor < FLOORS; floor++) {
+            registry.defineGroup("Floor " + (floor + 1));
+        }
+        for (int room = 0; room < rooms; room++) {
+            int group = room * FLOORS / rooms;
+            registry.addDevice(DeviceRegistry.TYPE_LIGHT, group);
+            registry.addDevice(DeviceRegistry.TYPE_FAN, group);
+            registry.addDevice(DeviceRegistry.TYPE_AC, group);
+        }
+        long periodsPerDay = DAY_MILLIS / OCCUPANT_PERIOD_MILLIS;
+        changesPerPeriod = (int) Math.max(1, (long) registry.size() * CHANGES_PER_DEVICE_PER_DAY / periodsPerDay);
+    }
+
+    //start the services and the occupants, same wiring as the Dashboard
+    public void start() {
+        new ClimateController(registry, scheduler);
+        MaintenanceCalendar calendar = new MaintenanceCalendar(scheduler);
+        calendar.addWindow("Annual system update", ANNUAL_UPDATE_CRON, MaintenanceCalendar.ALL_GROUPS, group -> runUpdate());
+        calendar.start();
+        scheduler.scheduleAtFixedRate(this::occupants, OCCUPANT_PERIOD_MILLIS, OCCUPANT_PERIOD_MILLIS);
+    }
+
+    //the annual update turns every device off in one bulk operation
+    private void runUpdate() {
+        int changed = registry.applyBulkAndNotify(DeviceRegistry.BULK_TURN_OFF, DeviceRegistry.ANY_TYPE, DeviceRegistry.ALL_GROUPS, 0, 0, registry.size());
+        updatesRun++;
+        devicesTurnedOff += changed;
+        lastUpdate = LocalDateTime.now(scheduler.getClock());
+    }
+
+    //random occupants flip lights, change fan speeds, switch ACs and set new targets
+    private void occupants() {
+        int size = registry.size();
+        for (int i = 0; i < changesPerPeriod; i++) {
+            int id = random.nextInt(size);
+            switch (registry.getType(id)) {
+                case DeviceRegistry.TYPE_LIGHT:
+                    registry.toggleLight(id);
+                    break;
+                case DeviceRegistry.TYPE_FAN:
+                    registry.setFanSpeed(id, random.nextInt(DeviceRegistry.MAX_SPEED + 1));
+                    break;
+                default:
+                    if (random.nextBoolean()) {
+                        registry.toggleAirConditioner(id);
+                    }
+                    else {
+                        registry.setTargetTemperature(id, DeviceRegistry.MIN_TEMP + random.nextInt(DeviceRegistry.MAX_TEMP - DeviceRegistry.MIN_TEMP + 1));
+                    }
+                    break;
+            }
+            occupantChanges++;
+        }
+    }
+
+    //FNV-1a over the state of every device, equal runs give equal checksums
+    public long checksum() {
+        long hash = 0xcbf29ce484222325L;
+        for (int id = 0; id < registry.size(); id++) {
+            long state = (registry.isOn(id) ? 1 : 0) | registry.getSpeed(id) << 1
+                | (long) registry.getCurrentTemperature(id) << 8 | (long) registry.getTargetTemperature(id) << 16;
+            hash = (hash ^ state) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    //run a headless year: java YearSimulation [rooms] [year] [seed]
+    public static void main(String[] args) {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int year = args.length > 1 ? Integer.parseInt(args[1]) : 2026;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        ZoneId zone = ZoneId.of(System.getProperty("sim.zone", "UTC"));
+
+        //a year starting just after one annual update, so it ends with the next
+        LocalDateTime start = LocalDate.of(year, 1, 1).atTime(2, 0);
+        LocalDateTime end = start.plusYears(1);
+        VirtualScheduler scheduler = new VirtualScheduler(start.atZone(zone).toInstant(), zone);
+        YearSimulation simulation = new YearSimulation(rooms, scheduler, seed);
+        EnergyAccountant energy = new EnergyAccountant(simulation.registry, scheduler);
+        simulation.start();
+
+        long wallStart = System.nanoTime();
+        long endMillis = end.atZone(zone).toInstant().toEpochMilli();
+        double yearWattHours = 0;
+        double peakWattHours = 0;
+        LocalDate peakDay = null;
+        LocalDate day = start.toLocalDate();
+        while (scheduler.currentTimeMillis() < endMillis) {
+            //read the day window 1 ms before the next day starts, when its 24 hourly buckets cover the whole day
+            long dayEnd = Math.min(day.plusDays(1).atTime(start.toLocalTime()).atZone(zone).toInstant().toEpochMilli(), endMillis);
+            scheduler.runUntil(dayEnd - 1);
+            double wattHours = energy.getFleetWattHours(EnergyAccountant.WINDOW_DAY);
+            yearWattHours += wattHours;
+            if (wattHours > peakWattHours) {
+                peakWattHours = wattHours;
+                peakDay = day;
+            }
+            scheduler.runUntil(dayEnd);
+            day = day.plusDays(1);
+        }
+        double seconds = (System.nanoTime() - wallStart) / 1e9;
+        double simulatedSeconds = (endMillis - start.atZone(zone).toInstant().toEpochMilli()) / 1000.0;
+
+        System.out.printf("Simulated %s to %s (%s) for %d devices in %.2f s, %.0fx real time%n", start, end, zone,
+            simulation.registry.size(), seconds, simulatedSeconds / seconds);
+        System.out.printf("Tasks run: %d | occupant changes: %d | registry changes: %d%n", scheduler.getTasksRun(),
+            simulation.occupantChanges, simulation.registry.getChangeCount());
+        System.out.println("Annual updates: " + simulation.updatesRun + " (last " + simulation.lastUpdate + ", "
+            + simulation.devicesTurnedOff + " devices turned off)");
+        System.out.printf("Energy: %.1f MWh over the year, peak day %s with %.1f kWh%n", yearWattHours / 1e6, peakDay, peakWattHours / 1e3);
+        System.out.printf("State checksum: %016x%n", simulation.checksum());
+    }
+}
@@ -0,0 +1,22 @@
+@echo off
+echo Smart Home Control System - time to first paint per startup mode
+echo Compiling Java files...
+
+cd src
+javac -encoding UTF-8 *.java
+
+if %errorlevel% equ 0 (
+    jar cfe dashboard.jar Dashboard *.class
+    java -XX:ArchiveClassesAtExit=dashboard.jsa -Dfast.start=true -Dstartup.exit=true -jar dashboard.jar > nul
+    echo Standard:
+    java -Dstartup.exit=true -jar dashboard.jar | findstr Startup
+    echo Fast start:
+    java -Dfast.start=true -Dstartup.exit=true -jar dashboard.jar | findstr Startup
+    echo Fast start with the class-data archive:
+    java -XX:SharedArchiveFile=dashboard.jsa -Dfast.start=true -Dstartup.exit=true -jar dashboard.jar | findstr Startup
+) else (
+    echo Compilation failed! Please check for errors.
+)
+
+cd ..
+pause